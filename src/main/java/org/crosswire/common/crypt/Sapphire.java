@@ -472,7 +472,7 @@ package org.crosswire.common.crypt;
  * @author unascribed Sword's C++ implementation
  * @author DM Smith Java port from Sword's C++ implementation
  */
-public class Sapphire {
+public class Sapphire implements Cloneable {
 
     /**
      * Construct a Sapphire Stream Cipher from a key, possibly null or empty.
@@ -536,6 +536,69 @@ public class Sapphire {
         return (byte) lastPlain;
     }
 
+    /**
+     * Decipher a run of bytes in place. This is the same as calling
+     * {@link #cipher(byte)} for each byte in turn, but faster.
+     * 
+     * @param data
+     *            the bytes to decipher
+     * @param offset
+     *            the first byte to decipher
+     * @param length
+     *            the number of bytes to decipher
+     */
+    public void cipher(byte[] data, int offset, int length) {
+        // Work on local copies of the state, saving it back at the end.
+        final int[] deck = cards;
+        int rot = rotor;
+        int rat = ratchet;
+        int ava = avalanche;
+        int plain = lastPlain;
+        int ciph = lastCipher;
+
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int bVal = data[i] & 0xFF;
+            rat = (rat + deck[rot]) & 0xFF;
+            rot = (rot + 1) & 0xFF;
+            int swaptemp = deck[ciph];
+            deck[ciph] = deck[rat];
+            deck[rat] = deck[plain];
+            deck[plain] = deck[rot];
+            deck[rot] = swaptemp;
+            ava = (ava + deck[swaptemp]) & 0xFF;
+
+            plain = bVal ^ deck[(deck[rat] + deck[rot]) & 0xFF] ^ deck[deck[(deck[plain] + deck[ciph] + deck[ava]) & 0xFF]];
+            ciph = bVal;
+            data[i] = (byte) plain;
+        }
+
+        rotor = rot;
+        ratchet = rat;
+        avalanche = ava;
+        lastPlain = plain;
+        lastCipher = ciph;
+    }
+
+    /**
+     * Copy this cipher in its current state. Setting up a cipher from a key
+     * is slow by design, so a cipher that has just been keyed can be kept and
+     * copied for each run of bytes that needs deciphering with that key.
+     * 
+     * @return a cipher in the same state as this one
+     */
+    @Override
+    public Sapphire clone() {
+        Sapphire copy = null;
+        try {
+            copy = (Sapphire) super.clone();
+            copy.cards = cards.clone();
+        } catch (CloneNotSupportedException e) {
+            assert false : e;
+        }
+        return copy;
+    }
+
     /**
      * Destroy the key and state information in RAM.
      */
@@ -20,10 +20,8 @@
 package org.crosswire.common.diff;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -69,16 +67,16 @@ public class DifferenceEngine {
     public List<Difference> generate() {
         long msEnd = System.currentTimeMillis() + (long) (timeout * 1000);
         int maxD = (this.sourceLength + this.targetLength) / 2;
-        List<Set<String>> vMap1 = new ArrayList<Set<String>>();
-        List<Set<String>> vMap2 = new ArrayList<Set<String>>();
-        Map<Integer, Integer> v1 = new HashMap<Integer, Integer>();
-        Map<Integer, Integer> v2 = new HashMap<Integer, Integer>();
-        v1.put(Integer.valueOf(1), Integer.valueOf(0));
-        v2.put(Integer.valueOf(1), Integer.valueOf(0));
+        Trace vMap1 = new Trace();
+        Trace vMap2 = new Trace();
+        // The furthest x reached on each diagonal k, at v[k + offset]
+        int offset = maxD + 1;
+        int[] v1 = new int[2 * maxD + 3];
+        int[] v2 = new int[2 * maxD + 3];
         int x;
         int y;
-        String footstep; // Used to track overlapping paths.
-        Map<String, Integer> footsteps = new HashMap<String, Integer>();
+        long footstep; // Used to track overlapping paths.
+        Footsteps footsteps = new Footsteps();
         boolean done = false;
         // If the total number of characters is odd, then the front path will
         // collide with the reverse path.
@@ -90,43 +88,37 @@ public class DifferenceEngine {
             }
 
             // Walk the front path one step.
-            vMap1.add(new HashSet<String>()); // Adds at index 'd'.
+            vMap1.addStep(); // Adds at index 'd'.
             for (int k = -d; k <= d; k += 2) {
-                Integer kPlus1Key = Integer.valueOf(k + 1);
-                Integer kPlus1Value = v1.get(kPlus1Key);
-                Integer kMinus1Key = Integer.valueOf(k - 1);
-                Integer kMinus1Value = v1.get(kMinus1Key);
-                if (k == -d || k != d && kMinus1Value.intValue() < kPlus1Value.intValue()) {
-                    x = kPlus1Value.intValue();
+                if (k == -d || k != d && v1[offset + k - 1] < v1[offset + k + 1]) {
+                    x = v1[offset + k + 1];
                 } else {
-                    x = kMinus1Value.intValue() + 1;
+                    x = v1[offset + k - 1] + 1;
                 }
                 y = x - k;
-                footstep = x + "," + y;
+                footstep = footstep(x, y);
                 if (front && (footsteps.containsKey(footstep))) {
                     done = true;
                 }
                 if (!front) {
-                    footsteps.put(footstep, Integer.valueOf(d));
+                    footsteps.put(footstep, d);
                 }
                 while (!done && x < this.sourceLength && y < this.targetLength && source.charAt(x) == target.charAt(y)) {
                     x++;
                     y++;
-                    footstep = x + "," + y;
+                    footstep = footstep(x, y);
                     if (front && footsteps.containsKey(footstep)) {
                         done = true;
                     }
                     if (!front) {
-                        footsteps.put(footstep, Integer.valueOf(d));
+                        footsteps.put(footstep, d);
                     }
                 }
-                v1.put(Integer.valueOf(k), Integer.valueOf(x));
-                Set<String> s = vMap1.get(d);
-                s.add(x + "," + y);
+                v1[offset + k] = x;
+                vMap1.add(d, k, x);
                 if (done) {
                     // Front path ran over reverse path.
-                    Integer footstepValue = footsteps.get(footstep);
-                    vMap2 = vMap2.subList(0, footstepValue.intValue() + 1);
+                    vMap2.truncate(footsteps.get(footstep) + 1);
                     List<Difference> a = path1(vMap1, source.substring(0, x), target.substring(0, y));
                     a.addAll(path2(vMap2, source.substring(x), target.substring(y)));
                     return a;
@@ -134,44 +126,38 @@ public class DifferenceEngine {
             }
 
             // Walk the reverse path one step.
-            vMap2.add(new HashSet<String>()); // Adds at index 'd'.
+            vMap2.addStep(); // Adds at index 'd'.
             for (int k = -d; k <= d; k += 2) {
-                Integer kPlus1Key = Integer.valueOf(k + 1);
-                Integer kPlus1Value = v2.get(kPlus1Key);
-                Integer kMinus1Key = Integer.valueOf(k - 1);
-                Integer kMinus1Value = v2.get(kMinus1Key);
-                if (k == -d || k != d && kMinus1Value.intValue() < kPlus1Value.intValue()) {
-                    x = kPlus1Value.intValue();
+                if (k == -d || k != d && v2[offset + k - 1] < v2[offset + k + 1]) {
+                    x = v2[offset + k + 1];
                 } else {
-                    x = kMinus1Value.intValue() + 1;
+                    x = v2[offset + k - 1] + 1;
                 }
                 y = x - k;
-                footstep = (this.sourceLength - x) + "," + (this.targetLength - y);
+                footstep = footstep(this.sourceLength - x, this.targetLength - y);
                 if (!front && (footsteps.containsKey(footstep))) {
                     done = true;
                 }
                 if (front) {
-                    footsteps.put(footstep, Integer.valueOf(d));
+                    footsteps.put(footstep, d);
                 }
                 while (!done && x < this.sourceLength && y < this.targetLength && source.charAt(this.sourceLength - x - 1) == target.charAt(this.targetLength - y - 1)) {
                     x++;
                     y++;
-                    footstep = (this.sourceLength - x) + "," + (this.targetLength - y);
+                    footstep = footstep(this.sourceLength - x, this.targetLength - y);
                     if (!front && (footsteps.containsKey(footstep))) {
                         done = true;
                     }
                     if (front) {
-                        footsteps.put(footstep, Integer.valueOf(d));
+                        footsteps.put(footstep, d);
                     }
                 }
 
-                v2.put(Integer.valueOf(k), Integer.valueOf(x));
-                Set<String> s = vMap2.get(d);
-                s.add(x + "," + y);
+                v2[offset + k] = x;
+                vMap2.add(d, k, x);
                 if (done) {
                     // Reverse path ran over front path.
-                    Integer footstepValue = footsteps.get(footstep);
-                    vMap1 = vMap1.subList(0, footstepValue.intValue() + 1);
+                    vMap1.truncate(footsteps.get(footstep) + 1);
                     List<Difference> a = path1(vMap1, source.substring(0, this.sourceLength - x), target.substring(0, this.targetLength - y));
                     a.addAll(path2(vMap2, source.substring(this.sourceLength - x), target.substring(this.targetLength - y)));
                     return a;
@@ -195,14 +181,28 @@ public class DifferenceEngine {
      * @return List of Difference objects
      */
     protected List<Difference> path1(final List<Set<String>> vMap, final String newSource, final String newTarget) {
+        return path1(new PointSets(vMap), newSource, newTarget);
+    }
+
+    /**
+     * Work from the middle back to the start to determine the path.
+     * 
+     * @param vMap
+     *            the points reached at each step
+     * @param newSource
+     *            Old string fragment to be diffed
+     * @param newTarget
+     *            New string fragment to be diffed
+     * @return List of Difference objects
+     */
+    private List<Difference> path1(final Path vMap, final String newSource, final String newTarget) {
         List<Difference> path = new ArrayList<Difference>();
         int x = newSource.length();
         int y = newTarget.length();
         EditType lastEditType = null;
         for (int d = vMap.size() - 2; d >= 0; d--) {
             while (true) {
-                Set<String> set = vMap.get(d);
-                if (set.contains((x - 1) + "," + y)) {
+                if (vMap.contains(d, x - 1, y)) {
                     x--;
                     if (EditType.DELETE.equals(lastEditType)) {
                         Difference firstDiff = path.get(0);
@@ -212,7 +212,7 @@ public class DifferenceEngine {
                     }
                     lastEditType = EditType.DELETE;
                     break;
-                } else if (set.contains(x + "," + (y - 1))) {
+                } else if (vMap.contains(d, x, y - 1)) {
                     y--;
                     if (EditType.INSERT.equals(lastEditType)) {
                         Difference firstDiff = path.get(0);
@@ -251,6 +251,21 @@ public class DifferenceEngine {
      * @return List of Difference objects
      */
     protected List<Difference> path2(final List<Set<String>> vMap, final String newSource, final String newTarget) {
+        return path2(new PointSets(vMap), newSource, newTarget);
+    }
+
+    /**
+     * Work from the middle back to the end to determine the path.
+     * 
+     * @param vMap
+     *            the points reached at each step
+     * @param newSource
+     *            Old string fragment to be diffed
+     * @param newTarget
+     *            New string fragment to be diffed
+     * @return List of Difference objects
+     */
+    private List<Difference> path2(final Path vMap, final String newSource, final String newTarget) {
         List<Difference> path = new ArrayList<Difference>();
 
         //cached versions of length from immutable strings
@@ -262,8 +277,7 @@ public class DifferenceEngine {
         EditType lastEditType = null;
         for (int d = vMap.size() - 2; d >= 0; d--) {
             while (true) {
-                Set<String> set = vMap.get(d);
-                if (set.contains((x - 1) + "," + y)) {
+                if (vMap.contains(d, x - 1, y)) {
                     x--;
                     if (EditType.DELETE.equals(lastEditType)) {
                         Difference lastDiff = path.get(path.size() - 1);
@@ -273,7 +287,7 @@ public class DifferenceEngine {
                     }
                     lastEditType = EditType.DELETE;
                     break;
-                } else if (set.contains(x + "," + (y - 1))) {
+                } else if (vMap.contains(d, x, y - 1)) {
                     y--;
                     if (EditType.INSERT.equals(lastEditType)) {
                         Difference lastDiff = path.get(path.size() - 1);
@@ -301,6 +315,27 @@ public class DifferenceEngine {
         return path;
     }
 
+    /**
+     * Encode a point of the edit graph as a single number. A path may step
+     * beyond the ends of the texts, so either may be out of range.
+     * 
+     * @param x
+     *            the position in the source
+     * @param y
+     *            the position in the target
+     * @return the point as a number
+     */
+    private static long footstep(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the timeout for the diff operation, in seconds, 0 for infinity
+     */
+    public static float getTimeout() {
+        return timeout;
+    }
+
     /**
      * Set the timeout for the diff operation. The default is 1 second. Use 0
      * for infinity.
@@ -311,6 +346,201 @@ public class DifferenceEngine {
         timeout = newTimeout;
     }
 
+    /**
+     * The points of the edit graph reached by a path, step by step.
+     */
+    private interface Path {
+        /**
+         * @return the number of steps taken
+         */
+        int size();
+
+        /**
+         * @param d
+         *            the step
+         * @param x
+         *            the position in the source
+         * @param y
+         *            the position in the target
+         * @return whether the path reached the point in that step
+         */
+        boolean contains(int d, int x, int y);
+    }
+
+    /**
+     * A path held as a set of "x,y" points for each step.
+     */
+    private static final class PointSets implements Path {
+        PointSets(List<Set<String>> vMap) {
+            this.vMap = vMap;
+        }
+
+        public int size() {
+            return vMap.size();
+        }
+
+        public boolean contains(int d, int x, int y) {
+            return vMap.get(d).contains(x + "," + y);
+        }
+
+        private final List<Set<String>> vMap;
+    }
+
+    /**
+     * A path held as the furthest x reached on each diagonal in each step.
+     * Step d reaches the d + 1 diagonals -d, -d + 2, ..., d, so the steps
+     * are kept one after the other in a single array, step d starting at
+     * d * (d + 1) / 2.
+     */
+    private static final class Trace implements Path {
+        /**
+         * Start the next step.
+         */
+        void addStep() {
+            steps++;
+            int needed = steps * (steps + 1) / 2;
+            if (needed > xs.length) {
+                int[] grown = new int[Math.max(needed, xs.length * 2)];
+                System.arraycopy(xs, 0, grown, 0, xs.length);
+                xs = grown;
+            }
+        }
+
+        /**
+         * Record where a step got to on a diagonal.
+         * 
+         * @param d
+         *            the step
+         * @param k
+         *            the diagonal
+         * @param x
+         *            the furthest position in the source
+         */
+        void add(int d, int k, int x) {
+            xs[d * (d + 1) / 2 + (k + d) / 2] = x;
+        }
+
+        /**
+         * Forget all but the first steps.
+         * 
+         * @param size
+         *            the number of steps to keep
+         */
+        void truncate(int size) {
+            steps = Math.min(steps, size);
+        }
+
+        public int size() {
+            return steps;
+        }
+
+        public boolean contains(int d, int x, int y) {
+            int k = x - y;
+            if (k < -d || k > d || ((k + d) & 1) != 0) {
+                return false;
+            }
+            return xs[d * (d + 1) / 2 + (k + d) / 2] == x;
+        }
+
+        private int[] xs = new int[16];
+        private int steps;
+    }
+
+    /**
+     * The step in which each point was last reached, by an open addressed
+     * hash table from encoded point to step.
+     */
+    private static final class Footsteps {
+        /**
+         * @param footstep
+         *            the encoded point
+         * @return whether the point has been reached
+         */
+        boolean containsKey(long footstep) {
+            return keys[slot(footstep)] != EMPTY;
+        }
+
+        /**
+         * @param footstep
+         *            the encoded point
+         * @return the step in which the point was last reached
+         */
+        int get(long footstep) {
+            return values[slot(footstep)];
+        }
+
+        /**
+         * @param footstep
+         *            the encoded point
+         * @param d
+         *            the step in which it was reached
+         */
+        void put(long footstep, int d) {
+            int slot = slot(footstep);
+            if (keys[slot] == EMPTY) {
+                if (++size * 2 > keys.length) {
+                    grow();
+                    slot = slot(footstep);
+                }
+                keys[slot] = footstep;
+            }
+            values[slot] = d;
+        }
+
+        /**
+         * Find the slot holding a point or the empty one where it belongs.
+         * 
+         * @param footstep
+         *            the encoded point
+         * @return the slot
+         */
+        private int slot(long footstep) {
+            int mask = keys.length - 1;
+            int slot = (int) ((footstep * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (keys[slot] != EMPTY && keys[slot] != footstep) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        /**
+         * Double the size of the table.
+         */
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = newKeys(oldKeys.length * 2);
+            values = new int[oldValues.length * 2];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        /**
+         * @param length
+         *            the size of the table
+         * @return a table of empty slots
+         */
+        private static long[] newKeys(int length) {
+            long[] keys = new long[length];
+            Arrays.fill(keys, EMPTY);
+            return keys;
+        }
+
+        /**
+         * Marks an empty slot, as no point has an x this low
+         */
+        private static final long EMPTY = Long.MIN_VALUE;
+
+        private long[] keys = newKeys(64);
+        private int[] values = new int[64];
+        private int size;
+    }
+
     /**
      * Number of seconds to map a diff before giving up. Use 0 for infinity.
      */
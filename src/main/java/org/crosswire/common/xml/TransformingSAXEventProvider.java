@@ -23,8 +23,10 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.xml.transform.ErrorListener;
 import javax.xml.transform.Result;
@@ -50,6 +52,12 @@ import org.xml.sax.SAXException;
  * A SAXEventProvider that gets its output data from an XSL stylesheet and
  * another SAXEventProvider (supplying input XML).
  * 
+ * <p>
+ * Compiled stylesheets are shared by all threads, with the most recently
+ * used kept. Each thread keeps the Transformer it last used for a stylesheet,
+ * so that it need not create one for every transform.
+ * </p>
+ * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author Joe Walker
  */
@@ -76,7 +84,10 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
      */
     private TemplateInfo getTemplateInfo() throws TransformerConfigurationException, IOException {
         // we may have one cached
-        TemplateInfo tinfo = txers.get(xsluri);
+        TemplateInfo tinfo;
+        synchronized (txers) {
+            tinfo = txers.get(xsluri);
+        }
 
         long modtime = -1;
         if (TransformingSAXEventProvider.developmentMode) {
@@ -85,7 +96,9 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
 
                 // But check it is up to date
                 if (modtime > tinfo.getModtime()) {
-                    txers.remove(xsluri);
+                    synchronized (txers) {
+                        txers.remove(xsluri);
+                    }
                     tinfo = null;
                     log.debug("updated style, re-caching. xsl={}", xsluri);
                 }
@@ -97,11 +110,14 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
 
             InputStream xslStream = null;
             try {
+                long start = System.nanoTime();
                 xslStream = NetUtil.getInputStream(xsluri);
                 if (transfact == null) {
                     transfact = TransformerFactory.newInstance();
                 }
                 Templates templates = transfact.newTemplates(new StreamSource(xslStream));
+                compiles.incrementAndGet();
+                compileNanos.addAndGet(System.nanoTime() - start);
 
                 if (modtime == -1) {
                     modtime = NetUtil.getLastModified(xsluri);
@@ -109,7 +125,9 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
 
                 tinfo = new TemplateInfo(templates, modtime);
 
-                txers.put(xsluri, tinfo);
+                synchronized (txers) {
+                    txers.put(xsluri, tinfo);
+                }
             } finally {
                 IOUtil.close(xslStream);
             }
@@ -130,7 +148,7 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
             throw new TransformerException(e);
         }
 
-        Transformer transformer = tinfo.getTemplates().newTransformer();
+        Transformer transformer = tinfo.getTransformer();
 
         for (Object obj : outputs.keySet()) {
             String key = (String) obj;
@@ -151,7 +169,16 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
             transformer.setURIResolver(resolver);
         }
 
+        long start = System.nanoTime();
         transformer.transform(xmlSource, outputTarget);
+        transforms.incrementAndGet();
+        transformNanos.addAndGet(System.nanoTime() - start);
+
+        // Only a transformer that finished is used again, and not one with
+        // a listener or resolver that resetting might not remove
+        if (errors == null && resolver == null) {
+            tinfo.release(transformer);
+        }
     }
 
     /* (non-Javadoc)
@@ -276,7 +303,36 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     }
 
     /**
-     * A simple class to link modification times to Templates objects
+     * @return the number of style sheets that have been compiled
+     */
+    public static long getCompileCount() {
+        return compiles.get();
+    }
+
+    /**
+     * @return the time spent compiling style sheets, in milliseconds
+     */
+    public static long getCompileTime() {
+        return compileNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * @return the number of transforms that have finished
+     */
+    public static long getTransformCount() {
+        return transforms.get();
+    }
+
+    /**
+     * @return the time spent in transforms that have finished, in milliseconds
+     */
+    public static long getTransformTime() {
+        return transformNanos.get() / NANOS_PER_MILLI;
+    }
+
+    /**
+     * A simple class to link modification times to Templates objects. Each
+     * thread keeps the Transformer it last used, to be reset and used again.
      */
     private static class TemplateInfo {
         /**
@@ -308,8 +364,64 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
             return modtime;
         }
 
+        /**
+         * Get a Transformer for this thread, either the one it used last or,
+         * when that is in use, a new one.
+         * 
+         * @return a transformer, as newly created
+         * @throws TransformerConfigurationException when a transformer cannot be created
+         */
+        Transformer getTransformer() throws TransformerConfigurationException {
+            Transformer transformer = idle.get();
+            if (transformer == null) {
+                return templates.newTransformer();
+            }
+            idle.remove();
+            // Not every implementation of reset clears these
+            transformer.reset();
+            transformer.clearParameters();
+            transformer.setOutputProperties(null);
+            return transformer;
+        }
+
+        /**
+         * Keep a Transformer that this thread has finished with.
+         * 
+         * @param transformer the transformer to use again
+         */
+        void release(Transformer transformer) {
+            idle.set(transformer);
+        }
+
         private Templates templates;
         private long modtime;
+
+        /**
+         * The transformer that each thread last used, if it is not in use
+         */
+        private ThreadLocal<Transformer> idle = new ThreadLocal<Transformer>();
+    }
+
+    /**
+     * A map that forgets the least recently used style sheet when it becomes full.
+     */
+    private static final class TemplatesCache extends LinkedHashMap<URI, TemplateInfo> {
+        TemplatesCache() {
+            super(16, 0.75f, true);
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<URI, TemplateInfo> eldest) {
+            return size() > TEMPLATES_CACHE_SIZE;
+        }
+
+        /**
+         * Serialization ID
+         */
+        private static final long serialVersionUID = -2190346328912347625L;
     }
 
     /**
@@ -354,9 +466,28 @@ public class TransformingSAXEventProvider extends Transformer implements SAXEven
     private TransformerFactory transfact;
 
     /**
-     * A cache of transformers
+     * A cache of transformers, which is locked on use
+     */
+    private static final Map<URI, TemplateInfo> txers = new TemplatesCache();
+
+    /**
+     * The number of compiled style sheets to remember.
      */
-    private static Map<URI, TemplateInfo> txers = new HashMap<URI, TemplateInfo>();
+    private static final int TEMPLATES_CACHE_SIZE = 32;
+
+    /**
+     * The number of style sheets compiled and the time spent doing so
+     */
+    private static final AtomicLong compiles = new AtomicLong();
+    private static final AtomicLong compileNanos = new AtomicLong();
+
+    /**
+     * The number of transforms finished and the time spent in them
+     */
+    private static final AtomicLong transforms = new AtomicLong();
+    private static final AtomicLong transformNanos = new AtomicLong();
+
+    private static final long NANOS_PER_MILLI = 1000000L;
 
     /**
      * The log stream
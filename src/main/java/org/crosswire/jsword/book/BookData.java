@@ -24,6 +24,12 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.crosswire.common.diff.Diff;
 import org.crosswire.common.diff.DiffCleanup;
@@ -31,19 +37,26 @@ import org.crosswire.common.diff.Difference;
 import org.crosswire.common.util.Language;
 import org.crosswire.common.xml.JDOMSAXEventProvider;
 import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.basic.AbstractPassageBook;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.Passage;
 import org.crosswire.jsword.passage.RestrictionType;
 import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.VersificationsMapper;
 import org.crosswire.jsword.versification.system.Versifications;
 import org.jdom2.Content;
 import org.jdom2.Document;
 import org.jdom2.Element;
+import org.jdom2.JDOMException;
 import org.jdom2.Namespace;
 import org.jdom2.Text;
+import org.jdom2.output.SAXOutputter;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
 
 /**
  * BookData is the assembler of the OSIS that is returned by the filters. As
@@ -154,6 +167,27 @@ public class BookData implements BookProvider {
         return new JDOMSAXEventProvider(doc);
     }
 
+    /**
+     * Output the current data as a SAX stream, reading it as it is sent
+     * rather than building it all first. A single book is read a chapter at
+     * a time. Several books are read a chapter of the first book at a time,
+     * each of which is sent as its rows are made. If the data has already
+     * been built, this is the same as getSAXEventProvider().
+     *
+     * @return A way of posting SAX events
+     * @throws BookException if there is any problem with this request
+     * @see StreamingSAXEventProvider
+     */
+    public SAXEventProvider getStreamingSAXEventProvider() throws BookException {
+        if (fragment != null) {
+            return getSAXEventProvider();
+        }
+        if (books.length > 1) {
+            return new ParallelSAXEventProvider();
+        }
+        return new StreamingSAXEventProvider(books[0], key, true);
+    }
+
     /**
      * Who created this data.
      *
@@ -199,131 +233,15 @@ public class BookData implements BookProvider {
             }
         } else {
             Element table = OSISUtil.factory().createTable();
-            Element row = OSISUtil.factory().createRow();
-            Element cell = OSISUtil.factory().createCell();
-
-            table.addContent(row);
-
-            Iterator<Content>[] iters = new Iterator[books.length];
-            Passage[] passages = new Passage[books.length];
-            boolean[] showDiffs = new boolean[books.length - 1];
-            boolean doDiffs = false;
-
-            //iterate through a first time mapping out our data. This enables us to detect a difference in number
-            //of ranges later on and flag it to the user...
-            boolean[] ommittedVerses = new boolean[books.length];
-            int numRangesInMasterPassage = 0;
-            for (int i = 0; i < books.length; i++) {
-                //although the osis iterator now caters for keys in different versifications
-                //we are going to want to analyse the resulting key, so let's do the conversion up-front
-                passages[i] = VersificationsMapper.instance().map(KeyUtil.getPassage(key), getVersification(i));
-
-                //iterator takes care of versification differences here...
-                iters[i] = books[i].getOsisIterator(passages[i], true, true);
-
-                if (i == 0) {
-                    //we never omit a verse for the first passage, since we're going to output everything based on that.
-                    ommittedVerses[i] = false;
-                    numRangesInMasterPassage = passages[i].countRanges(RestrictionType.NONE);
-                } else {
-                    // basically, if we end up with more ranges than we started with, then we're omitting a verse
-                    //somewhere along the lines.
-                    ommittedVerses[i] = passages[i].countRanges(RestrictionType.NONE) > numRangesInMasterPassage;
-                }
-            }
-
+            ParallelReader reader = new ParallelReader();
+            table.addContent(reader.getHeader());
 
-            //now read the content and map it out
-            BookVerseContent[] booksContents = new BookVerseContent[books.length];
-            for (int i = 0; i < books.length; i++) {
-                doDiffs |= addHeaderAndSetShowDiffsState(row, showDiffs, i, ommittedVerses[i]);
-                booksContents[i] = keyIteratorContentByVerse(
-                        getVersification(i),
-                        iters[i]);
-            }
-
-            int cellCount = 0;
             int rowCount = 0;
-
-            //we iterate through the first book's contents, and match the verses from all the other ones
-            for (Map.Entry<Verse, List<Content>> verseContent : booksContents[0].entrySet()) {
-                cellCount = 0;
-                row = OSISUtil.factory().createRow();
-                String firstText = "";
-
-                for (int i = 0; i < books.length; i++) {
-                    Book book = books[i];
-                    cell = OSISUtil.factory().createCell();
-                    Language lang = book.getLanguage();
-                    if (lang != null) {
-                        cell.setAttribute(OSISUtil.OSIS_ATTR_LANG, lang.getCode(), Namespace.XML_NAMESPACE);
-                    }
-
-                    row.addContent(cell);
-
-                    StringBuilder newText = new StringBuilder(doDiffs ? 32 : 0);
-
-                    //get the contents from the mapped verse - key might be null if we had content outside of a verse.
-                    //might be a no-op if it's in the same versification.
-                    Key verseInRelavantBookContents = VersificationsMapper.instance().mapVerse(verseContent.getKey(), getVersification(i));
-
-                    //key might have several child keys, ie. a verse mapping to a range, or list of verses
-                    Passage passageOfInterest = KeyUtil.getPassage(verseInRelavantBookContents);
-                    Iterator<Key> passageKeys = passageOfInterest.iterator();
-                    while (passageKeys.hasNext()) {
-                        Key singleKey = passageKeys.next();
-                        //TODO(CJB): for performance, we probably want to avoid the instanceof, so either change the
-                        //method signature, or cast directly and be optimistic
-                        if (!(singleKey instanceof Verse)) {
-                            throw new UnsupportedOperationException("Iterating through a passage gives non-verses");
-                        }
-
-                        List<Content> xmlContent = booksContents[i].get(singleKey);
-
-                        //if the book simply did not contain that reference (say Greek book, with Gen.1 as a reference)
-                        //then we end up with a key that doesn't exist in the map. Therefore, we need to cope for this.
-                        if (xmlContent == null) {
-                            xmlContent = new ArrayList<Content>(0);
-                        }
-
-                        addText(doDiffs, newText, xmlContent);
-
-                        if (doDiffs) {
-                            String thisText = newText.toString();
-                            if (unaccenter != null) {
-                                thisText = unaccenter.unaccent(thisText);
-                            }
-
-                            if (i > 0 && showDiffs[i - 1]) {
-                                List<Difference> diffs = new Diff(firstText, thisText, false).compare();
-                                DiffCleanup.cleanupSemantic(diffs);
-                                cell.addContent(OSISUtil.diffToOsis(diffs));
-
-                                // Since we used that cell create another
-                                cell = OSISUtil.factory().createCell();
-                                lang = book.getLanguage();
-                                cell.setAttribute(OSISUtil.OSIS_ATTR_LANG, lang.getCode(), Namespace.XML_NAMESPACE);
-                                row.addContent(cell);
-                            }
-                            if (i == 0) {
-                                firstText = thisText;
-                            }
-                        }
-
-                        //TODO(CJB): wrong location - we should record the keys in a set and notify
-                        //when there is a problem
-                        //this should be outside of the loop?
-                        addContentSafely(cell, xmlContent);
-                        cellCount++;
-                    }
-                }
-
-                if (cellCount == 0) {
-                    break;
-                }
-
-                table.addContent(row);
-                rowCount++;
+            List<Element> rows = reader.readRows();
+            while (rows != null) {
+                table.addContent(rows);
+                rowCount += rows.size();
+                rows = reader.readRows();
             }
             if (rowCount > 0) {
                 div.addContent(table);
@@ -517,6 +435,384 @@ public class BookData implements BookProvider {
         this.unaccenter = unaccenter;
     }
 
+    /**
+     * Whether the books being compared are read at the same time, each on a
+     * thread of its own.
+     * 
+     * @return true if the books are read in parallel
+     */
+    public static boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Read the books being compared at the same time, a chapter at a time,
+     * rather than one after the other. The content is the same either way.
+     * 
+     * @param readInParallel whether to read the books in parallel
+     */
+    public static void setParallel(boolean readInParallel) {
+        parallel = readInParallel;
+    }
+
+    /**
+     * @return the threads on which books are read in parallel
+     */
+    private static synchronized ExecutorService getReaders() {
+        if (readers == null) {
+            readers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "BookData reader");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        }
+        return readers;
+    }
+
+    /**
+     * Reads the books being compared a chapter of the first book at a time,
+     * lining up the verses of the others with it. Each chapter is read from
+     * all the books, in parallel, and then made into a row of cells for each
+     * verse. So at most one chapter of each book is held at once.
+     */
+    private final class ParallelReader {
+        /**
+         * Map the key to each book and make the row of headers.
+         */
+        ParallelReader() {
+            passages = new Passage[books.length];
+            titles = new boolean[books.length];
+            showDiffs = new boolean[books.length - 1];
+            header = OSISUtil.factory().createRow();
+
+            // Map out the data first. This enables us to detect a difference in number
+            // of ranges and flag it to the user...
+            int numRangesInMasterPassage = 0;
+            for (int i = 0; i < books.length; i++) {
+                passages[i] = VersificationsMapper.instance().map(KeyUtil.getPassage(key), getVersification(i));
+
+                // Titles are generated for each chapter when they would be for the whole
+                titles[i] = books[i] instanceof AbstractPassageBook && passages[i].hasRanges(RestrictionType.CHAPTER);
+
+                boolean ommittedVerses = false;
+                if (i == 0) {
+                    // we never omit a verse for the first passage, since we're going to output everything based on that.
+                    numRangesInMasterPassage = passages[i].countRanges(RestrictionType.NONE);
+                } else {
+                    // basically, if we end up with more ranges than we started with, then we're omitting a verse
+                    // somewhere along the lines.
+                    ommittedVerses = passages[i].countRanges(RestrictionType.NONE) > numRangesInMasterPassage;
+                }
+                doDiffs |= addHeaderAndSetShowDiffsState(header, showDiffs, i, ommittedVerses);
+            }
+
+            ranges = passages[0].rangeIterator(RestrictionType.CHAPTER);
+            nextRange = ranges.hasNext() ? ranges.next() : null;
+        }
+
+        /**
+         * @return the row of headers
+         */
+        Element getHeader() {
+            return header;
+        }
+
+        /**
+         * Read the next chapter of the books.
+         * 
+         * @return the rows of the chapter, one for each verse of the first book, or null when there are no more
+         * @throws BookException if there is any problem with this request
+         */
+        List<Element> readRows() throws BookException {
+            if (done) {
+                return null;
+            }
+
+            Passage chapter = nextChapter();
+            if (chapter == null) {
+                return null;
+            }
+
+            BookVerseContent[] booksContents = readChapter(chapter);
+            List<Element> rows = new ArrayList<Element>();
+
+            //we iterate through the first book's contents, and match the verses from all the other ones
+            for (Map.Entry<Verse, List<Content>> verseContent : booksContents[0].entrySet()) {
+                int cellCount = 0;
+                Element row = OSISUtil.factory().createRow();
+                String firstText = "";
+
+                for (int i = 0; i < books.length; i++) {
+                    Book book = books[i];
+                    Element cell = OSISUtil.factory().createCell();
+                    Language lang = book.getLanguage();
+                    if (lang != null) {
+                        cell.setAttribute(OSISUtil.OSIS_ATTR_LANG, lang.getCode(), Namespace.XML_NAMESPACE);
+                    }
+
+                    row.addContent(cell);
+
+                    StringBuilder newText = new StringBuilder(doDiffs ? 32 : 0);
+
+                    //get the contents from the mapped verse - key might be null if we had content outside of a verse.
+                    //might be a no-op if it's in the same versification.
+                    Key verseInRelavantBookContents = VersificationsMapper.instance().mapVerse(verseContent.getKey(), getVersification(i));
+
+                    //key might have several child keys, ie. a verse mapping to a range, or list of verses
+                    Passage passageOfInterest = KeyUtil.getPassage(verseInRelavantBookContents);
+                    Iterator<Key> passageKeys = passageOfInterest.iterator();
+                    while (passageKeys.hasNext()) {
+                        Key singleKey = passageKeys.next();
+                        //TODO(CJB): for performance, we probably want to avoid the instanceof, so either change the
+                        //method signature, or cast directly and be optimistic
+                        if (!(singleKey instanceof Verse)) {
+                            throw new UnsupportedOperationException("Iterating through a passage gives non-verses");
+                        }
+
+                        List<Content> xmlContent = booksContents[i].get(singleKey);
+
+                        //if the book simply did not contain that reference (say Greek book, with Gen.1 as a reference)
+                        //then we end up with a key that doesn't exist in the map. Therefore, we need to cope for this.
+                        if (xmlContent == null) {
+                            xmlContent = new ArrayList<Content>(0);
+                        }
+
+                        addText(doDiffs, newText, xmlContent);
+
+                        if (doDiffs) {
+                            String thisText = newText.toString();
+                            if (unaccenter != null) {
+                                thisText = unaccenter.unaccent(thisText);
+                            }
+
+                            if (i > 0 && showDiffs[i - 1]) {
+                                List<Difference> diffs = new Diff(firstText, thisText, false).compare();
+                                DiffCleanup.cleanupSemantic(diffs);
+                                cell.addContent(OSISUtil.diffToOsis(diffs));
+
+                                // Since we used that cell create another
+                                cell = OSISUtil.factory().createCell();
+                                lang = book.getLanguage();
+                                cell.setAttribute(OSISUtil.OSIS_ATTR_LANG, lang.getCode(), Namespace.XML_NAMESPACE);
+                                row.addContent(cell);
+                            }
+                            if (i == 0) {
+                                firstText = thisText;
+                            }
+                        }
+
+                        //TODO(CJB): wrong location - we should record the keys in a set and notify
+                        //when there is a problem
+                        //this should be outside of the loop?
+                        addContentSafely(cell, xmlContent);
+                        cellCount++;
+                    }
+                }
+
+                if (cellCount == 0) {
+                    done = true;
+                    break;
+                }
+
+                rows.add(row);
+            }
+
+            return rows;
+        }
+
+        /**
+         * Gather the ranges of the first book that are in the same chapter, so
+         * that a chapter is read in one go however scattered its verses are.
+         * 
+         * @return the verses of the next chapter of the first book, or null when there are no more
+         */
+        private Passage nextChapter() {
+            if (nextRange == null) {
+                return null;
+            }
+
+            Passage chapter = KeyUtil.getPassage(nextRange);
+            Verse start = nextRange.getStart();
+            nextRange = null;
+            while (ranges.hasNext()) {
+                VerseRange range = ranges.next();
+                Verse verse = range.getStart();
+                if (verse.getBook() != start.getBook() || verse.getChapter() != start.getChapter()) {
+                    nextRange = range;
+                    break;
+                }
+                chapter.addAll(range);
+            }
+
+            return chapter;
+        }
+
+        /**
+         * Read a chapter of the first book from each of the books, the others
+         * at the same time as the first when reading in parallel.
+         * 
+         * @param chapter the verses of the first book in the chapter
+         * @return the verse content for each book
+         * @throws BookException if there is any problem with this request
+         */
+        private BookVerseContent[] readChapter(final Passage chapter) throws BookException {
+            // The setting may change while reading, but not for this chapter
+            boolean inParallel = parallel;
+            BookVerseContent[] booksContents = new BookVerseContent[books.length];
+            List<Future<BookVerseContent>> others = new ArrayList<Future<BookVerseContent>>();
+            try {
+                if (inParallel) {
+                    for (int i = 1; i < books.length; i++) {
+                        final int book = i;
+                        others.add(getReaders().submit(new Callable<BookVerseContent>() {
+                            public BookVerseContent call() throws BookException {
+                                return readChapter(book, chapter);
+                            }
+                        }));
+                    }
+                }
+
+                booksContents[0] = readChapter(0, chapter);
+                for (int i = 1; i < books.length; i++) {
+                    booksContents[i] = inParallel ? others.get(i - 1).get() : readChapter(i, chapter);
+                }
+            } catch (InterruptedException e) {
+                // Leave the thread as we found it.
+                Thread.currentThread().interrupt();
+                throw new BookException("Interrupted while reading " + chapter.getName(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof BookException) {
+                    throw (BookException) cause;
+                }
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new BookException("Unable to read " + chapter.getName(), cause);
+            } finally {
+                // Stop the reads that are no longer wanted
+                for (Future<BookVerseContent> other : others) {
+                    other.cancel(true);
+                }
+            }
+
+            return booksContents;
+        }
+
+        /**
+         * Read a chapter of the first book from one of the books.
+         * 
+         * @param i the position of the book in the array of books
+         * @param chapter the verses of the first book in the chapter
+         * @return the verse content for the book
+         * @throws BookException if there is any problem with this request
+         */
+        private BookVerseContent readChapter(int i, Passage chapter) throws BookException {
+            Versification v11n = getVersification(i);
+            Passage ref = VersificationsMapper.instance().map(chapter, v11n);
+
+            List<Content> content = new ArrayList<Content>();
+            if (titles[i] && !ref.isEmpty() && !ref.hasRanges(RestrictionType.CHAPTER)) {
+                // The book only generates titles for a chapter when asked for more
+                Element title = OSISUtil.factory().createGeneratedTitle();
+                title.addContent(ref.getRangeAt(0, RestrictionType.CHAPTER).getName());
+                content.add(title);
+            }
+
+            //iterator takes care of versification differences here...
+            Iterator<Content> iter = books[i].getOsisIterator(ref, true, true);
+            while (iter.hasNext()) {
+                content.add(iter.next());
+            }
+
+            return keyIteratorContentByVerse(v11n, content.iterator());
+        }
+
+        /**
+         * The key mapped to the versification of each book
+         */
+        private Passage[] passages;
+
+        /**
+         * Whether each book generates titles for each chapter
+         */
+        private boolean[] titles;
+
+        /**
+         * Whether differences are shown for each book after the first
+         */
+        private boolean[] showDiffs;
+
+        /**
+         * Whether differences are shown for any book
+         */
+        private boolean doDiffs;
+
+        /**
+         * The row of headers
+         */
+        private Element header;
+
+        /**
+         * The ranges of the first book still to be read, none spanning chapters
+         */
+        private Iterator<VerseRange> ranges;
+
+        /**
+         * The first range of the next chapter, or null when there are no more
+         */
+        private VerseRange nextRange;
+
+        /**
+         * Whether a verse could not be found in any book
+         */
+        private boolean done;
+    }
+
+    /**
+     * Provides the parallel view of the books as SAX events, a chapter at a
+     * time. The events are the same as those of the document.
+     */
+    private final class ParallelSAXEventProvider implements SAXEventProvider {
+        /* (non-Javadoc)
+         * @see org.crosswire.common.xml.SAXEventProvider#provideSAXEvents(org.xml.sax.ContentHandler)
+         */
+        public void provideSAXEvents(ContentHandler handler) throws SAXException {
+            SAXOutputter output = new SAXOutputter(handler);
+            handler.startDocument();
+            handler.startElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV, new AttributesImpl());
+
+            try {
+                ParallelReader reader = new ParallelReader();
+
+                // The table is only there when it has rows
+                List<Element> rows = reader.readRows();
+                while (rows != null && rows.isEmpty()) {
+                    rows = reader.readRows();
+                }
+
+                if (rows != null) {
+                    handler.startElement("", OSISUtil.OSIS_ELEMENT_TABLE, OSISUtil.OSIS_ELEMENT_TABLE, new AttributesImpl());
+                    output.outputFragment(reader.getHeader());
+                    while (rows != null) {
+                        output.outputFragment(rows);
+                        rows = reader.readRows();
+                    }
+                    handler.endElement("", OSISUtil.OSIS_ELEMENT_TABLE, OSISUtil.OSIS_ELEMENT_TABLE);
+                }
+            } catch (BookException ex) {
+                throw new SAXException(ex);
+            } catch (JDOMException ex) {
+                throw new SAXException(ex);
+            }
+
+            handler.endElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV);
+            handler.endDocument();
+        }
+    }
+
     /**
      * A temporary holder for a map that links each verse ID to its set of OSIS elements.
      * Used purely to avoid having too many generic/array notations entangled in the code
@@ -554,4 +850,14 @@ public class BookData implements BookProvider {
     private Element fragment;
 
     private UnAccenter unaccenter;
+
+    /**
+     * Whether the books being compared are read in parallel
+     */
+    private static volatile boolean parallel = true;
+
+    /**
+     * The threads on which books are read in parallel, made when first needed
+     */
+    private static ExecutorService readers;
 }
@@ -0,0 +1,130 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.jsword.book.basic.AbstractPassageBook;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
+import org.crosswire.jsword.passage.Passage;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.VersificationsMapper;
+import org.jdom2.Content;
+import org.jdom2.JDOMException;
+import org.jdom2.output.SAXOutputter;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+/**
+ * A SAXEventProvider that provides the OSIS of a single book as it is read,
+ * without first building the whole document. The events are the same as
+ * those of BookData.getSAXEventProvider(), a div holding the content of
+ * the key.
+ *
+ * <p>
+ * A Bible or Commentary is read a chapter at a time, so at most one chapter
+ * of OSIS is held at once, however long the passage. Other books are read
+ * as a whole.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StreamingSAXEventProvider implements SAXEventProvider {
+    /**
+     * Provide the OSIS for a key from a book.
+     *
+     * @param book the book to read
+     * @param key the key to read
+     * @param allowGenTitles whether to generate titles
+     */
+    public StreamingSAXEventProvider(Book book, Key key, boolean allowGenTitles) {
+        this.book = book;
+        this.key = key;
+        this.allowGenTitles = allowGenTitles;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.common.xml.SAXEventProvider#provideSAXEvents(org.xml.sax.ContentHandler)
+     */
+    public void provideSAXEvents(ContentHandler handler) throws SAXException {
+        SAXOutputter output = new SAXOutputter(handler);
+        handler.startDocument();
+        handler.startElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV, new AttributesImpl());
+
+        try {
+            if (book instanceof AbstractPassageBook) {
+                Passage ref = VersificationsMapper.instance().map(KeyUtil.getPassage(key), ((AbstractPassageBook) book).getVersification());
+
+                // Titles are generated for each chapter when they would be for the whole
+                boolean showTitles = ref.hasRanges(RestrictionType.CHAPTER) || allowGenTitles;
+                Iterator<VerseRange> rit = ref.rangeIterator(RestrictionType.CHAPTER);
+                while (rit.hasNext()) {
+                    output(output, book.getOsisIterator(rit.next(), false, showTitles));
+                }
+            } else {
+                output(output, book.getOsisIterator(key, false, allowGenTitles));
+            }
+        } catch (BookException ex) {
+            throw new SAXException(ex);
+        } catch (JDOMException ex) {
+            throw new SAXException(ex);
+        }
+
+        handler.endElement("", OSISUtil.OSIS_ELEMENT_DIV, OSISUtil.OSIS_ELEMENT_DIV);
+        handler.endDocument();
+    }
+
+    /**
+     * Send the content as SAX events, after which it can be forgotten.
+     *
+     * @param output where to send the content
+     * @param iter the content to send
+     * @throws JDOMException if the content cannot be sent
+     */
+    private void output(SAXOutputter output, Iterator<Content> iter) throws JDOMException {
+        List<Content> chunk = new ArrayList<Content>();
+        while (iter.hasNext()) {
+            chunk.add(iter.next());
+        }
+        output.outputFragment(chunk);
+    }
+
+    /**
+     * The book to read
+     */
+    private Book book;
+
+    /**
+     * The key to read
+     */
+    private Key key;
+
+    /**
+     * Whether to generate titles
+     */
+    private boolean allowGenTitles;
+}
@@ -25,7 +25,6 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
-import java.util.regex.Pattern;
 
 import org.crosswire.common.xml.XMLUtil;
 import org.crosswire.jsword.book.Book;
@@ -59,11 +58,7 @@ public class OSISFilter implements SourceFilter {
         // The following converts simple <div> and </div> to their milestoned versions.
         // Current versions of osis2mod do this already
         // Note: if the div element has attributes, it is not seen.
-        clean = DIV_START.matcher(clean).replaceAll("<div sID=\"xyz\"/>");
-        clean = DIV_END.matcher(clean).replaceAll("<div eID=\"xyz\"/>");
-        clean = CHAPTER_END.matcher(clean).replaceAll("<chapter eID=\"xyz\"/>");
-        clean = SPEECH_START.matcher(clean).replaceAll("<speech sID=\"xyz\"/>");
-        clean = SPEECH_END.matcher(clean).replaceAll("<speech eID=\"xyz\"/>");
+        clean = toMilestones(clean);
 
         // FIXME(dms): this is a major HACK handling a problem with a badly
         // encoded module.
@@ -92,12 +87,19 @@ public class OSISFilter implements SourceFilter {
             }
         }
 
-        try {
-            ele = parse(clean);
-        } catch (JDOMException e) {
-            ex = e;
-        } catch (IOException e) {
-            ex = e;
+        // Most verses are simple enough to be built without a parser
+        if (tokenize) {
+            ele = OSISTokenizer.parse(clean);
+        }
+
+        if (ele == null) {
+            try {
+                ele = parse(clean);
+            } catch (JDOMException e) {
+                ex = e;
+            } catch (IOException e) {
+                ex = e;
+            }
         }
 
         if (ele == null) {
@@ -154,6 +156,66 @@ public class OSISFilter implements SourceFilter {
         return clone;
     }
 
+    /**
+     * Whether verses that are simple enough are built without an XML parser.
+     * 
+     * @return true if verses are built directly
+     */
+    public static boolean isTokenize() {
+        return tokenize;
+    }
+
+    /**
+     * Build the content of verses directly, in one pass, when they are simple
+     * enough, rather than with an XML parser. Verses that are not, or that are
+     * not well formed, are still parsed and repaired as before. The content
+     * is the same either way.
+     * 
+     * @param useTokenizer whether to build verses directly
+     */
+    public static void setTokenize(boolean useTokenizer) {
+        tokenize = useTokenizer;
+    }
+
+    /**
+     * Convert simple div, chapter and speech tags to their milestoned
+     * versions, in one pass over the text.
+     * 
+     * @param text the OSIS of a verse
+     * @return the text with milestones, which is the same text if none were needed
+     */
+    static String toMilestones(String text) {
+        int pos = text.indexOf('<');
+        StringBuilder buf = null;
+        int copied = 0;
+        while (pos >= 0) {
+            int found = -1;
+            for (int i = 0; i < MILESTONE_TAGS.length; i++) {
+                if (text.startsWith(MILESTONE_TAGS[i], pos)) {
+                    found = i;
+                    break;
+                }
+            }
+
+            if (found >= 0) {
+                if (buf == null) {
+                    buf = new StringBuilder(text.length() + 32);
+                }
+                buf.append(text, copied, pos).append(MILESTONES[found]);
+                pos += MILESTONE_TAGS[found].length();
+                copied = pos;
+                pos = text.indexOf('<', pos);
+            } else {
+                pos = text.indexOf('<', pos + 1);
+            }
+        }
+
+        if (buf == null) {
+            return text;
+        }
+        return buf.append(text, copied, text.length()).toString();
+    }
+
     private Element cleanTags(Book book, Key key, String plain) {
         // So just try to strip out all XML looking things
         String shawn = XMLUtil.cleanAllTags(plain);
@@ -210,23 +272,22 @@ public class OSISFilter implements SourceFilter {
     private BlockingQueue<SAXBuilder> saxBuilders = new ArrayBlockingQueue<SAXBuilder>(32);
 
     /**
-     * Pattern to find the start of a div. Used to convert to a milestoned version.
-     */
-    private static final Pattern DIV_START = Pattern.compile("<div>", Pattern.LITERAL);
-    /**
-     * Pattern to find the end of a div. Used to convert to a milestoned version.
+     * The simple tags that are converted to a milestoned version: the start
+     * and end of a div, the end of a chapter and the start and end of a speech.
      */
-    private static final Pattern DIV_END = Pattern.compile("</div>", Pattern.LITERAL);
-    /**
-     * Pattern to find the end of a chapter. Used to convert to a milestoned version.
-     */
-    private static final Pattern CHAPTER_END = Pattern.compile("</chapter>", Pattern.LITERAL);
+    private static final String[] MILESTONE_TAGS = {
+        "<div>", "</div>", "</chapter>", "<speech>", "</speech>",
+    };
+
     /**
-     * Pattern to find the start of a speech. Used to convert to a milestoned version.
+     * The milestones for each of MILESTONE_TAGS.
      */
-    private static final Pattern SPEECH_START = Pattern.compile("<speech>", Pattern.LITERAL);
+    private static final String[] MILESTONES = {
+        "<div sID=\"xyz\"/>", "<div eID=\"xyz\"/>", "<chapter eID=\"xyz\"/>", "<speech sID=\"xyz\"/>", "<speech eID=\"xyz\"/>",
+    };
+
     /**
-     * Pattern to find the end of a speech. Used to convert to a milestoned version.
+     * Whether verses that are simple enough are built without an XML parser.
      */
-    private static final Pattern SPEECH_END = Pattern.compile("</speech>", Pattern.LITERAL);
+    private static volatile boolean tokenize = true;
 }
@@ -0,0 +1,362 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.filter.osis;
+
+import org.jdom2.Attribute;
+import org.jdom2.AttributeType;
+import org.jdom2.Element;
+import org.jdom2.Text;
+
+/**
+ * Builds the content of a verse of OSIS directly, in one pass, without an
+ * XML parser. Only the XML that is usual in a verse is understood: elements,
+ * attributes, text and the predefined and numeric entities. The content is
+ * the same as a SAXBuilder would build.
+ *
+ * <p>
+ * Anything else, such as a comment, CDATA, a namespace, a carriage return or
+ * markup that is not well formed, is left to an XML parser, which is able to
+ * report the problem and to try again after repairs.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class OSISTokenizer {
+    /**
+     * Prevent instantiation
+     */
+    private OSISTokenizer() {
+    }
+
+    /**
+     * Build the content of a verse, held in an element that is to be removed.
+     *
+     * @param text the OSIS of the verse
+     * @return the element holding the content or null if the text is to be
+     *         parsed instead
+     */
+    static Element parse(String text) {
+        if (text.indexOf('\r') >= 0) {
+            // Line ends are normalized by the parser
+            return null;
+        }
+
+        try {
+            return new Builder(text).build();
+        } catch (IllegalArgumentException e) {
+            // JDOM found a bad name or character
+            return null;
+        }
+    }
+
+    /**
+     * The state of building one verse.
+     */
+    private static final class Builder {
+        /**
+         * @param text the OSIS of the verse
+         */
+        Builder(String text) {
+            this.text = text;
+            this.length = text.length();
+            this.buffer = new StringBuilder();
+        }
+
+        /**
+         * @return the element holding the content or null if the text is to
+         *         be parsed instead
+         */
+        Element build() {
+            Element root = new Element(ROOT);
+            Element current = root;
+            while (pos < length) {
+                char c = text.charAt(pos);
+                if (c == '<') {
+                    flush(current);
+                    if (++pos >= length) {
+                        return null;
+                    }
+                    c = text.charAt(pos);
+                    if (c == '/') {
+                        pos++;
+                        String name = readName();
+                        skipSpace();
+                        if (current == root || !name.equals(current.getName()) || !expect('>')) {
+                            return null;
+                        }
+                        current = current.getParentElement();
+                    } else if (c == '!' || c == '?') {
+                        // comments, CDATA and processing instructions
+                        return null;
+                    } else {
+                        Element element = readStartTag();
+                        if (element == null) {
+                            return null;
+                        }
+                        current.addContent(element);
+                        if (!empty) {
+                            current = element;
+                        }
+                    }
+                } else if (c == '&') {
+                    if (!readEntity()) {
+                        return null;
+                    }
+                } else if (c == '>' && pos >= 2 && text.charAt(pos - 1) == ']' && text.charAt(pos - 2) == ']') {
+                    // ]]> is not allowed in text
+                    return null;
+                } else {
+                    buffer.append(c);
+                    pos++;
+                }
+            }
+
+            if (current != root) {
+                return null;
+            }
+            flush(current);
+            return root;
+        }
+
+        /**
+         * Read a start tag, after the &lt;, up to and including its &gt;,
+         * noting whether the element is empty.
+         *
+         * @return the element or null if the tag is not understood
+         */
+        private Element readStartTag() {
+            String name = readName();
+            if (name.length() == 0) {
+                return null;
+            }
+            Element element = new Element(name);
+            empty = false;
+            while (true) {
+                boolean spaced = skipSpace();
+                if (pos >= length) {
+                    return null;
+                }
+                char c = text.charAt(pos);
+                if (c == '>') {
+                    pos++;
+                    return element;
+                }
+                if (c == '/') {
+                    pos++;
+                    empty = true;
+                    return expect('>') ? element : null;
+                }
+
+                // Attributes are separated by white space
+                String attrName = readName();
+                if (!spaced || attrName.length() == 0 || attrName.startsWith("xmlns") || element.getAttribute(attrName) != null) {
+                    return null;
+                }
+                skipSpace();
+                if (!expect('=')) {
+                    return null;
+                }
+                skipSpace();
+                String value = readValue();
+                if (value == null) {
+                    return null;
+                }
+                element.setAttribute(new Attribute(attrName, value, AttributeType.CDATA));
+            }
+        }
+
+        /**
+         * Read a quoted attribute value.
+         *
+         * @return the value or null if it is not understood
+         */
+        private String readValue() {
+            if (pos >= length) {
+                return null;
+            }
+            char quote = text.charAt(pos++);
+            if (quote != '"' && quote != '\'') {
+                return null;
+            }
+            while (pos < length) {
+                char c = text.charAt(pos);
+                if (c == quote) {
+                    pos++;
+                    String value = buffer.toString();
+                    buffer.setLength(0);
+                    return value;
+                }
+                if (c == '<') {
+                    return null;
+                }
+                if (c == '&') {
+                    if (!readEntity()) {
+                        return null;
+                    }
+                } else {
+                    // White space in an attribute is normalized to a space
+                    buffer.append(c == '\t' || c == '\n' ? ' ' : c);
+                    pos++;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Read an entity, from its &amp; to its ;, appending its character.
+         *
+         * @return whether the entity is understood
+         */
+        private boolean readEntity() {
+            int end = text.indexOf(';', pos);
+            if (end < 0 || end - pos > MAX_ENTITY) {
+                return false;
+            }
+            String name = text.substring(pos + 1, end);
+            pos = end + 1;
+            if ("amp".equals(name)) {
+                buffer.append('&');
+            } else if ("lt".equals(name)) {
+                buffer.append('<');
+            } else if ("gt".equals(name)) {
+                buffer.append('>');
+            } else if ("quot".equals(name)) {
+                buffer.append('"');
+            } else if ("apos".equals(name)) {
+                buffer.append('\'');
+            } else if (name.length() > 1 && name.charAt(0) == '#') {
+                int codePoint;
+                try {
+                    if (name.charAt(1) == 'x') {
+                        codePoint = Integer.parseInt(name.substring(2), 16);
+                    } else {
+                        codePoint = Integer.parseInt(name.substring(1));
+                    }
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+                if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT || name.indexOf('-') >= 0 || name.indexOf('+') >= 0) {
+                    return false;
+                }
+                // JDOM checks that it is allowed in XML
+                buffer.appendCodePoint(codePoint);
+            } else {
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Read a name, which JDOM checks when it is used.
+         *
+         * @return the name, which is empty if there is none
+         */
+        private String readName() {
+            int start = pos;
+            while (pos < length) {
+                char c = text.charAt(pos);
+                if (c == '>' || c == '/' || c == '=' || c == '<' || c == '"' || c == '\'' || c == '&' || isSpace(c)) {
+                    break;
+                }
+                pos++;
+            }
+            return text.substring(start, pos);
+        }
+
+        /**
+         * @return whether any white space was skipped
+         */
+        private boolean skipSpace() {
+            int start = pos;
+            while (pos < length && isSpace(text.charAt(pos))) {
+                pos++;
+            }
+            return pos > start;
+        }
+
+        /**
+         * @param c the character that should be next
+         * @return whether it was next, having moved past it
+         */
+        private boolean expect(char c) {
+            if (pos < length && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Add any text that has been read to the element.
+         *
+         * @param element the element being read
+         */
+        private void flush(Element element) {
+            if (buffer.length() > 0) {
+                element.addContent(new Text(buffer.toString()));
+                buffer.setLength(0);
+            }
+        }
+
+        /**
+         * @param c the character
+         * @return whether it is white space in XML, other than a carriage return
+         */
+        private static boolean isSpace(char c) {
+            return c == ' ' || c == '\t' || c == '\n';
+        }
+
+        /**
+         * The OSIS of the verse
+         */
+        private final String text;
+
+        /**
+         * The length of the text
+         */
+        private final int length;
+
+        /**
+         * The text or attribute value being read
+         */
+        private final StringBuilder buffer;
+
+        /**
+         * The position in the text
+         */
+        private int pos;
+
+        /**
+         * Whether the start tag just read was of an empty element
+         */
+        private boolean empty;
+    }
+
+    /**
+     * The name of the element holding the content, as the parser has it
+     */
+    private static final String ROOT = "xxx";
+
+    /**
+     * The longest entity that is understood, from &amp; to ;
+     */
+    private static final int MAX_ENTITY = 10;
+}
@@ -21,6 +21,7 @@ package org.crosswire.jsword.book.sword;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -80,17 +81,43 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
      * @see org.crosswire.jsword.book.sword.Backend#decipher(byte[])
      */
     public void decipher(byte[] data) {
-        String cipherKeyString = getBookMetaData().getProperty(SwordBookMetaData.KEY_CIPHER_KEY);
-        if (cipherKeyString != null) {
-            Sapphire cipherEngine = new Sapphire(cipherKeyString.getBytes());
-            for (int i = 0; i < data.length; i++) {
-                data[i] = cipherEngine.cipher(data[i]);
-            }
+        Sapphire cipherEngine = getCipher();
+        if (cipherEngine != null) {
+            cipherEngine.cipher(data, 0, data.length);
             // destroy any evidence!
             cipherEngine.burn();
         }
     }
 
+    /**
+     * Get a cipher, keyed with the book's cipher key, ready to decipher an
+     * entry. Keying the cipher is slow by design, so it is done once for the
+     * book and a copy is given out for each entry. The key is encoded in the
+     * book's character set, as it was when read from the conf.
+     * 
+     * @return the cipher, which the caller should burn when done, or null if the book is not enciphered
+     */
+    protected Sapphire getCipher() {
+        String cipherKeyString = getBookMetaData().getProperty(SwordBookMetaData.KEY_CIPHER_KEY);
+        if (cipherKeyString == null) {
+            return null;
+        }
+
+        // The book may have been unlocked with a new key since the cipher was keyed.
+        KeyedCipher keyed = cipher;
+        if (keyed == null || !keyed.key.equals(cipherKeyString)) {
+            byte[] cipherKeyBytes = null;
+            try {
+                cipherKeyBytes = cipherKeyString.getBytes(getBookMetaData().getBookCharset());
+            } catch (UnsupportedEncodingException e) {
+                cipherKeyBytes = cipherKeyString.getBytes();
+            }
+            keyed = new KeyedCipher(cipherKeyString, new Sapphire(cipherKeyBytes));
+            cipher = keyed;
+        }
+        return keyed.engine.clone();
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.Backend#encipher(byte[])
      */
@@ -246,18 +273,23 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
             VerseRange range = rit.next();
             processor.preRange(range, content);
 
-            // FIXME(CJB): can this now be optimized since we can calculate
-            // the buffer size of what to read?
+            // Let the backend read the range as a whole
+            String[] rawTexts;
+            try {
+                rawTexts = readRawRange(openFileState, range);
+            } catch (IOException e) {
+                // Salvage what can be read
+                LOGGER.debug(e.getMessage(), e);
+                rawTexts = readRawVerses(openFileState, range);
+            }
+
             // now iterate through all verses in range
+            int i = 0;
             for (Key verseInRange : range) {
                 currentVerse = KeyUtil.getVerse(verseInRange);
-                try {
-                    String rawText = readRawContent(openFileState, currentVerse);
+                String rawText = rawTexts[i++];
+                if (rawText != null) {
                     processor.postVerse(verseInRange, content, rawText);
-                } catch (IOException e) {
-                    //some versifications have more verses than modules contain - so can't throw
-                    //an error here...
-                    LOGGER.debug(e.getMessage(), e);
                 }
             }
         }
@@ -265,6 +297,37 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
         return currentVerse;
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.book.sword.StatefulFileBackedBackend#readRawRange(org.crosswire.jsword.book.sword.state.OpenFileState, org.crosswire.jsword.passage.VerseRange)
+     */
+    public String[] readRawRange(T state, VerseRange range) throws BookException, IOException {
+        return readRawVerses(state, range);
+    }
+
+    /**
+     * Read the raw text of every verse in a range, one verse at a time.
+     *
+     * @param state the open file state, from which we read things
+     * @param range the verses that are sought
+     * @return the raw text of each verse, null for those that could not be read
+     * @throws BookException a book exception if we failed to read the book
+     */
+    protected String[] readRawVerses(T state, VerseRange range) throws BookException {
+        final String[] rawTexts = new String[range.getCardinality()];
+        int i = 0;
+        for (Key verseInRange : range) {
+            try {
+                rawTexts[i] = readRawContent(state, verseInRange);
+            } catch (IOException e) {
+                //some versifications have more verses than modules contain - so can't throw
+                //an error here...
+                LOGGER.debug(e.getMessage(), e);
+            }
+            i++;
+        }
+        return rawTexts;
+    }
+
     /**
      * If non-null, currentKey is used to throw the exception, other, masterKey
      * is used instead, which will be more general.
@@ -312,6 +375,24 @@ public abstract class AbstractBackend<T extends OpenFileState> implements Statef
         return false;
     }
 
+    /**
+     * A cipher keyed with the key it was keyed with.
+     */
+    private static final class KeyedCipher {
+        KeyedCipher(String key, Sapphire engine) {
+            this.key = key;
+            this.engine = engine;
+        }
+
+        final String key;
+        final Sapphire engine;
+    }
+
     private SwordBookMetaData bmd;
+
+    /**
+     * The book's cipher, keyed on first use and copied for each entry.
+     */
+    private transient volatile KeyedCipher cipher;
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractBackend.class);
 }
@@ -156,6 +156,21 @@ public class DataEntry {
         return SwordUtil.decode(name, data, textStart, data.length - textStart, charset).trim();
     }
 
+    /**
+     * Get the raw text from this entry.
+     * 
+     * @param cipherEngine
+     *            the cipher, if any, ready to (un)lock the text
+     * @return the raw text
+     */
+    public String getRawText(Sapphire cipherEngine) {
+        int textStart = keyEnd + 1;
+        if (cipherEngine != null) {
+            cipherEngine.cipher(data, textStart, data.length - textStart);
+        }
+        return SwordUtil.decode(name, data, textStart, data.length - textStart, charset).trim();
+    }
+
     /**
      * Get the block start and entry position.
      * 
@@ -193,9 +208,7 @@ public class DataEntry {
     public void cipher(byte[] cipherKey, int offset) {
         if (cipherKey != null && cipherKey.length > 0) {
             Sapphire cipherEngine = new Sapphire(cipherKey);
-            for (int i = offset; i < data.length; i++) {
-                data[i] = cipherEngine.cipher(data[i]);
-            }
+            cipherEngine.cipher(data, offset, data.length - offset);
             // destroy any evidence!
             cipherEngine.burn();
         }
@@ -20,8 +20,6 @@
 package org.crosswire.jsword.book.sword;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
@@ -69,20 +67,15 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
     @Override
     public int getRawTextLength(Key key) {
         try {
-            TreeNode node = find(key);
-
-            if (node == null) {
-                return 0;
-            }
-
-            byte[] userData = node.getUserData();
+            TreeKeyDirectory tree = getDirectory();
+            int node = tree.find(key);
 
             // Some entries may be empty.
-            if (userData.length == 8) {
-                return SwordUtil.decodeLittleEndian32(userData, 4);
+            if (node == -1 || tree.getDataSize(node) == -1) {
+                return 0;
             }
 
-            return 0;
+            return tree.getDataSize(node);
 
         } catch (IOException e) {
             return 0;
@@ -93,9 +86,10 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
      * @see org.crosswire.jsword.book.sword.StatefulFileBackedBackend#readRawContent(org.crosswire.jsword.book.sword.state.OpenFileState, org.crosswire.jsword.passage.Key)
      */
     public String readRawContent(GenBookBackendState state, Key key) throws IOException, BookException {
-        TreeNode node = find(key);
+        TreeKeyDirectory tree = getDirectory();
+        int node = tree.find(key);
 
-        if (node == null) {
+        if (node == -1) {
             // TRANSLATOR: Error condition: Indicates that something could
             // not be found in the book.
             // {0} is a placeholder for the unknown key.
@@ -103,13 +97,9 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
             throw new BookException(JSMsg.gettext("No entry for '{0}' in {1}.", key.getName(), getBookMetaData().getInitials()));
         }
 
-        byte[] userData = node.getUserData();
-
         // Some entries may be empty.
-        if (userData.length == 8) {
-            int start = SwordUtil.decodeLittleEndian32(userData, 0);
-            int size = SwordUtil.decodeLittleEndian32(userData, 4);
-            byte[] data = SwordUtil.readRAF(state.getBdtRaf(), start, size);
+        if (tree.getDataSize(node) != -1) {
+            byte[] data = SwordUtil.readRAF(state.getBdtRaf(), tree.getDataStart(node), tree.getDataSize(node));
             decipher(data);
             return SwordUtil.decode(key.getName(), data, getBookMetaData().getBookCharset());
         }
@@ -118,52 +108,23 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
     }
 
     /**
-     * Given a Key, find the TreeNode for it.
+     * Get the tree of this book, reading it on first use.
      * 
-     * @param key
-     *            The key to use for searching
-     * @return the found node, null otherwise
+     * @return the tree
      * @throws IOException
      */
-    private TreeNode find(Key key) throws IOException {
-        // We need to search from the root, so navigate to the root, saving as
-        // we go.
-        List<String> path = new ArrayList<String>();
-        for (Key parentKey = key; parentKey != null && parentKey.getName().length() > 0; parentKey = parentKey.getParent()) {
-            path.add(parentKey.getName());
-        }
-
-        TreeNode node = index.getRoot();
-
-        node = index.getFirstChild(node);
-
-        for (int i = path.size() - 1; i >= 0; i--) {
-            String name = path.get(i);
-
-            // Search among the siblings for the current level.
-            while (node != null && !name.equals(node.getName())) {
-                if (node.hasNextSibling()) {
-                    node = index.getNextSibling(node);
-                } else {
-                    log.error("Could not find {}", name);
-                    node = null;
+    private TreeKeyDirectory getDirectory() throws IOException {
+        TreeKeyDirectory result = directory;
+        if (result == null) {
+            synchronized (this) {
+                result = directory;
+                if (result == null) {
+                    result = index.readDirectory();
+                    directory = result;
                 }
             }
-
-            // If we have found it but have not exhausted the path
-            // we need to get more
-            if (node != null && name.equals(node.getName()) && i > 0) {
-                node = index.getFirstChild(node);
-            }
-        }
-
-        // At this point we have either found it, returning it or have not,
-        // returning null
-        if (node != null && node.getName().equals(key.getName())) {
-            return node;
         }
-
-        return null;
+        return result;
     }
 
     @Override
@@ -172,9 +133,11 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
         Key reply = new DefaultKeyList(null, bmd.getName());
 
         try {
-            TreeNode node = index.getRoot();
-            reply = new TreeKey(node.getName(), null);
-            doReadIndex(node, reply);
+            TreeKeyDirectory tree = getDirectory();
+            if (tree.size() > 0) {
+                reply = new TreeKey(tree.getName(0), null);
+                doReadIndex(tree, 0, reply);
+            }
         } catch (IOException e) {
             log.error("Could not get read GenBook index", e);
         }
@@ -199,28 +162,19 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
     /**
      * A helper function to recursively read the entire tree.
      * 
+     * @param tree
+     *            the tree of the book
      * @param parentNode
      *            the current node whose children are being sought
      * @param parentKey
-     * @throws IOException
      */
-    private void doReadIndex(TreeNode parentNode, Key parentKey) throws IOException {
-        TreeNode currentNode = parentNode;
-        if (currentNode.hasChildren()) {
-            TreeNode childNode = index.getFirstChild(currentNode);
-            do {
-                TreeKey childKey = new TreeKey(childNode.getName(), parentKey);
-                parentKey.addAll(childKey);
-
-                // Build the tree as deep as possible
-                doReadIndex(childNode, childKey);
-
-                if (!childNode.hasNextSibling()) {
-                    break;
-                }
+    private void doReadIndex(TreeKeyDirectory tree, int parentNode, Key parentKey) {
+        for (int childNode = tree.getFirstChild(parentNode); childNode != -1; childNode = tree.getNextSibling(childNode)) {
+            TreeKey childKey = new TreeKey(tree.getName(childNode), parentKey);
+            parentKey.addAll(childKey);
 
-                childNode = index.getNextSibling(childNode);
-            } while (true);
+            // Build the tree as deep as possible
+            doReadIndex(tree, childNode, childKey);
         }
     }
 
@@ -229,6 +183,11 @@ public class GenBookBackend extends AbstractBackend<GenBookBackendState> {
      */
     private final TreeKeyIndex index;
 
+    /**
+     * The tree of the book, read from the index on first use
+     */
+    private transient volatile TreeKeyDirectory directory;
+
     /**
      * The log stream
      */
@@ -0,0 +1,170 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The keys of a dictionary held in memory, so that a key can be looked up
+ * without reading the index and data files. The keys are kept in the order
+ * of the index, already normalized for searching, as one array of characters
+ * with the start of each key in another array. Index entries without a key
+ * are marked as missing.
+ *
+ * <p>
+ * For books with case sensitive keys, a map from each key to the first entry
+ * with that key is kept as well.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class KeyDirectory {
+    /**
+     * Build a directory from the keys of a book.
+     *
+     * @param keys
+     *            the normalized key of each entry, in index order, with null
+     *            for an entry without a key
+     * @param caseSensitive
+     *            whether to build the map of keys to entries
+     */
+    KeyDirectory(String[] keys, boolean caseSensitive) {
+        int length = 0;
+        for (String key : keys) {
+            if (key != null) {
+                length += key.length();
+            }
+        }
+
+        chars = new char[length];
+        starts = new int[keys.length + 1];
+        missing = new BitSet(keys.length);
+        int start = 0;
+        for (int i = 0; i < keys.length; i++) {
+            starts[i] = start;
+            String key = keys[i];
+            if (key == null) {
+                missing.set(i);
+            } else {
+                key.getChars(0, key.length(), chars, start);
+                start += key.length();
+            }
+        }
+        starts[keys.length] = start;
+
+        if (caseSensitive) {
+            entries = new HashMap<String, Integer>(keys.length * 4 / 3 + 1);
+            // Later entries do not replace earlier ones
+            for (int i = keys.length - 1; i >= 0; i--) {
+                if (keys[i] != null) {
+                    entries.put(keys[i], Integer.valueOf(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries in the index
+     */
+    int size() {
+        return starts.length - 1;
+    }
+
+    /**
+     * @param index
+     *            the entry in the index
+     * @return whether the entry has no key
+     */
+    boolean isMissing(int index) {
+        return missing.get(index);
+    }
+
+    /**
+     * @param index
+     *            the entry in the index
+     * @return the normalized key of the entry
+     */
+    String getKey(int index) {
+        return new String(chars, starts[index], starts[index + 1] - starts[index]);
+    }
+
+    /**
+     * Compare the key of an entry to another, as String.compareTo does, but
+     * without creating a String for the entry.
+     *
+     * @param index
+     *            the entry in the index
+     * @param key
+     *            the normalized key to compare to
+     * @return less than, equal to or greater than 0 as the entry's key is
+     *         less than, equal to or greater than the other
+     */
+    int compare(int index, String key) {
+        int start = starts[index];
+        int length = starts[index + 1] - start;
+        int common = Math.min(length, key.length());
+        for (int i = 0; i < common; i++) {
+            int cmp = chars[start + i] - key.charAt(i);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length();
+    }
+
+    /**
+     * Find the first entry having exactly this key. This is only possible
+     * for books with case sensitive keys.
+     *
+     * @param key
+     *            the key to find
+     * @return the entry or -1 if there is none
+     */
+    int find(String key) {
+        if (entries == null) {
+            return -1;
+        }
+        Integer index = entries.get(key);
+        return index == null ? -1 : index.intValue();
+    }
+
+    /**
+     * The characters of all the keys
+     */
+    private final char[] chars;
+
+    /**
+     * Where each key starts in chars, with one more for the end of the last
+     */
+    private final int[] starts;
+
+    /**
+     * The entries that have no key
+     */
+    private final BitSet missing;
+
+    /**
+     * The first entry for each key, for books with case sensitive keys
+     */
+    private Map<String, Integer> entries;
+}
@@ -21,6 +21,7 @@ package org.crosswire.jsword.book.sword;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.Arrays;
 
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
@@ -32,6 +33,7 @@ import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.RocketPassage;
 import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.Testament;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.system.Versifications;
@@ -58,10 +60,19 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
         super(sbmd);
         this.datasize = datasize;
         this.entrysize = OFFSETSIZE + datasize;
+        // The versification of a book does not change, so look it up once.
+        this.v11n = Versifications.instance().getVersification(sbmd.getProperty(BookMetaData.KEY_VERSIFICATION));
 
         assert datasize == 2 || datasize == 4;
     }
 
+    /**
+     * @return the versification of the book
+     */
+    protected Versification getVersification() {
+        return v11n;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.AbstractBackend#contains(org.crosswire.jsword.passage.Key)
      */
@@ -75,8 +86,6 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
      */
     @Override
     public int getRawTextLength(Key key) {
-        String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        Versification v11n = Versifications.instance().getVersification(v11nName);
         Verse verse = KeyUtil.getVerse(key);
 
         RawBackendState initState = null;
@@ -110,9 +119,6 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
         try {
             rafBook = initState();
 
-            String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-            Versification v11n = Versifications.instance().getVersification(v11nName);
-
             Testament[] testaments = new Testament[] {
                     Testament.OLD, Testament.NEW
             };
@@ -183,8 +189,6 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
      * @see org.crosswire.jsword.book.sword.AbstractBackend#getRawText(org.crosswire.jsword.passage.Key)
      */
     public String readRawContent(RawBackendState state, Key key) throws IOException {
-        String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        Versification v11n = Versifications.instance().getVersification(v11nName);
         Verse verse = KeyUtil.getVerse(key);
 
         int index = verse.getOrdinal();
@@ -202,6 +206,94 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
         }
     }
 
+    /**
+     * Read the index entries for the verses of a range once for each
+     * testament that it spans, rather than once for each verse. When the
+     * verses are stored together, as they nearly always are, their text is
+     * read at once too.
+     * 
+     * @see org.crosswire.jsword.book.sword.AbstractBackend#readRawRange(org.crosswire.jsword.book.sword.state.OpenFileState, org.crosswire.jsword.passage.VerseRange)
+     */
+    @Override
+    public String[] readRawRange(RawBackendState state, VerseRange range) throws BookException, IOException {
+        String charset = getBookMetaData().getBookCharset();
+        int start = range.getStart().getOrdinal();
+        int end = range.getEnd().getOrdinal();
+        int otEnd = v11n.getCount(Testament.OLD) - 1;
+        String[] rawTexts = new String[end - start + 1];
+        Arrays.fill(rawTexts, "");
+
+        int ordinal = start;
+        while (ordinal <= end) {
+            // Testament ordinals are only contiguous within a testament.
+            Testament testament = v11n.getTestament(ordinal);
+            int last = testament == Testament.OLD ? Math.min(end, otEnd) : end;
+            int first = ordinal;
+            ordinal = last + 1;
+
+            RandomAccessFile idxRaf = state.getIdxRaf(testament);
+            RandomAccessFile txtRaf = state.getTextRaf(testament);
+
+            // It may be that this is a single testament Bible
+            if (idxRaf == null) {
+                continue;
+            }
+
+            int count = last - first + 1;
+            byte[] entries = SwordUtil.readRAF(idxRaf, 1L * v11n.getTestamentOrdinal(first) * entrysize, count * entrysize);
+            count = entries.length / entrysize;
+
+            // Find the extent of the text of the verses
+            long textStart = Long.MAX_VALUE;
+            long textEnd = 0;
+            long textSize = 0;
+            for (int i = 0; i < count; i++) {
+                int size = getEntrySize(entries, i * entrysize);
+                if (size > 0) {
+                    long offset = SwordUtil.decodeLittleEndian32(entries, i * entrysize) & 0xFFFFFFFFL;
+                    textStart = Math.min(textStart, offset);
+                    textEnd = Math.max(textEnd, offset + size);
+                    textSize += size;
+                }
+            }
+
+            // Only read the text in one go when there is little in between the verses.
+            byte[] text = null;
+            if (textSize > 0 && textEnd - textStart <= 2 * textSize) {
+                text = SwordUtil.readRAF(txtRaf, textStart, (int) (textEnd - textStart));
+            }
+
+            for (int i = 0; i < count; i++) {
+                int size = getEntrySize(entries, i * entrysize);
+                if (size == 0) {
+                    continue;
+                }
+
+                String name = v11n.decodeOrdinal(first + i).getName();
+                if (size < 0) {
+                    log.error("In {}: Verse {} has a bad index size of {}", getBookMetaData().getInitials(), name, Integer.toString(size));
+                    continue;
+                }
+
+                long offset = SwordUtil.decodeLittleEndian32(entries, i * entrysize) & 0xFFFFFFFFL;
+                byte[] data;
+                if (text != null && offset + size - textStart <= text.length) {
+                    int from = (int) (offset - textStart);
+                    data = Arrays.copyOfRange(text, from, from + size);
+                } else {
+                    data = SwordUtil.readRAF(txtRaf, offset, size);
+                }
+
+                // Each verse is enciphered separately
+                decipher(data);
+
+                rawTexts[first + i - start] = SwordUtil.decode(name, data, charset);
+            }
+        }
+
+        return rawTexts;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.AbstractBackend#setRawText(org.crosswire.jsword.passage.Key, java.lang.String)
      */
@@ -260,6 +352,20 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
         return new DataIndex(entryOffset, entrySize);
     }
 
+    /**
+     * Decode the size from an index entry.
+     * 
+     * @param entries the index entries
+     * @param entryStart the position of the entry in entries
+     * @return the size of the entry
+     */
+    private int getEntrySize(byte[] entries, int entryStart) {
+        if (datasize == 2) {
+            return SwordUtil.decodeLittleEndian16(entries, entryStart + OFFSETSIZE);
+        }
+        return SwordUtil.decodeLittleEndian32(entries, entryStart + OFFSETSIZE);
+    }
+
     /**
      * Get the text for an indexed entry in the book.
      * @param state 
@@ -314,6 +420,11 @@ public class RawBackend<T extends RawBackendState> extends AbstractBackend<RawBa
      */
     protected final int entrysize;
 
+    /**
+     * The versification of the book
+     */
+    private final Versification v11n;
+
     /**
      * How many bytes in the offset pointers in the index
      */
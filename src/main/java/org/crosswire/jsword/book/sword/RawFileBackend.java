@@ -36,6 +36,7 @@ import org.crosswire.jsword.book.sword.state.RawFileBackendState;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.Testament;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.system.Versifications;
@@ -76,6 +77,16 @@ public class RawFileBackend extends RawBackend<RawFileBackendState> {
         return OpenFileStateManager.instance().getRawFileBackendState(getBookMetaData());
     }
 
+    /**
+     * Each verse may be in a file of its own, so read the range verse by verse.
+     * 
+     * @see org.crosswire.jsword.book.sword.RawBackend#readRawRange(org.crosswire.jsword.book.sword.state.RawBackendState, org.crosswire.jsword.passage.VerseRange)
+     */
+    @Override
+    public String[] readRawRange(RawBackendState state, VerseRange range) throws BookException {
+        return readRawVerses(state, range);
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.RawBackend#getEntry(java.lang.String, org.crosswire.jsword.versification.Testament, long)
      */
@@ -113,8 +124,7 @@ public class RawFileBackend extends RawBackend<RawFileBackendState> {
      */
     public void setRawText(RawFileBackendState state, Key key, String text) throws BookException, IOException {
 
-        String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        Versification v11n = Versifications.instance().getVersification(v11nName);
+        Versification v11n = getVersification();
         Verse verse = KeyUtil.getVerse(key);
         int index = verse.getOrdinal();
         Testament testament = v11n.getTestament(index);
@@ -141,8 +151,7 @@ public class RawFileBackend extends RawBackend<RawFileBackendState> {
     }
 
     public void setAliasKey(RawFileBackendState state, Key alias, Key source) throws IOException {
-        String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        Versification v11n = Versifications.instance().getVersification(v11nName);
+        Versification v11n = getVersification();
         Verse aliasVerse = KeyUtil.getVerse(alias);
         Verse sourceVerse = KeyUtil.getVerse(source);
         int aliasIndex = aliasVerse.getOrdinal();
@@ -311,8 +320,7 @@ public class RawFileBackend extends RawBackend<RawFileBackendState> {
 
     private void prepopulateIndexFiles(RawFileBackendState state) throws IOException {
 
-        String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        Versification v11n = Versifications.instance().getVersification(v11nName);
+        Versification v11n = getVersification();
         int otCount = v11n.getCount(Testament.OLD);
         int ntCount = v11n.getCount(Testament.NEW) + 1;
         BufferedOutputStream otIdxBos = new BufferedOutputStream(new FileOutputStream(state.getIdxFile(Testament.OLD), false));
@@ -21,7 +21,6 @@ package org.crosswire.jsword.book.sword;
 
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.UnsupportedEncodingException;
 import java.text.DecimalFormat;
 import java.text.MessageFormat;
 import java.util.Calendar;
@@ -31,6 +30,7 @@ import java.util.Locale;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.crosswire.common.crypt.Sapphire;
 import org.crosswire.common.icu.DateFormatter;
 import org.crosswire.common.util.StringUtil;
 import org.crosswire.jsword.JSMsg;
@@ -95,16 +95,13 @@ public class RawLDBackend<T extends RawLDBackendState> extends AbstractKeyBacken
     }
 
     protected String getRawText(DataEntry entry) {
-        String cipherKeyString = getBookMetaData().getProperty(SwordBookMetaData.KEY_CIPHER_KEY);
-        byte[] cipherKeyBytes = null;
-        if (cipherKeyString != null) {
-            try {
-                cipherKeyBytes = cipherKeyString.getBytes(getBookMetaData().getBookCharset());
-            } catch (UnsupportedEncodingException e) {
-                cipherKeyBytes = cipherKeyString.getBytes();
-            }
+        Sapphire cipherEngine = getCipher();
+        String rawText = entry.getRawText(cipherEngine);
+        if (cipherEngine != null) {
+            // destroy any evidence!
+            cipherEngine.burn();
         }
-        return entry.getRawText(cipherKeyBytes);
+        return rawText;
     }
 
     /* (non-Javadoc)
@@ -269,6 +266,10 @@ public class RawLDBackend<T extends RawLDBackendState> extends AbstractKeyBacken
      * @throws IOException
      */
     private int search(RawLDBackendState state, String key) throws IOException {
+        if (keyDirectory) {
+            return search(getKeyDirectory(state), key);
+        }
+
         // Note: In some dictionaries, the first element is out of order and
         // represents the title of the work.
         // So, do the bin search from 1 to end and if not found, check the
@@ -344,6 +345,114 @@ public class RawLDBackend<T extends RawLDBackendState> extends AbstractKeyBacken
         return -(high + 1);
     }
 
+    /**
+     * Find a matching entry in the key directory, as
+     * {@link #search(RawLDBackendState, String)} does on disk.
+     * 
+     * @param directory the keys of this book
+     * @param key the key to find
+     * @return the match
+     */
+    private int search(KeyDirectory directory, String key) {
+        int total = directory.size();
+        int low = 0;
+        int high = total;
+
+        String suppliedKey = null;
+        while (high - low > 1) {
+            // use >>> to keep mid always in range
+            int mid = (low + high) >>> 1;
+
+            // Skip bogus index entries, toward the longer end
+            int step = high - mid > mid - low ? 1 : -1;
+            while (mid > low && mid < high && directory.isMissing(mid)) {
+                mid += step;
+            }
+            if (mid <= low || mid >= high) {
+                break;
+            }
+
+            // Normalize the key based upon the first entry looked at.
+            if (suppliedKey == null) {
+                suppliedKey = normalizeForSearch(external2internal(key, directory.getKey(mid)));
+            }
+            int cmp = directory.compare(mid, suppliedKey);
+            if (cmp < 0) {
+                low = mid;
+            } else if (cmp > 0) {
+                high = mid;
+            } else {
+                return mid;
+            }
+        }
+
+        if (total == 0) {
+            return -1;
+        }
+
+        // Many dictionaries have an introductory entry, so check it for a match.
+        if (suppliedKey == null) {
+            suppliedKey = normalizeForSearch(external2internal(key, directory.getKey(0)));
+        }
+        if (directory.compare(0, suppliedKey) == 0) {
+            return 0;
+        }
+
+        // It wasn't found so see if it is present if case sensitive keys are used.
+        int match = directory.find(key);
+        if (match >= 0) {
+            return match;
+        }
+
+        return -(high + 1);
+    }
+
+    /**
+     * Get the key directory of this book, reading it on first use.
+     * 
+     * @param state the state of the book from which to read
+     * @return the key directory
+     * @throws IOException
+     */
+    private KeyDirectory getKeyDirectory(RawLDBackendState state) throws IOException {
+        KeyDirectory result = directory;
+        if (result == null) {
+            synchronized (this) {
+                result = directory;
+                if (result == null) {
+                    result = readKeyDirectory(state);
+                    directory = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read the key of every entry, in one pass through the index.
+     * 
+     * @param state the state of the book from which to read
+     * @return the key directory
+     * @throws IOException
+     */
+    private KeyDirectory readKeyDirectory(RawLDBackendState state) throws IOException {
+        int total = (int) (state.getIdxRaf().length() / entrysize);
+        byte[] buffer = SwordUtil.readRAF(state.getIdxRaf(), 0, total * entrysize);
+        String[] keys = new String[total];
+        for (int i = 0; i < total; i++) {
+            int entryOffset = SwordUtil.decodeLittleEndian32(buffer, i * entrysize);
+            int entrySize = datasize == 2
+                    ? SwordUtil.decodeLittleEndian16(buffer, i * entrysize + OFFSETSIZE)
+                    : SwordUtil.decodeLittleEndian32(buffer, i * entrysize + OFFSETSIZE);
+            if (entrySize > 0) {
+                keys[i] = normalizeForSearch(getEntry(state, getBookMetaData().getInitials(), new DataIndex(entryOffset, entrySize)).getKey());
+            }
+        }
+
+        String caseSensitive = getBookMetaData().getProperty(SwordBookMetaData.KEY_CASE_SENSITIVE_KEYS);
+        return new KeyDirectory(keys, "true".equalsIgnoreCase(caseSensitive));
+    }
+
     /**
      * Convert the supplied key to something that can be understood by the module.
      * Use firstKey to determine the pattern for Strong's numbers.
@@ -510,6 +619,28 @@ public class RawLDBackend<T extends RawLDBackendState> extends AbstractKeyBacken
         return new DecimalFormat("0000");
     }
 
+    /**
+     * Whether dictionaries look up keys in a directory held in memory.
+     * 
+     * @return true if key directories are in use
+     */
+    public static boolean isKeyDirectory() {
+        return keyDirectory;
+    }
+
+    /**
+     * Look up the keys of dictionaries in a directory held in memory, rather
+     * than by a binary search of the index and data files. The directory of a
+     * book is read in one pass on its first lookup and then costs no disk
+     * access. For books with case sensitive keys, a key that is out of order
+     * is found by a hash lookup rather than a linear search of the files.
+     * 
+     * @param useDirectory whether to use key directories
+     */
+    public static void setKeyDirectory(boolean useDirectory) {
+        keyDirectory = useDirectory;
+    }
+
     /**
      * Serialization support.
      * 
@@ -627,6 +758,16 @@ public class RawLDBackend<T extends RawLDBackendState> extends AbstractKeyBacken
      */
     private static final Pattern DEVOTION_PATTERN = Pattern.compile("^\\d\\d\\.\\d\\d$");
 
+    /**
+     * Whether keys are looked up in a directory held in memory.
+     */
+    private static volatile boolean keyDirectory;
+
+    /**
+     * The keys of this book, read on first use.
+     */
+    private transient volatile KeyDirectory directory;
+
     /**
      * The number of bytes in the size count in the index
      */
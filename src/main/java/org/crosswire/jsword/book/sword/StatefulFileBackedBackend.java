@@ -24,6 +24,7 @@ import java.io.IOException;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.sword.state.OpenFileState;
 import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.VerseRange;
 
 /**
  * Indicates that there is a stateful backend
@@ -56,6 +57,23 @@ public interface StatefulFileBackedBackend<T extends OpenFileState> {
      */
      String readRawContent(T state, Key key) throws BookException, IOException;
 
+    /**
+     * Read the raw text of every verse in a range. Backends that can do so
+     * should read the index entries for the range together, rather than
+     * verse by verse.
+     * 
+     * @param state
+     *            the state object containing all the open random access files
+     * @param range
+     *            the verses that are sought
+     * @return the raw text of each verse in the range, in order. The text of
+     *         a verse that could not be read is null.
+     * @throws BookException 
+     * @throws IOException
+     *             something went wrong when reading the range
+     */
+     String[] readRawRange(T state, VerseRange range) throws BookException, IOException;
+
      /**
       * Set the text allotted for the given verse
       * 
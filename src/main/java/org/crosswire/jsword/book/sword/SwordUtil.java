@@ -23,6 +23,7 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
+import java.util.Arrays;
 
 import org.crosswire.common.util.NetUtil;
 import org.crosswire.jsword.JSOtherMsg;
@@ -159,24 +160,36 @@ public final class SwordUtil {
      *             on error
      */
     protected static byte[] readUntilRAF(RandomAccessFile raf, byte stopByte) throws IOException {
-        // The strategy used here is to read the file twice.
-        // Once to determine how much to read and then getting the actual data.
-        // It may be more efficient to incrementally build up a byte buffer.
-        // Note: that growing a static array by 1 byte at a time is O(n**2)
-        // This is negligible when the n is small, but prohibitive otherwise.
+        // Read ahead a window at a time, looking for the stop byte in what was
+        // read. When it is found, the file is left just past it, as though
+        // it had been read a byte at a time.
         long offset = raf.getFilePointer();
-        int size = 0;
-
-        int nextByte = -1;
-        do {
-            nextByte = raf.read();
+        byte[] window = READ_AHEAD_WINDOW.get();
+        byte[] data = new byte[0];
+        while (true) {
+            int count = raf.read(window);
+            if (count == -1) {
+                log.error("Reached the end before the stop byte. offset={} size={}", Long.toString(offset), Integer.toString(data.length));
+                return data;
+            }
 
-            size++;
-        } while (nextByte != -1 && nextByte != stopByte);
+            int used = 0;
+            while (used < count && window[used] != stopByte) {
+                used++;
+            }
+            boolean found = used < count;
+            if (found) {
+                used++;
+            }
 
-        // Note: we allow for nextByte == -1 to be included in size
-        // so that readRAF will report EOF errors
-        return readRAF(raf, offset, size);
+            byte[] more = Arrays.copyOf(data, data.length + used);
+            System.arraycopy(window, 0, more, data.length, used);
+            data = more;
+            if (found) {
+                raf.seek(offset + data.length);
+                return data;
+            }
+        }
     }
 
     /**
@@ -397,6 +410,21 @@ public final class SwordUtil {
         return loc;
     }
 
+    /**
+     * How much to read at once when looking for a stop byte
+     */
+    private static final int READ_AHEAD_SIZE = 256;
+
+    /**
+     * The window in which each thread looks for a stop byte, kept for reuse
+     */
+    private static final ThreadLocal<byte[]> READ_AHEAD_WINDOW = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[READ_AHEAD_SIZE];
+        }
+    };
+
     /**
      * The log stream
      */
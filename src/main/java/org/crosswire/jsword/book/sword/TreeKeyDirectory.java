@@ -0,0 +1,213 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * The tree of a General Book held in memory, so that an entry can be found by
+ * its path without walking the index and data files a node at a time. The
+ * nodes are kept in the order of the index, with the first being the root.
+ * Each node knows its first child, its next sibling and where its text is in
+ * the book.
+ *
+ * <p>
+ * The full path of each node is mapped to the node. Where siblings share a
+ * name, the first of them is the one found.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class TreeKeyDirectory {
+    /**
+     * Build a directory from the nodes of a book.
+     *
+     * @param names
+     *            the name of each node, in index order, with null for a
+     *            node that could not be read
+     * @param firstChild
+     *            the first child of each node, or -1
+     * @param nextSibling
+     *            the next sibling of each node, or -1
+     * @param dataStart
+     *            where the text of each node starts
+     * @param dataSize
+     *            the size of the text of each node, or -1 if it has none
+     */
+    TreeKeyDirectory(String[] names, int[] firstChild, int[] nextSibling, int[] dataStart, int[] dataSize) {
+        this.names = names;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.dataStart = dataStart;
+        this.dataSize = dataSize;
+        paths = new HashMap<String, Integer>(names.length * 4 / 3 + 1);
+        if (names.length > 0 && names[0] != null) {
+            addPaths(0, "", new BitSet(names.length));
+        }
+    }
+
+    /**
+     * @return the number of nodes in the index
+     */
+    int size() {
+        return names.length;
+    }
+
+    /**
+     * Find the node for a key, given by its path from the root.
+     *
+     * @param key
+     *            the key to find
+     * @return the node or -1 if there is none
+     */
+    int find(Key key) {
+        // The path is built from the key up, as the root has no name
+        String path = "";
+        for (Key parentKey = key; parentKey != null && parentKey.getName().length() > 0; parentKey = parentKey.getParent()) {
+            path = path.length() == 0 ? parentKey.getName() : parentKey.getName() + SEPARATOR + path;
+        }
+        Integer node = paths.get(path);
+        return node == null ? -1 : node.intValue();
+    }
+
+    /**
+     * @param node
+     *            the node in the index
+     * @return the name of the node
+     */
+    String getName(int node) {
+        return names[node];
+    }
+
+    /**
+     * @param node
+     *            the node in the index
+     * @return the first child of the node, or -1 if it has none
+     */
+    int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    /**
+     * @param node
+     *            the node in the index
+     * @return the next sibling of the node, or -1 if it has none
+     */
+    int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * @param node
+     *            the node in the index
+     * @return where the text of the node starts in the book
+     */
+    int getDataStart(int node) {
+        return dataStart[node];
+    }
+
+    /**
+     * @param node
+     *            the node in the index
+     * @return the size of the text of the node, or -1 if it has none
+     */
+    int getDataSize(int node) {
+        return dataSize[node];
+    }
+
+    /**
+     * Map the path of each child of a node, and of their children in turn.
+     * Links to nodes that cannot be read or that have been seen already are
+     * cut, so that a damaged index cannot send a walk of the tree round in
+     * circles.
+     *
+     * @param parent
+     *            the node whose children are being mapped
+     * @param parentPath
+     *            the path of that node
+     * @param seen
+     *            the nodes that are already in the tree
+     */
+    private void addPaths(int parent, String parentPath, BitSet seen) {
+        seen.set(parent);
+        int previous = -1;
+        int child = firstChild[parent];
+        while (child != -1) {
+            if (names[child] == null || seen.get(child)) {
+                if (previous == -1) {
+                    firstChild[parent] = -1;
+                } else {
+                    nextSibling[previous] = -1;
+                }
+                break;
+            }
+
+            String path = parentPath.length() == 0 ? names[child] : parentPath + SEPARATOR + names[child];
+            if (!paths.containsKey(path)) {
+                paths.put(path, Integer.valueOf(child));
+            }
+            addPaths(child, path, seen);
+
+            previous = child;
+            child = nextSibling[child];
+        }
+    }
+
+    /**
+     * Joins the names of a path. Names are read up to a NUL, so no name can
+     * contain it.
+     */
+    private static final char SEPARATOR = '\0';
+
+    /**
+     * The name of each node
+     */
+    private final String[] names;
+
+    /**
+     * The first child of each node
+     */
+    private final int[] firstChild;
+
+    /**
+     * The next sibling of each node
+     */
+    private final int[] nextSibling;
+
+    /**
+     * Where the text of each node starts
+     */
+    private final int[] dataStart;
+
+    /**
+     * The size of the text of each node
+     */
+    private final int[] dataSize;
+
+    /**
+     * The node for each path
+     */
+    private final Map<String, Integer> paths;
+}
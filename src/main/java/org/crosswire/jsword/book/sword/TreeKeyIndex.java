@@ -100,6 +100,79 @@ public class TreeKeyIndex implements Activatable {
         return getTreeNode(getOffset(node.getNextSibling()));
     }
 
+    /**
+     * Read the whole tree into memory, in one pass over each of the index and
+     * data files.
+     * 
+     * @return the tree of the book
+     * @throws IOException
+     */
+    public TreeKeyDirectory readDirectory() throws IOException {
+        checkActive();
+        if (idxRaf == null || datRaf == null) {
+            throw new IOException(JSOtherMsg.lookupText("Missing data files for old and new testaments in {0}.", bmd.getInitials()));
+        }
+
+        byte[] idx = SwordUtil.readRAF(idxRaf, 0, (int) idxRaf.length());
+        byte[] dat = SwordUtil.readRAF(datRaf, 0, (int) datRaf.length());
+        int total = idx.length / 4;
+        String[] names = new String[total];
+        int[] firstChild = new int[total];
+        int[] nextSibling = new int[total];
+        int[] dataStart = new int[total];
+        int[] dataSize = new int[total];
+        String bookName = bmd.getName();
+        String charset = bmd.getBookCharset();
+        for (int i = 0; i < total; i++) {
+            firstChild[i] = -1;
+            nextSibling[i] = -1;
+            dataSize[i] = -1;
+
+            int offset = SwordUtil.decodeLittleEndian32(idx, i * 4);
+            if (offset < 0 || offset + 12 > dat.length) {
+                log.error("Node {} is beyond the end of {}", Integer.toString(i), datFile);
+                continue;
+            }
+
+            // The links are to positions in the index
+            nextSibling[i] = getNode(SwordUtil.decodeLittleEndian32(dat, offset + 4), total);
+            firstChild[i] = getNode(SwordUtil.decodeLittleEndian32(dat, offset + 8), total);
+
+            int nameStart = offset + 12;
+            int nameEnd = nameStart;
+            while (nameEnd < dat.length && dat[nameEnd] != 0) {
+                nameEnd++;
+            }
+            // Some of the keys have extraneous whitespace, so remove it.
+            names[i] = SwordUtil.decode(bookName, dat, nameStart, nameEnd - nameStart, charset).trim();
+
+            // Only user data giving the start and size of the text is used
+            int userDataStart = nameEnd + 1;
+            if (userDataStart + 10 <= dat.length && SwordUtil.decodeLittleEndian16(dat, userDataStart) == 8) {
+                dataStart[i] = SwordUtil.decodeLittleEndian32(dat, userDataStart + 2);
+                dataSize[i] = SwordUtil.decodeLittleEndian32(dat, userDataStart + 6);
+            }
+        }
+
+        return new TreeKeyDirectory(names, firstChild, nextSibling, dataStart, dataSize);
+    }
+
+    /**
+     * Convert a link to a position in the index into the node at that position.
+     * 
+     * @param index
+     *            the position in the index
+     * @param total
+     *            the number of nodes in the index
+     * @return the node or -1 if there is none
+     */
+    private static int getNode(int index, int total) {
+        if (index < 0 || index % 4 != 0 || index / 4 >= total) {
+            return -1;
+        }
+        return index / 4;
+    }
+
     /**
      * The idx file contains offsets into the dat file.
      * 
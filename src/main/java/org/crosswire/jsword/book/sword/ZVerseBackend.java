@@ -21,18 +21,23 @@ package org.crosswire.jsword.book.sword;
 
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.crosswire.common.compress.CompressorType;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.sword.state.BlockCache;
 import org.crosswire.jsword.book.sword.state.OpenFileStateManager;
 import org.crosswire.jsword.book.sword.state.ZVerseBackendState;
+import org.crosswire.jsword.book.sword.state.ZVerseMappedFiles;
 import org.crosswire.jsword.passage.BitwisePassage;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.RocketPassage;
 import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.Testament;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.system.Versifications;
@@ -125,6 +130,13 @@ import org.slf4j.LoggerFactory;
  * </li>
  * </ul>
  * 
+ * <p>
+ * When {@link #setMemoryMapped(boolean)} is turned on, the three files of each
+ * testament are memory mapped once per book and shared by all threads. Index
+ * and block entries are then decoded in place from the maps rather than read
+ * through a pooled RandomAccessFile.
+ * </p>
+ * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author Joe Walker
  * @author DM Smith
@@ -140,6 +152,8 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
         this.blockType = blockType;
         this.datasize = datasize;
         this.entrysize = OFFSETSIZE + datasize;
+        // The versification of a book does not change, so look it up once.
+        this.v11n = Versifications.instance().getVersification(sbmd.getProperty(BookMetaData.KEY_VERSIFICATION));
 
         assert datasize == 2 || datasize == 4;        
     }
@@ -164,38 +178,23 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
         try {
             rafBook = initState();
 
-            String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-            Versification v11n = Versifications.instance().getVersification(v11nName);
             Verse verse = KeyUtil.getVerse(key);
 
             int index = verse.getOrdinal();
             Testament testament = v11n.getTestament(index);
             index = v11n.getTestamentOrdinal(index);
 
-            RandomAccessFile idxRaf = rafBook.getIdxRaf(testament);
-
-            // If Bible does not contain the desired testament, then false
-            if (idxRaf == null) {
-                return 0;
-            }
-
             // entrysize because the index is entrysize bytes long for each verse
-            byte[] temp = SwordUtil.readRAF(idxRaf, 1L * index * entrysize, entrysize);
+            ByteBuffer entry = readEntries(rafBook, testament, index, 1);
 
-            // If the Bible does not contain the desired verse, return nothing.
+            // If the Bible does not contain the desired testament or verse, return nothing.
             // Some Bibles have different versification, so the requested verse
             // may not exist.
-            if (temp == null || temp.length == 0) {
+            if (entry == null || entry.limit() < entrysize) {
                 return 0;
             }
 
-            // The data is little endian - extract the verseSize
-            if (datasize == 2) {
-                return SwordUtil.decodeLittleEndian16(temp, 8);
-            }
-            // datasize == 4:
-            return SwordUtil.decodeLittleEndian32(temp, 8);
-
+            return getVerseSize(entry, 0);
         } catch (IOException e) {
             return 0;
         } catch (BookException e) {
@@ -217,9 +216,6 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
         try {
             rafBook = initState();
 
-            String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-            Versification v11n = Versifications.instance().getVersification(v11nName);
-
             Testament[] testaments = new Testament[] {
                     Testament.OLD, Testament.NEW
             };
@@ -229,42 +225,23 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
             passage.raiseNormalizeProtection();
 
             for (Testament currentTestament : testaments) {
-                RandomAccessFile idxRaf = rafBook.getIdxRaf(currentTestament);
+                int maxIndex = v11n.getCount(currentTestament) - 1;
+
+                // Read in the whole index, a few hundred Kb at most.
+                ByteBuffer entries = readEntries(rafBook, currentTestament, 0, maxIndex);
 
                 // If Bible does not contain the desired testament, then false
-                if (idxRaf == null) {
+                if (entries == null) {
                     // no keys in this testament
                     continue;
                 }
 
-                int maxIndex = v11n.getCount(currentTestament) - 1;
-
-                // Read in the whole index, a few hundred Kb at most.
-                byte[] temp = SwordUtil.readRAF(idxRaf, 0, entrysize * maxIndex);
-
-                // For each entry of entrysize bytes, the length of the verse in bytes
-                // is in the last datasize bytes. If both bytes are 0, then there is no content.
                 // For each entry of entrysize bytes, the length of the verse in bytes
-                // is in the last datasize bytes. If all bytes are 0, then there is no content.
-                if (datasize == 2) {
-                    for (int ii = 0; ii < temp.length; ii += entrysize) {
-                        // This can be simplified to temp[ii + 8] == 0 && temp[ii + 8] == 0.
-                        // int verseSize = SwordUtil.decodeLittleEndian16(temp, ii + 8);
-                        // if (verseSize > 0) {
-                        if (temp[ii + 8] != 0 || temp[ii + 9] != 0) {
-                            int ordinal = ii / entrysize;
-                            passage.addVersifiedOrdinal(v11n.getOrdinal(currentTestament, ordinal));
-                        }
-                    }
-                } else { // datasize == 4
-                    for (int ii = 0; ii < temp.length; ii += entrysize) {
-                        // This can be simplified to temp[ii + 8] == 0 && temp[ii + 8] == 0 && temp[ii + 10] == 0 && temp[ii + 11] == 0.
-                        // int verseSize = SwordUtil.decodeLittleEndian32(temp, ii + 8);
-                        // if (verseSize > 0) {
-                        if (temp[ii + 8] != 0 || temp[ii + 9] != 0 || temp[ii + 10] != 0 || temp[ii + 11] != 0) {
-                            int ordinal = ii / entrysize;
-                            passage.addVersifiedOrdinal(v11n.getOrdinal(currentTestament, ordinal));
-                        }
+                // is in the last datasize bytes. If it is 0, then there is no content.
+                int count = entries.limit() / entrysize;
+                for (int ordinal = 0; ordinal < count; ordinal++) {
+                    if (getVerseSize(entries, ordinal * entrysize) != 0) {
+                        passage.addVersifiedOrdinal(v11n.getOrdinal(currentTestament, ordinal));
                     }
                 }
             }
@@ -284,96 +261,322 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
      * @see org.crosswire.jsword.book.sword.StatefulFileBackedBackend#initState()
      */
     public ZVerseBackendState initState() throws BookException {
+        if (memoryMapped) {
+            return OpenFileStateManager.instance().getZVerseBackendState(getBookMetaData(), getMappedFiles());
+        }
         return OpenFileStateManager.instance().getZVerseBackendState(getBookMetaData(), blockType);
     }
 
+    /**
+     * Get the memory maps of this book's files, mapping them on first use.
+     * 
+     * @return the shared memory maps
+     * @throws BookException if the data path cannot be determined
+     */
+    private ZVerseMappedFiles getMappedFiles() throws BookException {
+        ZVerseMappedFiles result = mappedFiles;
+        if (result == null) {
+            synchronized (this) {
+                result = mappedFiles;
+                if (result == null) {
+                    result = new ZVerseMappedFiles(getBookMetaData(), blockType);
+                    mappedFiles = result;
+                }
+            }
+        }
+        return result;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.book.sword.StatefulFileBackedBackend#readRawContent(org.crosswire.jsword.book.sword.state.OpenFileState, org.crosswire.jsword.passage.Key)
      */
     public String readRawContent(ZVerseBackendState rafBook, Key key) throws IOException {
-
-        BookMetaData bookMetaData = getBookMetaData();
-        final String charset = bookMetaData.getBookCharset();
-        final String compressType = bookMetaData.getProperty(SwordBookMetaData.KEY_COMPRESS_TYPE);
-
-        final String v11nName = getBookMetaData().getProperty(BookMetaData.KEY_VERSIFICATION);
-        final Versification v11n = Versifications.instance().getVersification(v11nName);
         Verse verse = KeyUtil.getVerse(key);
 
         int index = verse.getOrdinal();
         final Testament testament = v11n.getTestament(index);
         index = v11n.getTestamentOrdinal(index);
-        final RandomAccessFile idxRaf;
-        final RandomAccessFile compRaf;
-        final RandomAccessFile textRaf;
-
-        idxRaf = rafBook.getIdxRaf(testament);
-        compRaf = rafBook.getCompRaf(testament);
-        textRaf = rafBook.getTextRaf(testament);
-
-        // If Bible does not contain the desired testament, return nothing.
-        if (idxRaf == null) {
-            return "";
-        }
 
         //dumpIdxRaf(v11n, 0, compRaf);
         //dumpCompRaf(idxRaf);
         // entrysize because the index is entrysize bytes long for each verse
-        byte[] temp = SwordUtil.readRAF(idxRaf, 1L * index * entrysize, entrysize);
+        final ByteBuffer entry = readEntries(rafBook, testament, index, 1);
 
-        // If the Bible does not contain the desired verse, return nothing.
+        // If the Bible does not contain the desired testament or verse, return nothing.
         // Some Bibles have different versification, so the requested verse
         // may not exist.
-        if (temp == null || temp.length == 0) {
+        if (entry == null || entry.limit() < entrysize) {
             return "";
         }
 
+        return readVerse(rafBook, testament, entry, 0, key.getName());
+    }
+
+    /**
+     * Read the index entries for the verses of a range once for each
+     * testament that it spans, rather than once for each verse. The verses are
+     * in index order, so each block is uncompressed at most once.
+     * 
+     * @see org.crosswire.jsword.book.sword.AbstractBackend#readRawRange(org.crosswire.jsword.book.sword.state.OpenFileState, org.crosswire.jsword.passage.VerseRange)
+     */
+    @Override
+    public String[] readRawRange(ZVerseBackendState rafBook, VerseRange range) throws IOException {
+        final int start = range.getStart().getOrdinal();
+        final int end = range.getEnd().getOrdinal();
+        final int otEnd = v11n.getCount(Testament.OLD) - 1;
+        final String[] rawTexts = new String[end - start + 1];
+
+        int ordinal = start;
+        while (ordinal <= end) {
+            // Testament ordinals are only contiguous within a testament.
+            final Testament testament = v11n.getTestament(ordinal);
+            final int last = testament == Testament.OLD ? Math.min(end, otEnd) : end;
+            final ByteBuffer entries = readEntries(rafBook, testament, v11n.getTestamentOrdinal(ordinal), last - ordinal + 1);
+
+            for (int entryStart = 0; ordinal <= last; ordinal++, entryStart += entrysize) {
+                if (entries == null || entries.limit() < entryStart + entrysize) {
+                    rawTexts[ordinal - start] = "";
+                } else {
+                    rawTexts[ordinal - start] = readVerse(rafBook, testament, entries, entryStart, v11n.decodeOrdinal(ordinal).getName());
+                }
+            }
+        }
+
+        return rawTexts;
+    }
+
+    /**
+     * Read a verse given its index entry.
+     * 
+     * @param state the state holding the open files
+     * @param testament the testament of the verse
+     * @param entries the index entries
+     * @param entryStart the position of the verse's entry in entries
+     * @param keyName the name of the verse, for error reporting
+     * @return the raw text of the verse
+     * @throws IOException
+     */
+    private String readVerse(ZVerseBackendState state, Testament testament, ByteBuffer entries, int entryStart, String keyName) throws IOException {
         // The data is little endian - extract the blockNum, verseStart
-        // and
-        // verseSize
-        final long blockNum = SwordUtil.decodeLittleEndian32(temp, 0);
-        final int verseStart = SwordUtil.decodeLittleEndian32(temp, 4);
-        final int verseSize;
-        if (datasize == 2) {
-            verseSize = SwordUtil.decodeLittleEndian16(temp, 8);
-        } else { // datasize == 4:
-            verseSize = SwordUtil.decodeLittleEndian32(temp, 8);
+        // and verseSize
+        final long blockNum = entries.getInt(entryStart);
+        final int verseStart = entries.getInt(entryStart + 4);
+        final int verseSize = getVerseSize(entries, entryStart);
+
+        // An empty verse is typically the first entry of block 0,
+        // so there is no point in uncompressing it.
+        if (verseSize == 0) {
+            return "";
+        }
+
+        final byte[] uncompressed = getBlock(state, testament, blockNum);
+        if (uncompressed == null) {
+            return "";
+        }
+
+        if (verseStart + verseSize > uncompressed.length) {
+            return "";
         }
 
+        // and cut out the required section. The block is shared with other
+        // readers and decode may clean up bad characters in what it is given.
+        final byte[] chopped = new byte[verseSize];
+        System.arraycopy(uncompressed, verseStart, chopped, 0, verseSize);
+
+        return SwordUtil.decode(keyName, chopped, getBookMetaData().getBookCharset());
+    }
+
+    /**
+     * Get an uncompressed block, from the state's last block, from the blocks
+     * shared by all states or from the book itself.
+     * 
+     * @param state the state holding the open files
+     * @param testament the testament of the block
+     * @param blockNum the number of the block
+     * @return the uncompressed block or null if it is not in the book
+     * @throws IOException
+     */
+    private byte[] getBlock(ZVerseBackendState state, Testament testament, long blockNum) throws IOException {
         // Can we get the data from the cache
-        byte[] uncompressed = null;
-        if (blockNum == rafBook.getLastBlockNum() && testament == rafBook.getLastTestament()) {
-            uncompressed = rafBook.getLastUncompressed();
-        } else {
-            // Then seek using this index into the idx file
-            temp = SwordUtil.readRAF(compRaf, blockNum * COMP_ENTRY_SIZE, COMP_ENTRY_SIZE);
-            if (temp == null || temp.length == 0) {
-                return "";
+        if (blockNum == state.getLastBlockNum() && testament == state.getLastTestament()) {
+            return state.getLastUncompressed();
+        }
+
+        // Another state may have uncompressed it
+        BookMetaData bookMetaData = getBookMetaData();
+        byte[] uncompressed = BlockCache.instance().get(bookMetaData, testament, blockNum);
+        if (uncompressed == null) {
+            // Then seek using this index into the comp file
+            final ByteBuffer temp = readCompEntry(state, testament, blockNum);
+            if (temp == null || temp.limit() < COMP_ENTRY_SIZE) {
+                return null;
             }
 
-            final int blockStart = SwordUtil.decodeLittleEndian32(temp, 0);
-            final int blockSize = SwordUtil.decodeLittleEndian32(temp, 4);
-            final int uncompressedSize = SwordUtil.decodeLittleEndian32(temp, 8);
+            final int blockStart = temp.getInt(0);
+            final int blockSize = temp.getInt(4);
+            final int uncompressedSize = temp.getInt(8);
 
             // Read from the data file.
-            final byte[] data = SwordUtil.readRAF(textRaf, blockStart, blockSize);
+            final byte[] data = readText(state, testament, blockStart, blockSize);
+            if (data == null) {
+                return null;
+            }
 
             decipher(data);
 
+            final String compressType = bookMetaData.getProperty(SwordBookMetaData.KEY_COMPRESS_TYPE);
             uncompressed = CompressorType.fromString(compressType).getCompressor(data).uncompress(uncompressedSize).toByteArray();
+            BlockCache.instance().put(bookMetaData, testament, blockNum, uncompressed);
+        }
+
+        // cache the uncompressed data for next time
+        state.setLastBlockNum(blockNum);
+        state.setLastTestament(testament);
+        state.setLastUncompressed(uncompressed);
+        return uncompressed;
+    }
 
-            // cache the uncompressed data for next time
-            rafBook.setLastBlockNum(blockNum);
-            rafBook.setLastTestament(testament);
-            rafBook.setLastUncompressed(uncompressed);
+    /**
+     * Read consecutive entries of the verse index, either from the memory
+     * map, without copying, or from the open index file.
+     * 
+     * @param state the state holding the open files or memory maps
+     * @param testament the testament of the index
+     * @param first the first entry to read
+     * @param count the number of entries to read
+     * @return the entries, which may be fewer than asked for if the index is short, or null if the testament is not in the book
+     * @throws IOException
+     */
+    private ByteBuffer readEntries(ZVerseBackendState state, Testament testament, int first, int count) throws IOException {
+        final ZVerseMappedFiles mapped = state.getMappedFiles();
+        if (mapped != null) {
+            return slice(mapped.getIdx(testament), 1L * first * entrysize, count * entrysize);
         }
+        return read(state.getIdxRaf(testament), 1L * first * entrysize, count * entrysize);
+    }
 
-        // and cut out the required section.
-        final byte[] chopped = new byte[verseSize];
-        System.arraycopy(uncompressed, verseStart, chopped, 0, verseSize);
+    /**
+     * Read the entry for a block from the comp index.
+     * 
+     * @param state the state holding the open files or memory maps
+     * @param testament the testament of the index
+     * @param blockNum the number of the block
+     * @return the entry or null if the testament is not in the book
+     * @throws IOException
+     */
+    private ByteBuffer readCompEntry(ZVerseBackendState state, Testament testament, long blockNum) throws IOException {
+        final ZVerseMappedFiles mapped = state.getMappedFiles();
+        if (mapped != null) {
+            return slice(mapped.getComp(testament), blockNum * COMP_ENTRY_SIZE, COMP_ENTRY_SIZE);
+        }
+        return read(state.getCompRaf(testament), blockNum * COMP_ENTRY_SIZE, COMP_ENTRY_SIZE);
+    }
+
+    /**
+     * Copy a compressed block out of the text file. The decompressors need
+     * an array, so even a memory map is copied.
+     * 
+     * @param state the state holding the open files or memory maps
+     * @param testament the testament of the text
+     * @param blockStart the start of the block
+     * @param blockSize the compressed size of the block
+     * @return the compressed block or null if the testament is not in the book
+     * @throws IOException
+     */
+    private byte[] readText(ZVerseBackendState state, Testament testament, int blockStart, int blockSize) throws IOException {
+        final ZVerseMappedFiles mapped = state.getMappedFiles();
+        if (mapped != null) {
+            final ByteBuffer view = slice(mapped.getText(testament), blockStart, blockSize);
+            if (view == null) {
+                return null;
+            }
+            final byte[] data = new byte[view.limit()];
+            view.get(data);
+            return data;
+        }
+
+        final RandomAccessFile textRaf = state.getTextRaf(testament);
+        if (textRaf == null) {
+            return null;
+        }
+        return SwordUtil.readRAF(textRaf, blockStart, blockSize);
+    }
+
+    /**
+     * Read part of an open file into a little endian buffer.
+     * 
+     * @param raf the file or null
+     * @param offset where to start reading
+     * @param size how many bytes to read
+     * @return the bytes read, possibly fewer than asked for, or null if there is no file
+     * @throws IOException
+     */
+    private static ByteBuffer read(RandomAccessFile raf, long offset, int size) throws IOException {
+        if (raf == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(SwordUtil.readRAF(raf, offset, size)).order(ByteOrder.LITTLE_ENDIAN);
+    }
 
-        return SwordUtil.decode(key.getName(), chopped, charset);
+    /**
+     * Get a little endian view of part of a memory map. Like reading a
+     * RandomAccessFile, the view is truncated at the end of the map.
+     * 
+     * @param buffer the memory map or null
+     * @param offset where the view starts
+     * @param size the size of the view
+     * @return the view, possibly shorter than asked for, or null if there is no map
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, long offset, int size) {
+        if (buffer == null) {
+            return null;
+        }
 
+        final int limit = buffer.limit();
+        final int start = (int) Math.max(0, Math.min(offset, limit));
+        final int end = (int) Math.min(limit, Math.max(0, offset + size));
+        final ByteBuffer view = buffer.duplicate();
+        view.limit(Math.max(start, end));
+        view.position(start);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Decode the size of a verse from an index entry.
+     * 
+     * @param entries the index entries
+     * @param entryStart the position of the entry
+     * @return the size of the verse
+     */
+    private int getVerseSize(ByteBuffer entries, int entryStart) {
+        // The data is little endian and the size is unsigned
+        if (datasize == 2) {
+            return entries.getShort(entryStart + 8) & 0xFFFF;
+        }
+        // datasize == 4:
+        return entries.getInt(entryStart + 8);
+    }
+
+    /**
+     * Whether newly opened states of zVerse books read from shared memory
+     * maps of the book's files rather than from their own open files.
+     * 
+     * @return true if memory mapping is in use
+     */
+    public static boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Read zVerse books from shared memory maps rather than from open files
+     * that are pooled for each thread. The maps hold no file handles, so under
+     * concurrent load this avoids opening files for each reader. States that
+     * are already open continue as they were.
+     * 
+     * @param mapped whether to use memory mapping
+     */
+    public static void setMemoryMapped(boolean mapped) {
+        memoryMapped = mapped;
     }
 
     /* (non-Javadoc)
@@ -500,6 +703,17 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
      * Whether the book is blocked by Book, Chapter or Verse.
      */
     private final BlockType blockType;
+
+    /**
+     * The shared memory maps of the book's files, created on first use.
+     */
+    private volatile ZVerseMappedFiles mappedFiles;
+
+    /**
+     * Whether states are created to read from memory maps.
+     */
+    private static volatile boolean memoryMapped;
+
     /**
      * How many bytes in the size count in the index
      */
@@ -510,6 +724,11 @@ public class ZVerseBackend extends AbstractBackend<ZVerseBackendState> {
      */
     protected final int entrysize;
 
+    /**
+     * The versification of the book
+     */
+    private final Versification v11n;
+
     /**
      * How many bytes in the offset pointers in the index
      */
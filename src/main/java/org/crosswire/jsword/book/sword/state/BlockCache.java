@@ -0,0 +1,287 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword.state;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.versification.Testament;
+
+/**
+ * A cache of uncompressed blocks that is shared by the states of all
+ * compressed books. Each state still remembers the last block that it
+ * uncompressed, which is all that is needed when reading verse after verse
+ * through a chapter. This cache serves the states that are jumping about, so
+ * that a popular block is uncompressed once rather than once per state.
+ *
+ * <p>
+ * The cache is bounded by the total number of bytes held. It is divided into
+ * segments, each with its own lock and its own share of the bound, with
+ * least recently used blocks evicted first. A block that is too big for a
+ * segment is not cached.
+ * </p>
+ *
+ * <p>
+ * Blocks are keyed by book, testament and block number. Books are compared by
+ * {@link BookMetaData#equals(Object)}, as with {@link OpenFileStateManager}.
+ * Books that are not verse based use a null testament. The cached arrays are
+ * shared and must not be changed.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class BlockCache {
+    /**
+     * Create an empty cache.
+     */
+    private BlockCache() {
+        segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment();
+        }
+        hits = new AtomicLong();
+        misses = new AtomicLong();
+        evictions = new AtomicLong();
+        maxSize = DEFAULT_MAX_SIZE;
+    }
+
+    /**
+     * The one and only block cache.
+     *
+     * @return the singleton
+     */
+    public static BlockCache instance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get an uncompressed block.
+     *
+     * @param bmd the book containing the block
+     * @param testament the testament containing the block or null
+     * @param blockNum the number of the block
+     * @return the uncompressed block or null if it is not in the cache
+     */
+    public byte[] get(BookMetaData bmd, Testament testament, long blockNum) {
+        BlockKey key = new BlockKey(bmd, testament, blockNum);
+        Segment segment = segmentFor(key);
+        byte[] block;
+        synchronized (segment) {
+            block = segment.blocks.get(key);
+        }
+        if (block == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return block;
+    }
+
+    /**
+     * Add an uncompressed block to the cache, evicting the least recently
+     * used blocks to make room.
+     *
+     * @param bmd the book containing the block
+     * @param testament the testament containing the block or null
+     * @param blockNum the number of the block
+     * @param block the uncompressed block
+     */
+    public void put(BookMetaData bmd, Testament testament, long blockNum, byte[] block) {
+        long limit = maxSize / SEGMENT_COUNT;
+        if (block == null || block.length > limit) {
+            return;
+        }
+
+        BlockKey key = new BlockKey(bmd, testament, blockNum);
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            byte[] old = segment.blocks.put(key, block);
+            if (old != null) {
+                segment.size -= old.length;
+            }
+            segment.size += block.length;
+            segment.evict(limit);
+        }
+    }
+
+    /**
+     * Remove all the blocks from the cache. The counters are not reset.
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.blocks.clear();
+                segment.size = 0;
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes that the cache may hold
+     */
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the number of bytes that the cache may hold. Setting this to 0
+     * turns the cache off. Blocks are evicted if the cache is now too big.
+     *
+     * @param newMaxSize the number of bytes that the cache may hold
+     */
+    public void setMaxSize(long newMaxSize) {
+        maxSize = newMaxSize;
+        long limit = newMaxSize / SEGMENT_COUNT;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.evict(limit);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes that the cache is holding
+     */
+    public long getSize() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return the number of lookups that found a block
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups that did not find a block
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of blocks evicted to make room for others
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    private Segment segmentFor(BlockKey key) {
+        // Spread the hash so that the low bits differ for adjacent blocks.
+        int h = key.hashCode();
+        h ^= (h >>> 20) ^ (h >>> 12);
+        h ^= (h >>> 7) ^ (h >>> 4);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * One of the independently locked parts of the cache.
+     */
+    private final class Segment {
+        Segment() {
+            blocks = new LinkedHashMap<BlockKey, byte[]>(16, 0.75f, true);
+        }
+
+        /**
+         * Evict the least recently used blocks until the segment fits within
+         * the limit. The caller must hold the lock.
+         *
+         * @param limit the number of bytes that the segment may hold
+         */
+        void evict(long limit) {
+            Iterator<Map.Entry<BlockKey, byte[]>> iter = blocks.entrySet().iterator();
+            while (size > limit && iter.hasNext()) {
+                size -= iter.next().getValue().length;
+                iter.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        /**
+         * The blocks, with the least recently used first.
+         */
+        final LinkedHashMap<BlockKey, byte[]> blocks;
+
+        /**
+         * The number of bytes in the blocks.
+         */
+        long size;
+    }
+
+    /**
+     * Identifies a block of a book.
+     */
+    private static final class BlockKey {
+        BlockKey(BookMetaData bmd, Testament testament, long blockNum) {
+            this.bmd = bmd;
+            this.testament = testament;
+            this.blockNum = blockNum;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof BlockKey)) {
+                return false;
+            }
+            BlockKey that = (BlockKey) obj;
+            return blockNum == that.blockNum && testament == that.testament && bmd.equals(that.bmd);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = bmd.hashCode();
+            result = 31 * result + (testament == null ? 0 : testament.ordinal() + 1);
+            return 31 * result + (int) (blockNum ^ (blockNum >>> 32));
+        }
+
+        private final BookMetaData bmd;
+        private final Testament testament;
+        private final long blockNum;
+    }
+
+    /**
+     * The number of segments, which must be a power of 2.
+     */
+    private static final int SEGMENT_COUNT = 16;
+
+    /**
+     * By default hold up to 16MB of uncompressed text.
+     */
+    private static final long DEFAULT_MAX_SIZE = 16L * 1024 * 1024;
+
+    private static final BlockCache INSTANCE = new BlockCache();
+
+    private final Segment[] segments;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+    private volatile long maxSize;
+}
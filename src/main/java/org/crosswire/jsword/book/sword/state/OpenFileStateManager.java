@@ -19,15 +19,17 @@
  */
 package org.crosswire.jsword.book.sword.state;
 
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.book.BookMetaData;
@@ -47,10 +49,22 @@ import org.slf4j.LoggerFactory;
  * reading several verses together for example. As a result, we want to key a
  * lookup by {@link BookMetaData}, which then gives us a pool of available
  * file states... We create some more if none are available.
+ * A book read from memory maps has a pool apart from its open files,
+ * so a state of the one kind is never lent out as the other.
+ * 
+ * <p>
+ * Each book's pool is bounded, so that a burst of requests for one book does
+ * not open more files than the system allows. When all of a book's states are
+ * in use, a request waits for one to be released, for no longer than the
+ * acquire timeout. A timeout of 0 fails at once and a negative timeout waits
+ * for as long as it takes. A thread that already holds a state for the book
+ * never waits, since it may be waiting on itself. The counts of open states,
+ * of waits and of evictions are available for monitoring.
+ * </p>
  * 
  * In order to prevent memory leaks (OpenFileStates might be quite heavy as they do some internal caching of file data..
  * In order to avoid many file references piling up in memory, we implement a background cleaning thread which will clean
- * up redundant keys every so often.
+ * up redundant keys every so often. The states that have been idle the longest are evicted first.
  *
  *
  * 
@@ -64,7 +78,11 @@ public final class OpenFileStateManager {
      * prevent instantiation
      */
     private OpenFileStateManager(final int cleanupIntervalSeconds, final int maxExpiry) {
-        // no op
+        this.maxStates = DEFAULT_MAX_STATES;
+        this.acquireTimeout = DEFAULT_ACQUIRE_TIMEOUT;
+        this.waits = new AtomicLong();
+        this.timeouts = new AtomicLong();
+        this.evictions = new AtomicLong();
         this.monitoringThread = Executors.newScheduledThreadPool(1, new ThreadFactory() {
             public Thread newThread(Runnable r) {
                 Thread t = new Thread(r);
@@ -76,19 +94,9 @@ public final class OpenFileStateManager {
             public void run() {
                 // check the state of the maps and queues... The queues may have too much in them and that will in turn max out
                 // the heap.
-                long currentTime = System.currentTimeMillis();
-
-                for (Queue<OpenFileState> e : OpenFileStateManager.this.metaToStates.values()) {
-                    for (Iterator<OpenFileState> iterator = e.iterator(); iterator.hasNext(); ) {
-                        final OpenFileState state = iterator.next();
-                        if (state.getLastAccess() + maxExpiry * 1000 < currentTime) {
-                            //release resources
-                            state.releaseResources();
-
-                            //remove from the queues
-                            iterator.remove();
-                        }
-                    }
+                long expiry = System.currentTimeMillis() - maxExpiry * 1000L;
+                for (Pool pool : OpenFileStateManager.this.metaToStates.values()) {
+                    pool.evictIdleSince(expiry);
                 }
             }
         }, 0, cleanupIntervalSeconds, TimeUnit.SECONDS);
@@ -124,108 +132,119 @@ public final class OpenFileStateManager {
         return manager;
     }
 
-    public RawBackendState getRawBackendState(BookMetaData metadata) throws BookException {
-        ensureNotShuttingDown();
-
-        RawBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new RawBackendState(metadata);
-        }
-
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    public RawBackendState getRawBackendState(final BookMetaData metadata) throws BookException {
+        return acquire(metadata, false, new StateFactory<RawBackendState>() {
+            public RawBackendState create() throws BookException {
+                return new RawBackendState(metadata);
+            }
+        });
     }
 
-    public RawFileBackendState getRawFileBackendState(BookMetaData metadata) throws BookException {
-        ensureNotShuttingDown();
-
-        RawFileBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new RawFileBackendState(metadata);
-        }
-
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    public RawFileBackendState getRawFileBackendState(final BookMetaData metadata) throws BookException {
+        return acquire(metadata, false, new StateFactory<RawFileBackendState>() {
+            public RawFileBackendState create() throws BookException {
+                return new RawFileBackendState(metadata);
+            }
+        });
     }
 
-    public GenBookBackendState getGenBookBackendState(BookMetaData metadata) throws BookException {
-        ensureNotShuttingDown();
-
-        GenBookBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new GenBookBackendState(metadata);
-        }
-
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    public GenBookBackendState getGenBookBackendState(final BookMetaData metadata) throws BookException {
+        return acquire(metadata, false, new StateFactory<GenBookBackendState>() {
+            public GenBookBackendState create() throws BookException {
+                return new GenBookBackendState(metadata);
+            }
+        });
     }
 
-    public RawLDBackendState getRawLDBackendState(BookMetaData metadata) throws BookException {
-        ensureNotShuttingDown();
-
-        RawLDBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new RawLDBackendState(metadata);
-        }
-
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    public RawLDBackendState getRawLDBackendState(final BookMetaData metadata) throws BookException {
+        return acquire(metadata, false, new StateFactory<RawLDBackendState>() {
+            public RawLDBackendState create() throws BookException {
+                return new RawLDBackendState(metadata);
+            }
+        });
     }
 
-    public ZLDBackendState getZLDBackendState(BookMetaData metadata) throws BookException {
-        ensureNotShuttingDown();
-
-        ZLDBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new ZLDBackendState(metadata);
-        }
-
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    public ZLDBackendState getZLDBackendState(final BookMetaData metadata) throws BookException {
+        return acquire(metadata, false, new StateFactory<ZLDBackendState>() {
+            public ZLDBackendState create() throws BookException {
+                return new ZLDBackendState(metadata);
+            }
+        });
     }
 
-    public ZVerseBackendState getZVerseBackendState(BookMetaData metadata, BlockType blockType) throws BookException {
-        ensureNotShuttingDown();
-
-        ZVerseBackendState state = getInstance(metadata);
-        if (state == null) {
-            LOGGER.trace("Initializing: {}", metadata.getInitials());
-            return new ZVerseBackendState(metadata, blockType);
-        }
+    public ZVerseBackendState getZVerseBackendState(final BookMetaData metadata, final BlockType blockType) throws BookException {
+        return acquire(metadata, false, new StateFactory<ZVerseBackendState>() {
+            public ZVerseBackendState create() throws BookException {
+                return new ZVerseBackendState(metadata, blockType);
+            }
+        });
+    }
 
-        LOGGER.trace("Reusing: {}", metadata.getInitials());
-        return state;
+    /**
+     * Get a state that reads from the shared memory maps of a zVerse book
+     * rather than from open files.
+     * 
+     * @param metadata the book's metadata
+     * @param mappedFiles the memory maps shared by all states of the book
+     * @return the state
+     * @throws BookException
+     */
+    public ZVerseBackendState getZVerseBackendState(final BookMetaData metadata, final ZVerseMappedFiles mappedFiles) throws BookException {
+        return acquire(metadata, true, new StateFactory<ZVerseBackendState>() {
+            public ZVerseBackendState create() throws BookException {
+                return new ZVerseBackendState(metadata, mappedFiles);
+            }
+        });
     }
 
+    /**
+     * Lend out an idle state of the book, or a new one if there are none idle.
+     * 
+     * @param metadata the book's metadata
+     * @param mapped whether the state reads from memory maps
+     * @param factory creates a new state when needed
+     * @return the state, which must be released
+     * @throws BookException if the state could not be created or none became available in time
+     */
     @SuppressWarnings("unchecked")
-    private <T extends OpenFileState> T getInstance(BookMetaData metadata) {
-        Queue<OpenFileState> availableStates = getQueueForMeta(metadata);
-        final T state = (T) availableStates.poll();
-
-        //while not strictly necessary, the documentation suggests that iterating through the collection
-        //gives you a snapshot at some point in time, though not necessarily consistent, so just in case this remains
-        //in access of the iterator() functionality, we update the last access date to avoid it being destroyed while we
-        //use it
-        if (state != null) {
-            state.setLastAccess(System.currentTimeMillis());
+    private <T extends OpenFileState> T acquire(BookMetaData metadata, boolean mapped, StateFactory<T> factory) throws BookException {
+        ensureNotShuttingDown();
+
+        Pool pool = getPoolForMeta(metadata, mapped);
+        pool.reserve();
+
+        OpenFileState state = null;
+        try {
+            state = pool.idle.pollFirst();
+            if (state == null) {
+                LOGGER.trace("Initializing: {}", metadata.getInitials());
+                state = factory.create();
+                pool.open.incrementAndGet();
+            } else {
+                LOGGER.trace("Reusing: {}", metadata.getInitials());
+                state.setLastAccess(System.currentTimeMillis());
+            }
+            pool.inUse.put(state, Thread.currentThread());
+            return (T) state;
+        } finally {
+            if (state == null) {
+                // The state could not be created, so give back the reservation.
+                pool.unreserve();
+            }
         }
-        return state;
     }
 
-    private Queue<OpenFileState> getQueueForMeta(BookMetaData metadata) {
-        Queue<OpenFileState> availableStates = metaToStates.get(metadata);
-        if (availableStates == null) {
-            synchronized (OpenFileState.class) {
-                availableStates = new ConcurrentLinkedQueue<OpenFileState>();
-                metaToStates.put(metadata, availableStates);
+    private Pool getPoolForMeta(BookMetaData metadata, boolean mapped) {
+        PoolKey key = new PoolKey(metadata, mapped);
+        Pool pool = metaToStates.get(key);
+        if (pool == null) {
+            Pool newPool = new Pool();
+            pool = metaToStates.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
             }
         }
-        return availableStates;
+        return pool;
     }
 
     public void release(OpenFileState fileState) {
@@ -235,19 +254,28 @@ public final class OpenFileStateManager {
             return;
         }
 
+        BookMetaData bmd = fileState.getBookMetaData();
+        Pool pool = getPoolForMeta(bmd, isMapped(fileState));
+        if (pool.inUse.remove(fileState) == null) {
+            // Either it has already been released or it did not come from here
+            LOGGER.trace("Ignoring release of a state not in use: {}", bmd.getInitials());
+            return;
+        }
+
         fileState.setLastAccess(System.currentTimeMillis());
 
         // instead of releasing, we add to our queue
-        BookMetaData bmd = fileState.getBookMetaData();
-        Queue<OpenFileState> queueForMeta = getQueueForMeta(bmd);
-        LOGGER.trace("Offering to releasing: {}", bmd.getInitials());
-        boolean offered = queueForMeta.offer(fileState);
-
-        // ignore if we couldn't offer to the queue
-        if (!offered) {
+        if (shuttingDown) {
             LOGGER.trace("Released: {}", bmd.getInitials());
-            fileState.releaseResources();
+            pool.close(fileState);
+        } else {
+            LOGGER.trace("Offering to releasing: {}", bmd.getInitials());
+            // The most recently used is taken first, leaving the idlest at the end to be evicted.
+            pool.idle.offerFirst(fileState);
+            // A nested state may have been opened beyond the bound, so trim the excess.
+            pool.evictOverLimit();
         }
+        pool.unreserve();
     }
 
     /**
@@ -256,12 +284,104 @@ public final class OpenFileStateManager {
     public void shutDown() {
         shuttingDown = true;
         this.monitoringThread.cancel(true);
-        for (Queue<OpenFileState> e : metaToStates.values()) {
+        for (Pool pool : metaToStates.values()) {
             OpenFileState state = null;
-            while ((state = e.poll()) != null) {
-                state.releaseResources();
+            while ((state = pool.idle.poll()) != null) {
+                pool.close(state);
             }
+            // Let any that are waiting know
+            synchronized (pool) {
+                pool.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * @return the greatest number of states that may be in use at once for any one book
+     */
+    public int getMaxStatesPerBook() {
+        return maxStates;
+    }
+
+    /**
+     * Set the greatest number of states that may be in use at once for any
+     * one book. Each state holds open files, so this bounds the number of open
+     * files for a book. States that are idle beyond this number are closed
+     * when next released.
+     * 
+     * @param newMaxStates the greatest number of states for a book, at least 1
+     */
+    public void setMaxStatesPerBook(int newMaxStates) {
+        maxStates = Math.max(1, newMaxStates);
+    }
+
+    /**
+     * @return how long to wait, in milliseconds, for a state to become available
+     */
+    public long getAcquireTimeout() {
+        return acquireTimeout;
+    }
+
+    /**
+     * Set how long to wait for a state when all of a book's states are in
+     * use. A timeout of 0 fails immediately and a negative timeout waits until
+     * a state is released.
+     * 
+     * @param newAcquireTimeout how long to wait, in milliseconds
+     */
+    public void setAcquireTimeout(long newAcquireTimeout) {
+        acquireTimeout = newAcquireTimeout;
+    }
+
+    /**
+     * @return the number of states currently open, whether in use or idle
+     */
+    public int getOpenCount() {
+        int count = 0;
+        for (Pool pool : metaToStates.values()) {
+            count += pool.open.get();
         }
+        return count;
+    }
+
+    /**
+     * @return the number of states currently idle
+     */
+    public int getIdleCount() {
+        int count = 0;
+        for (Pool pool : metaToStates.values()) {
+            count += pool.idle.size();
+        }
+        return count;
+    }
+
+    /**
+     * @return the number of requests that had to wait for a state
+     */
+    public long getWaitCount() {
+        return waits.get();
+    }
+
+    /**
+     * @return the number of requests that gave up waiting for a state
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return the number of idle states that have been closed
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @param state the state to check
+     * @return whether the state reads from memory maps rather than open files
+     */
+    private static boolean isMapped(OpenFileState state) {
+        return state instanceof ZVerseBackendState && ((ZVerseBackendState) state).getMappedFiles() != null;
     }
 
     private void ensureNotShuttingDown() throws BookException {
@@ -270,8 +390,208 @@ public final class OpenFileStateManager {
         }
     }
 
+    /**
+     * Creates a new state for a book.
+     */
+    private interface StateFactory<T extends OpenFileState> {
+        T create() throws BookException;
+    }
+
+    /**
+     * Identifies the pool of a book, one for each way of reading it.
+     */
+    private static final class PoolKey {
+        PoolKey(BookMetaData metadata, boolean mapped) {
+            this.metadata = metadata;
+            this.mapped = mapped;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof PoolKey)) {
+                return false;
+            }
+            PoolKey that = (PoolKey) obj;
+            return mapped == that.mapped && metadata.equals(that.metadata);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * metadata.hashCode() + (mapped ? 1 : 0);
+        }
+
+        private final BookMetaData metadata;
+        private final boolean mapped;
+    }
+
+    /**
+     * The states of one book. A state is either idle or in use. Only the
+     * reservations for states in use are bounded; taking an idle state or
+     * releasing one does not block.
+     */
+    private final class Pool {
+        Pool() {
+            idle = new LinkedBlockingDeque<OpenFileState>();
+            inUse = new ConcurrentHashMap<OpenFileState, Thread>();
+            reserved = new AtomicInteger();
+            open = new AtomicInteger();
+            waiting = new AtomicInteger();
+        }
+
+        /**
+         * Reserve a state, waiting for one to be released if they are all in use.
+         * 
+         * @throws BookException if none became available in time
+         */
+        void reserve() throws BookException {
+            if (tryReserve()) {
+                return;
+            }
+
+            if (inUse.containsValue(Thread.currentThread())) {
+                // A thread already holding a state would be waiting on itself,
+                // so it may go beyond the bound.
+                reserved.incrementAndGet();
+                return;
+            }
+
+            long timeout = acquireTimeout;
+            if (timeout == 0) {
+                timeouts.incrementAndGet();
+                throw new BookException("Unable to read book, too many readers.");
+            }
+
+            waits.incrementAndGet();
+            waiting.incrementAndGet();
+            try {
+                long deadline = System.currentTimeMillis() + timeout;
+                synchronized (this) {
+                    while (!tryReserve()) {
+                        ensureNotShuttingDown();
+                        if (timeout < 0) {
+                            wait();
+                        } else {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0) {
+                                timeouts.incrementAndGet();
+                                throw new BookException("Unable to read book, timed out waiting for other readers.");
+                            }
+                            wait(remaining);
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new BookException("Unable to read book, interrupted waiting for other readers.", e);
+            } finally {
+                waiting.decrementAndGet();
+            }
+        }
+
+        /**
+         * Give back a reservation, waking any waiting for one.
+         */
+        void unreserve() {
+            reserved.decrementAndGet();
+            if (waiting.get() > 0) {
+                synchronized (this) {
+                    notifyAll();
+                }
+            }
+        }
+
+        boolean tryReserve() {
+            int n = reserved.get();
+            while (n < maxStates) {
+                if (reserved.compareAndSet(n, n + 1)) {
+                    return true;
+                }
+                n = reserved.get();
+            }
+            return false;
+        }
+
+        /**
+         * Close the idlest states beyond the bound.
+         */
+        void evictOverLimit() {
+            while (idle.size() + inUse.size() > maxStates) {
+                OpenFileState state = idle.pollLast();
+                if (state == null) {
+                    return;
+                }
+                close(state);
+                evictions.incrementAndGet();
+            }
+        }
+
+        /**
+         * Close the idle states that have not been used since the given time.
+         * 
+         * @param expiry the time before which a state has been idle too long
+         */
+        void evictIdleSince(long expiry) {
+            OpenFileState state = idle.pollLast();
+            while (state != null) {
+                if (state.getLastAccess() >= expiry) {
+                    // The rest have been used more recently
+                    idle.offerLast(state);
+                    return;
+                }
+                close(state);
+                evictions.incrementAndGet();
+                state = idle.pollLast();
+            }
+        }
+
+        void close(OpenFileState state) {
+            state.releaseResources();
+            open.decrementAndGet();
+        }
+
+        /**
+         * The idle states, the most recently used first.
+         */
+        final BlockingDeque<OpenFileState> idle;
+
+        /**
+         * The states in use and the threads using them.
+         */
+        final Map<OpenFileState, Thread> inUse;
+
+        /**
+         * The number of states in use or about to be.
+         */
+        final AtomicInteger reserved;
+
+        /**
+         * The number of states that are open.
+         */
+        final AtomicInteger open;
+
+        /**
+         * The number of threads waiting for a state.
+         */
+        final AtomicInteger waiting;
+    }
+
+    /**
+     * By default allow up to 16 states for each book.
+     */
+    private static final int DEFAULT_MAX_STATES = 16;
+
+    /**
+     * By default wait up to a minute for a state.
+     */
+    private static final long DEFAULT_ACQUIRE_TIMEOUT = 60000L;
+
     private final ScheduledFuture<?> monitoringThread;
-    private final Map<BookMetaData, Queue<OpenFileState>> metaToStates = new HashMap<BookMetaData, Queue<OpenFileState>>();
+    private final ConcurrentMap<PoolKey, Pool> metaToStates = new ConcurrentHashMap<PoolKey, Pool>();
+    private final AtomicLong waits;
+    private final AtomicLong timeouts;
+    private final AtomicLong evictions;
+    private volatile int maxStates;
+    private volatile long acquireTimeout;
     private volatile boolean shuttingDown;
 
     private static volatile OpenFileStateManager manager;
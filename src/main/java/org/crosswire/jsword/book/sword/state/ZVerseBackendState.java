@@ -104,7 +104,21 @@ public class ZVerseBackendState extends AbstractOpenFileState {
         }
     }
 
+    /**
+     * A state that reads from memory maps shared with other states rather than
+     * from its own open files. It holds no file handles.
+     *
+     * @param bookMetaData the appropriate metadata for the book
+     * @param mappedFiles the shared maps of the book's files
+     */
+    ZVerseBackendState(BookMetaData bookMetaData, ZVerseMappedFiles mappedFiles) {
+        super(bookMetaData);
+        this.mappedFiles = mappedFiles;
+    }
+
     public void releaseResources() {
+        // The maps are shared, so they are not ours to release.
+        mappedFiles = null;
         IOUtil.close(ntCompRaf);
         IOUtil.close(ntTextRaf);
         IOUtil.close(ntIdxRaf);
@@ -149,6 +163,16 @@ public class ZVerseBackendState extends AbstractOpenFileState {
         return testament == Testament.NEW ? ntIdxRaf : otIdxRaf;
     }
 
+    /**
+     * Get the shared memory maps of the book's files, if this state was
+     * created to read from them.
+     * 
+     * @return the memory maps or null if this state reads from open files
+     */
+    public ZVerseMappedFiles getMappedFiles() {
+        return mappedFiles;
+    }
+
     /**
      * @return the lastTestament
      */
@@ -216,6 +240,11 @@ public class ZVerseBackendState extends AbstractOpenFileState {
      */
     private RandomAccessFile otIdxRaf;
     private RandomAccessFile ntIdxRaf;
+
+    /**
+     * The shared memory maps, used instead of the random access files
+     */
+    private ZVerseMappedFiles mappedFiles;
     private Testament lastTestament;
     private long lastBlockNum = -1;
     private byte[] lastUncompressed;
@@ -0,0 +1,172 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword.state;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+import org.crosswire.common.util.FileUtil;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.NetUtil;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.sword.BlockType;
+import org.crosswire.jsword.book.sword.SwordConstants;
+import org.crosswire.jsword.book.sword.SwordUtil;
+import org.crosswire.jsword.versification.Testament;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-only memory maps of the index, comp and text files of a zVerse book.
+ *
+ * <p>
+ * Unlike {@link ZVerseBackendState}, an instance of this class holds no open
+ * file handles once it has been constructed and may be shared by any number of
+ * threads. The buffers are little endian so that entries can be decoded in
+ * place with the absolute getters, which do not disturb the buffer's position.
+ * Callers needing a relative bulk read must work on a
+ * {@link ByteBuffer#duplicate()}.
+ * </p>
+ *
+ * <p>
+ * A testament that is not present in the book has null buffers. Files larger
+ * than 2GB cannot be mapped; no SWORD module comes close to that.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class ZVerseMappedFiles {
+    /**
+     * Map the files of the book.
+     *
+     * @param bookMetaData the appropriate metadata for the book
+     * @param blockType the block type of the book, which determines the file names
+     * @throws BookException if the data path cannot be determined
+     */
+    public ZVerseMappedFiles(BookMetaData bookMetaData, BlockType blockType) throws BookException {
+        URI path = SwordUtil.getExpandedDataPath(bookMetaData);
+        String otAllButLast = NetUtil.lengthenURI(path, File.separator + SwordConstants.FILE_OT + '.' + blockType.getIndicator() + SUFFIX_PART1).getPath();
+        String ntAllButLast = NetUtil.lengthenURI(path, File.separator + SwordConstants.FILE_NT + '.' + blockType.getIndicator() + SUFFIX_PART1).getPath();
+
+        File otIdxFile = new File(otAllButLast + SUFFIX_INDEX);
+        if (otIdxFile.canRead()) {
+            otIdx = map(otIdxFile);
+            otComp = map(new File(otAllButLast + SUFFIX_COMP));
+            otText = map(new File(otAllButLast + SUFFIX_TEXT));
+        }
+
+        File ntIdxFile = new File(ntAllButLast + SUFFIX_INDEX);
+        if (ntIdxFile.canRead()) {
+            ntIdx = map(ntIdxFile);
+            ntComp = map(new File(ntAllButLast + SUFFIX_COMP));
+            ntText = map(new File(ntAllButLast + SUFFIX_TEXT));
+        }
+    }
+
+    /**
+     * Get the verse index for the given testament. Each verse has a block
+     * number, a start and a size.
+     *
+     * @param testament the testament for the index
+     * @return the index for the testament or null
+     */
+    public ByteBuffer getIdx(Testament testament) {
+        return testament == Testament.NEW ? ntIdx : otIdx;
+    }
+
+    /**
+     * Get the block index for the given testament. Each block has a start, a
+     * compressed size and an uncompressed size.
+     *
+     * @param testament the testament for the index
+     * @return the block index for the testament or null
+     */
+    public ByteBuffer getComp(Testament testament) {
+        return testament == Testament.NEW ? ntComp : otComp;
+    }
+
+    /**
+     * Get the compressed text for the given testament.
+     *
+     * @param testament the testament for the text
+     * @return the text for the testament or null
+     */
+    public ByteBuffer getText(Testament testament) {
+        return testament == Testament.NEW ? ntText : otText;
+    }
+
+    /**
+     * Map the whole of a file read-only. The mapping remains valid after the
+     * file is closed.
+     *
+     * @param file the file to map
+     * @return the mapped file or null if it could not be mapped
+     */
+    private static ByteBuffer map(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, FileUtil.MODE_READ);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return buffer;
+        } catch (IOException ex) {
+            LOGGER.error("Could not map {}", file, ex);
+            return null;
+        } finally {
+            IOUtil.close(raf);
+        }
+    }
+
+    private static final String SUFFIX_COMP = "s";
+    private static final String SUFFIX_INDEX = "v";
+    private static final String SUFFIX_PART1 = "z";
+    private static final String SUFFIX_TEXT = "z";
+
+    /**
+     * The verse index buffers
+     */
+    private ByteBuffer otIdx;
+    private ByteBuffer ntIdx;
+
+    /**
+     * The block index buffers
+     */
+    private ByteBuffer otComp;
+    private ByteBuffer ntComp;
+
+    /**
+     * The compressed text buffers
+     */
+    private ByteBuffer otText;
+    private ByteBuffer ntText;
+
+    /**
+     * The log stream
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ZVerseMappedFiles.class);
+}
@@ -0,0 +1,146 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.examples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.crosswire.common.diff.DifferenceEngine;
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookData;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.OSISUtil;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * DiffBench is a command line utility that times the DifferenceEngine over
+ * pairs of verses, as comparing books does. The verses are taken from two
+ * installed Bibles, or when none are given, made up from random words.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class DiffBench {
+    private DiffBench() {
+    }
+
+    /**
+     * Time the engine over pairs of verses.
+     * 
+     * @param args the number of rounds, optionally followed by the initials
+     *            of two books
+     * @throws BookException if a book cannot be read
+     */
+    public static void main(String[] args) throws BookException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+
+        List<String> sources = new ArrayList<String>();
+        List<String> targets = new ArrayList<String>();
+        if (args.length > 2) {
+            Book source = Books.installed().getBook(args[1]);
+            Book target = Books.installed().getBook(args[2]);
+            if (source == null || target == null) {
+                usage();
+                return;
+            }
+            for (Key key : source.getGlobalKeyList()) {
+                sources.add(OSISUtil.getCanonicalText(new BookData(source, key).getOsisFragment()));
+                targets.add(OSISUtil.getCanonicalText(new BookData(target, key).getOsisFragment()));
+            }
+        } else {
+            makeVerses(sources, targets);
+        }
+
+        // Each verse gets as long as it needs
+        DifferenceEngine.setTimeout(0);
+        try {
+            // The first pass warms up the VM
+            for (int i = 0; i <= rounds; i++) {
+                long start = System.currentTimeMillis();
+                int differences = 0;
+                for (int j = 0; j < sources.size(); j++) {
+                    differences += new DifferenceEngine(sources.get(j), targets.get(j)).generate().size();
+                }
+                long time = System.currentTimeMillis() - start;
+                if (i > 0) {
+                    System.out.println("Compared " + sources.size() + " verses in " + time + "ms, finding " + differences + " differences");
+                }
+            }
+        } finally {
+            DifferenceEngine.setTimeout(1.0f);
+        }
+    }
+
+    /**
+     * Make up pairs of verses, the second being the first with some words
+     * changed, as between two translations.
+     * 
+     * @param sources where to put the first of each pair
+     * @param targets where to put the second of each pair
+     */
+    private static void makeVerses(List<String> sources, List<String> targets) {
+        // Always the same, so that runs may be compared
+        Random random = new Random(1);
+        for (int i = 0; i < VERSES; i++) {
+            StringBuilder source = new StringBuilder();
+            StringBuilder target = new StringBuilder();
+            int words = 10 + random.nextInt(60);
+            for (int j = 0; j < words; j++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                source.append(word).append(' ');
+                int change = random.nextInt(5);
+                if (change == 0) {
+                    target.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                } else if (change == 1) {
+                    target.append(word).append(' ').append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+                } else if (change > 2) {
+                    target.append(word).append(' ');
+                }
+            }
+            sources.add(source.toString());
+            targets.add(target.toString());
+        }
+    }
+
+    /**
+     * Print a usage message to stdout
+     */
+    private static void usage() {
+        System.out.println("Usage: DiffBench [<rounds> [<book> <book>]]");
+        System.out.println("  where <rounds> is the number of times to compare the verses, by default 5,");
+        System.out.println("  and <book> is the initials of an installed Bible.");
+        System.out.println("  Without books, made up verses are compared.");
+    }
+
+    /**
+     * The number of made up verses
+     */
+    private static final int VERSES = 2000;
+
+    /**
+     * The words of made up verses
+     */
+    private static final String[] WORDS = {
+            "and", "the", "LORD", "said", "unto", "him", "in", "that", "day", "of",
+            "his", "people", "shall", "be", "for", "they", "were", "upon", "earth", "God",
+    };
+}
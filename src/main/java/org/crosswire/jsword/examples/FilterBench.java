@@ -0,0 +1,125 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.examples;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookFilters;
+import org.crosswire.jsword.book.Books;
+import org.crosswire.jsword.book.filter.osis.OSISFilter;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.passage.Key;
+
+/**
+ * FilterBench is a command line utility that times the OSIS filter over the
+ * verses of an installed OSIS Bible, building them directly and then with an
+ * XML parser.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class FilterBench {
+    private FilterBench() {
+    }
+
+    /**
+     * Time the filter over a book.
+     * 
+     * @param args the initials of the book and the number of rounds
+     * @throws BookException if the book cannot be read
+     */
+    public static void main(String[] args) throws BookException {
+        Book book = null;
+        if (args.length > 0) {
+            book = Books.installed().getBook(args[0]);
+        } else {
+            for (Book bible : Books.installed().getBooks(BookFilters.getOnlyBibles())) {
+                if ("OSIS".equalsIgnoreCase(bible.getBookMetaData().getProperty(SwordBookMetaData.KEY_SOURCE_TYPE))) {
+                    book = bible;
+                    break;
+                }
+            }
+        }
+
+        if (book == null) {
+            usage();
+            return;
+        }
+
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        // Read the verses first, so that only the filter is timed
+        List<Key> keys = new ArrayList<Key>();
+        List<String> verses = new ArrayList<String>();
+        for (Key key : book.getGlobalKeyList()) {
+            String verse = book.getRawText(key);
+            if (verse.length() > 0) {
+                keys.add(key);
+                verses.add(verse);
+            }
+        }
+
+        boolean tokenize = OSISFilter.isTokenize();
+        try {
+            // The first pass of each warms up the VM
+            for (int i = 0; i <= rounds; i++) {
+                OSISFilter.setTokenize(false);
+                long parsed = time(book, keys, verses);
+                OSISFilter.setTokenize(true);
+                long tokenized = time(book, keys, verses);
+                if (i > 0) {
+                    System.out.println("Filtered " + verses.size() + " verses of '" + book.getInitials() + "': parsed " + parsed + "ms, tokenized " + tokenized + "ms");
+                }
+            }
+        } finally {
+            OSISFilter.setTokenize(tokenize);
+        }
+    }
+
+    /**
+     * Filter every verse once.
+     * 
+     * @param book the book of the verses
+     * @param keys the key of each verse
+     * @param verses the text of each verse
+     * @return the time taken in milliseconds
+     */
+    private static long time(Book book, List<Key> keys, List<String> verses) {
+        OSISFilter filter = new OSISFilter();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < verses.size(); i++) {
+            filter.toOSIS(book, keys.get(i), verses.get(i));
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Print a usage message to stdout
+     */
+    private static void usage() {
+        System.out.println("Usage: FilterBench [<book> [<rounds>]]");
+        System.out.println("  where <book> is the initials of an installed OSIS Bible,");
+        System.out.println("  by default the first that is installed,");
+        System.out.println("  and <rounds> is the number of times to filter it, by default 5.");
+    }
+}
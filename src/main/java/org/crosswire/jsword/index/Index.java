@@ -45,6 +45,50 @@ public interface Index {
      */
     Key find(String query) throws BookException;
 
+    /**
+     * Find the set of references that satisfy the query, only among those in
+     * a scope. The index should restrict the search itself, so that no
+     * reference outside the scope is found only to be discarded.
+     * 
+     * @param query
+     *            The text to search for
+     * @param scope
+     *            The references to which the search is restricted, or null
+     *            for no restriction
+     * @return The references to the word that are in the scope
+     * @throws BookException 
+     */
+    Key find(String query, Key scope) throws BookException;
+
+    /**
+     * Find the set of references that satisfy the query, only among those in
+     * a scope, modified as given rather than by the modifier of this index.
+     * This changes nothing in the index, so that one index may be searched by
+     * many threads at once, each with a modifier of its own.
+     * 
+     * @param query
+     *            The text to search for
+     * @param scope
+     *            The references to which the search is restricted, or null
+     *            for no restriction
+     * @param modifier
+     *            how to modify the search and its results, or null for none
+     * @return The references to the word that are in the scope
+     * @throws BookException 
+     */
+    Key find(String query, Key scope, SearchModifier modifier) throws BookException;
+
+    /**
+     * Estimate how many references a query would find, from what the index
+     * knows without searching, so that the cheaper parts of a search can be
+     * done first.
+     * 
+     * @param query
+     *            The text to search for
+     * @return the estimate, or -1 if none can be made
+     */
+    int estimate(String query);
+
     /**
      * An index must be able to create KeyLists for users in a similar way to
      * the Book that it is indexing.
@@ -60,7 +104,9 @@ public interface Index {
 
     /**
      * Set any modifier for the current and subsequent search. Using null will
-     * clear the search modifier.
+     * clear the search modifier. As this is shared by all users of the index,
+     * a search that is made at the same time as others should instead give
+     * its modifier to {@link #find(String, Key, SearchModifier)}.
      * 
      * @param modifier
      *            how to modify the search and its results.
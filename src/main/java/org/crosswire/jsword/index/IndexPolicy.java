@@ -78,6 +78,15 @@ public interface IndexPolicy {
      */
     int getRAMBufferSize();
 
+    /**
+     * The number of threads that may turn the text of a Book
+     * into documents for the index at the same time.
+     * Adapter default: the number of available processors.
+     * 
+     * @return the number of threads used to create the index.
+     */
+    int getParallelism();
+
     /**
      * Indicates whether one Book can be indexed at a time.
      * When false, there is no upper bound on the number of
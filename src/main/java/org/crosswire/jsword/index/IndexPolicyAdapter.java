@@ -73,6 +73,13 @@ public class IndexPolicyAdapter implements IndexPolicy {
         return 16;
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.IndexPolicy#getParallelism()
+     */
+    public int getParallelism() {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.index.IndexPolicy#isSerial()
      */
@@ -181,6 +181,6 @@ public final class InstalledIndex {
             + "\nContains Default index version, used for all searchable books, if book specific over-ride is not found.\n"
             + "JSword adds a Book specific installed index version over-ride property, after an index creation. ";
 
-    private static InstalledIndex myInstance = new InstalledIndex();
     private static final Logger log = LoggerFactory.getLogger(InstalledIndex.class);
+    private static InstalledIndex myInstance = new InstalledIndex();
 }
@@ -24,21 +24,38 @@ import java.io.File;
 import java.io.IOException;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 
 import org.apache.lucene.analysis.Analyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.PhraseQuery;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
 import org.apache.lucene.search.Searcher;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopScoreDocCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.ReaderUtil;
 import org.apache.lucene.util.Version;
 import org.crosswire.common.progress.JobManager;
 import org.crosswire.common.progress.Progress;
@@ -59,11 +76,16 @@ import org.crosswire.jsword.index.lucene.analysis.LuceneAnalyzer;
 import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.AbstractPassage;
 import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.KeyUtil;
 import org.crosswire.jsword.passage.NoSuchKeyException;
 import org.crosswire.jsword.passage.NoSuchVerseException;
+import org.crosswire.jsword.passage.Passage;
 import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.RestrictionType;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.passage.VerseFactory;
+import org.crosswire.jsword.passage.VerseKey;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.system.Versifications;
 import org.jdom2.Element;
@@ -121,12 +143,25 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
      */
     public static final String FIELD_INTRO = "intro";
 
+    /**
+     * The Lucene field for the ordinal of a verse, plus one,
+     * so that a search can find verses without reading stored documents.
+     * This is not one of Sword's fields.
+     */
+    public static final String FIELD_ORDINAL = "ordinal";
+
     /**
      * An estimate of the percent of time spent indexing.
      * The remaining time, if any, is spent doing cleanup.
      */
     private static final int WORK_ESTIMATE = 98;
 
+    /**
+     * The number of keys, per worker, that may wait between the stages
+     * of index creation.
+     */
+    private static final int QUEUE_DEPTH = 16;
+
     /**
      * Read an existing index and use it.
      * 
@@ -187,7 +222,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
 
         try {
             // When misconfigured, this can throw errors.
-            Analyzer analyzer = new LuceneAnalyzer(book);
+            Analyzer analyzer = getAnalyzer();
 
             // Lock on metadata to allow creation of multiple indexes, so long as they are on different books.
             // Otherwise lock on a single object to make this serial
@@ -203,7 +238,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                     writer = new IndexWriter(destination, analyzer, true, IndexWriter.MaxFieldLength.UNLIMITED);
                     writer.setRAMBufferSizeMB(policy.getRAMBufferSize());
 
-                    generateSearchIndexImpl(job, errors, writer, book.getGlobalKeyList(), 0, policy);
+                    generateSearchIndexImpl(job, errors, writer, book.getGlobalKeyList(), policy);
 
                 } finally {
                     if (writer != null) {
@@ -265,21 +300,32 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
      * @see org.crosswire.jsword.index.Index#find(java.lang.String)
      */
     public Key find(String search) throws BookException {
+        return find(search, null);
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.Index#find(java.lang.String, org.crosswire.jsword.passage.Key)
+     */
+    public Key find(String search, Key scope) throws BookException {
+        return find(search, scope, getSearchModifier());
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.Index#find(java.lang.String, org.crosswire.jsword.passage.Key, org.crosswire.jsword.index.search.SearchModifier)
+     */
+    public Key find(String search, Key scope, SearchModifier modifier) throws BookException {
         String v11nName = book.getBookMetaData().getProperty("Versification").toString();
         Versification v11n = Versifications.instance().getVersification(v11nName);
 
-        SearchModifier modifier = getSearchModifier();
         Key results = null;
+        ScopeFilter filter = null;
 
         if (search != null) {
             Throwable theCause = null;
             try {
-                Analyzer analyzer = new LuceneAnalyzer(book);
-
-                QueryParser parser = new QueryParser(Version.LUCENE_29, LuceneIndex.FIELD_BODY, analyzer);
-                parser.setAllowLeadingWildcard(true);
-                Query query = parser.parse(search);
+                Query query = parse(search);
                 log.info("ParsedQuery- {}", query.toString());
+                filter = getScopeFilter(scope, v11n);
 
                 // For ranking we use a PassageTally
                 if (modifier != null && modifier.isRanked()) {
@@ -289,18 +335,9 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                     results = tally;
 
                     TopScoreDocCollector collector = TopScoreDocCollector.create(modifier.getMaxResults(), false);
-                    searcher.search(query, collector);
+                    searcher.search(query, filter, collector);
                     tally.setTotal(collector.getTotalHits());
-                    ScoreDoc[] hits = collector.topDocs().scoreDocs;
-                    for (int i = 0; i < hits.length; i++) {
-                        int docId = hits[i].doc;
-                        Document doc = searcher.doc(docId);
-                        Key key = VerseFactory.fromString(v11n, doc.get(LuceneIndex.FIELD_KEY));
-                        // PassageTally understands a score of 0 as the verse
-                        // not participating
-                        int score = (int) (hits[i].score * 100 + 1);
-                        tally.add(key, score);
-                    }
+                    addRanked(tally, v11n, collector.topDocs().scoreDocs);
                     tally.lowerNormalizeProtection();
                     tally.lowerEventSuppressionAndTest();
                 } else {
@@ -313,7 +350,7 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
                         passage.raiseEventSuppresion();
                         passage.raiseNormalizeProtection();
                     }
-                    searcher.search(query, new VerseCollector(v11n, searcher, results));
+                    searcher.search(query, filter, new VerseCollector(v11n, searcher, results));
                     if (passage != null) {
                         passage.lowerNormalizeProtection();
                         passage.lowerEventSuppressionAndTest();
@@ -341,10 +378,213 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
             } else {
                 results = book.createEmptyKeyList();
             }
+        } else if (scope != null && (filter == null || !filter.isExact())) {
+            // The search could not be restricted to the scope, or not wholly
+            results.retainAll(scope);
         }
         return results;
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.index.Index#estimate(java.lang.String)
+     */
+    public int estimate(String search) {
+        if (search == null) {
+            return 0;
+        }
+
+        try {
+            return estimate(parse(search));
+        } catch (ParseException e) {
+            return -1;
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Estimate the number of documents that a query matches from the number
+     * of documents having each of its terms. A query that is not understood,
+     * such as a wildcard, might match every document.
+     * 
+     * @param query the parsed search
+     * @return the estimate
+     * @throws IOException if the index cannot be read
+     */
+    private int estimate(Query query) throws IOException {
+        int all = searcher.maxDoc();
+        if (query instanceof TermQuery) {
+            return searcher.docFreq(((TermQuery) query).getTerm());
+        }
+
+        if (query instanceof PhraseQuery) {
+            // Each document has every term
+            int least = all;
+            for (Term term : ((PhraseQuery) query).getTerms()) {
+                least = Math.min(least, searcher.docFreq(term));
+            }
+            return least;
+        }
+
+        if (query instanceof BooleanQuery) {
+            // A document has every required clause or, without any, one of the others
+            int required = all;
+            boolean hasRequired = false;
+            long optional = 0;
+            for (BooleanClause clause : ((BooleanQuery) query).getClauses()) {
+                if (clause.isRequired()) {
+                    hasRequired = true;
+                    required = Math.min(required, estimate(clause.getQuery()));
+                } else if (!clause.isProhibited()) {
+                    optional += estimate(clause.getQuery());
+                }
+            }
+            return hasRequired ? required : (int) Math.min(optional, all);
+        }
+
+        return all;
+    }
+
+    /**
+     * Get a filter restricting a search to a scope, from the cache if the
+     * scope has been used recently.
+     * 
+     * @param scope the verses to which the search is restricted, if any
+     * @param v11n the versification of the book
+     * @return the filter or null if the scope cannot be filtered by ordinal
+     */
+    private ScopeFilter getScopeFilter(Key scope, Versification v11n) {
+        if (!(scope instanceof VerseKey) || !v11n.equals(((VerseKey) scope).getVersification())) {
+            return null;
+        }
+
+        // Such a scope is likely the result of another search and not to be seen again
+        Passage passage = KeyUtil.getPassage(scope);
+        if (hasLongName(passage)) {
+            return new ScopeFilter(passage);
+        }
+        String name = passage.getOsisRef();
+        if (name.length() > MAX_SCOPE_NAME) {
+            return new ScopeFilter(passage);
+        }
+
+        synchronized (scopes) {
+            ScopeFilter filter = scopes.get(name);
+            if (filter != null) {
+                return filter;
+            }
+        }
+
+        ScopeFilter filter = new ScopeFilter(passage);
+        synchronized (scopes) {
+            scopes.put(name, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Whether the name of a scope is sure to be too long to remember, without
+     * making the name. Each range takes at least 2 characters of the name,
+     * as in "Ps", and a space, so only the first few ranges are counted.
+     * 
+     * @param scope the verses to which the search is restricted
+     * @return true if the name is too long
+     */
+    private static boolean hasLongName(Passage scope) {
+        Iterator<VerseRange> ranges = scope.rangeIterator(RestrictionType.NONE);
+        for (int length = -1; ranges.hasNext(); length += 3) {
+            if (length > MAX_SCOPE_NAME) {
+                return true;
+            }
+            ranges.next();
+        }
+        return false;
+    }
+
+    /**
+     * Add the ranked hits to a tally. Where the index has the ordinal of a
+     * hit, it is added by ordinal, otherwise by its stored key.
+     * 
+     * @param tally the tally to add to
+     * @param v11n the versification of the book
+     * @param hits the best hits of a search
+     * @throws IOException if the index cannot be read
+     * @throws NoSuchVerseException if a stored key is not a verse
+     */
+    private void addRanked(PassageTally tally, Versification v11n, ScoreDoc[] hits) throws IOException, NoSuchVerseException {
+        // The hits are numbered across the whole index, but the ordinals are
+        // cached for each segment, as VerseCollector uses them.
+        List<IndexReader> readers = new ArrayList<IndexReader>();
+        ReaderUtil.gatherSubReaders(readers, searcher.getIndexReader());
+        int[] starts = new int[readers.size()];
+        int[][] ordinals = new int[readers.size()][];
+        int start = 0;
+        for (int i = 0; i < starts.length; i++) {
+            starts[i] = start;
+            start += readers.get(i).maxDoc();
+        }
+
+        for (int i = 0; i < hits.length; i++) {
+            int docId = hits[i].doc;
+            // PassageTally understands a score of 0 as the verse
+            // not participating
+            int score = (int) (hits[i].score * 100 + 1);
+
+            int reader = ReaderUtil.subIndex(docId, starts);
+            if (ordinals[reader] == null) {
+                ordinals[reader] = FieldCache.DEFAULT.getInts(readers.get(reader), FIELD_ORDINAL);
+            }
+            // The ordinal is stored one more than it is so that 0 means none.
+            int ordinal = ordinals[reader][docId - starts[reader]] - 1;
+            if (ordinal >= 0) {
+                tally.addVersifiedOrdinal(ordinal, score);
+            } else {
+                Document doc = searcher.doc(docId);
+                tally.add(VerseFactory.fromString(v11n, doc.get(LuceneIndex.FIELD_KEY)), score);
+            }
+        }
+    }
+
+    /**
+     * Get the parsed form of a search, from the cache if it has been
+     * parsed recently.
+     * 
+     * @param search the search as entered
+     * @return the parsed search
+     * @throws ParseException if the search is not valid
+     */
+    private Query parse(String search) throws ParseException {
+        synchronized (queries) {
+            Query query = queries.get(search);
+            if (query != null) {
+                return query;
+            }
+        }
+
+        // A QueryParser is cheap but it cannot be shared between threads.
+        QueryParser parser = new QueryParser(Version.LUCENE_29, LuceneIndex.FIELD_BODY, getAnalyzer());
+        parser.setAllowLeadingWildcard(true);
+        Query query = parser.parse(search);
+
+        synchronized (queries) {
+            queries.put(search, query);
+        }
+        return query;
+    }
+
+    /**
+     * The analyzer for this book, which is created when first needed
+     * and then shared by all searches.
+     * 
+     * @return the analyzer
+     */
+    private synchronized Analyzer getAnalyzer() {
+        if (analyzer == null) {
+            analyzer = new LuceneAnalyzer(book);
+        }
+        return analyzer;
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.index.Index#getKey(java.lang.String)
      */
@@ -363,139 +603,328 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
     }
 
     /**
-     * Dig down into a Key indexing as we go.
-     * @param policy 
+     * Index the leaf keys of a Key. This is done by a pipeline: a reader
+     * walks the key tree, a pool of workers turns each key into a Document,
+     * and the calling thread adds the Documents to the index, reporting
+     * progress as it goes. The stages are joined by bounded queues so that
+     * the workers cannot run too far ahead of the writer.
+     *
+     * @param job the progress of the indexing
+     * @param errors the keys that could not be indexed
+     * @param writer the index being written
+     * @param key the keys to index
+     * @param policy how the index is to be built
      */
-    private void generateSearchIndexImpl(Progress job, List<Key> errors, IndexWriter writer, Key key, int count, IndexPolicy policy) throws BookException, IOException {
-        String v11nName = null;
-        if (book.getBookMetaData().getProperty("Versification") != null) {
-            v11nName = book.getBookMetaData().getProperty("Versification").toString();
-        }
-        Versification v11n = Versifications.instance().getVersification(v11nName);
-        boolean includeStrongs = book.getBookMetaData().hasFeature(FeatureType.STRONGS_NUMBERS) && policy.isStrongsIndexed();
-        boolean includeXrefs = book.getBookMetaData().hasFeature(FeatureType.SCRIPTURE_REFERENCES) && policy.isXrefIndexed();
-        boolean includeNotes = book.getBookMetaData().hasFeature(FeatureType.FOOTNOTES) && policy.isNoteIndexed();
-        boolean includeHeadings = book.getBookMetaData().hasFeature(FeatureType.HEADINGS) && policy.isTitleIndexed();
-        boolean includeMorphology = book.getBookMetaData().hasFeature(FeatureType.MORPHOLOGY) && policy.isMorphIndexed();
-
-        String oldRootName = "";
-        int percent = 0;
-        String rootName = "";
-        BookData data = null;
-        Element osis = null;
-
-        // Set up for reuse.
-        Document doc = new Document();
-        Field keyField = new Field(FIELD_KEY, "", Field.Store.YES, Field.Index.NOT_ANALYZED, Field.TermVector.NO);
-        Field bodyField = new Field(FIELD_BODY, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field introField = new Field(FIELD_INTRO, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field strongField = new Field(FIELD_STRONG, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.YES);
-        Field xrefField = new Field(FIELD_XREF, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field noteField = new Field(FIELD_NOTE, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field headingField = new Field(FIELD_HEADING, "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-        Field morphologyField  = new Field(FIELD_MORPHOLOGY , "", Field.Store.NO, Field.Index.ANALYZED, Field.TermVector.NO);
-
-        int size = key.getCardinality();
-        int subCount = count;
-        log.debug("Number of keys = {}", Integer.toString(size));
-        for (Key subkey : key) {
-            // Bibles and verse based commentaries don't have keys with children.
-            // However, tree keyed Books do. So we only index the leaf keys.
-            // FIXME(DMS): Should not use recursion!!!!
-            if (subkey.canHaveChildren()) {
-                generateSearchIndexImpl(job, errors, writer, subkey, subCount, policy);
-                continue;
+    private void generateSearchIndexImpl(Progress job, List<Key> errors, IndexWriter writer, Key key, IndexPolicy policy) throws IOException {
+        final int parallelism = Math.max(1, policy.getParallelism());
+        final BlockingQueue<IndexEntry> keys = new ArrayBlockingQueue<IndexEntry>(parallelism * QUEUE_DEPTH);
+        final BlockingQueue<IndexEntry> documents = new ArrayBlockingQueue<IndexEntry>(parallelism * QUEUE_DEPTH);
+        final DocumentBuilder builder = new DocumentBuilder(policy);
+
+        final String threadName = "Index " + book.getInitials();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism + 1, new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, threadName);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        try {
+            pool.execute(new KeyReader(key, keys, parallelism));
+            for (int i = 0; i < parallelism; i++) {
+                pool.execute(new DocumentWorker(builder, keys, documents));
             }
 
-            data = new BookData(book, subkey);
-            osis = null;
+            String oldRootName = "";
+            int percent = 0;
+            int size = key.getCardinality();
+            int count = 0;
+            int running = parallelism;
+            log.debug("Number of keys = {}", Integer.toString(size));
+            while (running > 0) {
+                IndexEntry entry = documents.take();
+                if (entry == IndexEntry.END) {
+                    running--;
+                    continue;
+                }
 
-            try {
-                osis = data.getOsisFragment(false);
-            } catch (BookException e) {
-                errors.add(subkey);
-                continue;
+                // Whatever went wrong in another stage goes wrong here too.
+                if (entry.problem instanceof Error) {
+                    throw (Error) entry.problem;
+                }
+                if (entry.problem != null) {
+                    throw (RuntimeException) entry.problem;
+                }
+
+                if (entry.failed) {
+                    errors.add(entry.key);
+                } else if (entry.doc != null) {
+                    writer.addDocument(entry.doc);
+                }
+
+                // report progress
+                String rootName = entry.key.getRootName();
+                if (!rootName.equals(oldRootName)) {
+                    oldRootName = rootName;
+                    // Note, this does not cause progress to be updated
+                    // It will show up the next time progress is updated.
+                    job.setSectionName(rootName);
+                }
+
+                count++;
+                int oldPercent = percent;
+                percent = Math.min(WORK_ESTIMATE, WORK_ESTIMATE * count / size);
+
+                // Only send out a max of 95 progress updates
+                if (oldPercent != percent) {
+                    job.setWork(percent);
+                }
+
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            // The job was cancelled. Leave the thread as we found it.
+            Thread.currentThread().interrupt();
+        } finally {
+            // Stop the reader and the workers if they are still going.
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Turns keys into Documents. It is shared by the workers and holds no
+     * state that changes while indexing.
+     */
+    private final class DocumentBuilder {
+        DocumentBuilder(IndexPolicy policy) {
+            String v11nName = null;
+            if (book.getBookMetaData().getProperty("Versification") != null) {
+                v11nName = book.getBookMetaData().getProperty("Versification").toString();
             }
+            v11n = Versifications.instance().getVersification(v11nName);
+            includeStrongs = book.getBookMetaData().hasFeature(FeatureType.STRONGS_NUMBERS) && policy.isStrongsIndexed();
+            includeXrefs = book.getBookMetaData().hasFeature(FeatureType.SCRIPTURE_REFERENCES) && policy.isXrefIndexed();
+            includeNotes = book.getBookMetaData().hasFeature(FeatureType.FOOTNOTES) && policy.isNoteIndexed();
+            includeHeadings = book.getBookMetaData().hasFeature(FeatureType.HEADINGS) && policy.isTitleIndexed();
+            includeMorphology = book.getBookMetaData().hasFeature(FeatureType.MORPHOLOGY) && policy.isMorphIndexed();
+        }
 
-            // Remove all fields from the document
-            doc.getFields().clear();
+        /**
+         * Build the Document for a key.
+         *
+         * @param key the key to index
+         * @return the Document or null if there is nothing but the key to index
+         * @throws BookException if the text of the key could not be read
+         */
+        Document build(Key key) throws BookException {
+            Element osis = new BookData(book, key).getOsisFragment(false);
 
             // Do the actual indexing
             // Always add the key
-            keyField.setValue(subkey.getOsisRef());
-            doc.add(keyField);
+            Document doc = new Document();
+            doc.add(new Field(FIELD_KEY, key.getOsisRef(), Field.Store.YES, Field.Index.NOT_ANALYZED, Field.TermVector.NO));
 
-            if (subkey instanceof Verse && ((Verse) subkey).getVerse() == 0) {
-                addField(doc, introField, OSISUtil.getCanonicalText(osis));
+            if (key instanceof Verse && ((Verse) key).getVerse() == 0) {
+                addField(doc, FIELD_INTRO, OSISUtil.getCanonicalText(osis), Field.TermVector.NO);
             } else {
-                addField(doc, bodyField, OSISUtil.getCanonicalText(osis));
+                addField(doc, FIELD_BODY, OSISUtil.getCanonicalText(osis), Field.TermVector.NO);
             }
 
             if (includeStrongs) {
-                addField(doc, strongField, OSISUtil.getStrongsNumbers(osis));
+                addField(doc, FIELD_STRONG, OSISUtil.getStrongsNumbers(osis), Field.TermVector.YES);
             }
 
             if (includeXrefs) {
                 // We pass book and key because the xref may not be valid and it needs to be reported.
-                addField(doc, xrefField, OSISUtil.getReferences(this.book, subkey, v11n, osis));
+                addField(doc, FIELD_XREF, OSISUtil.getReferences(book, key, v11n, osis), Field.TermVector.NO);
             }
 
             if (includeNotes) {
-                addField(doc, noteField, OSISUtil.getNotes(osis));
+                addField(doc, FIELD_NOTE, OSISUtil.getNotes(osis), Field.TermVector.NO);
             }
 
             if (includeHeadings) {
-                String heading = OSISUtil.getHeadings(osis);
-                addField(doc, headingField, heading);
+                addField(doc, FIELD_HEADING, OSISUtil.getHeadings(osis), Field.TermVector.NO);
             }
 
             if (includeMorphology) {
-                addField(doc, morphologyField, OSISUtil.getMorphologiesWithStrong(osis));
+                addField(doc, FIELD_MORPHOLOGY, OSISUtil.getMorphologiesWithStrong(osis), Field.TermVector.NO);
             }
 
-            // Add the document if we added more than just the key.
-            if (doc.getFields().size() > 1) {
-                writer.addDocument(doc);
+            // Only index the document if we added more than just the key.
+            if (doc.getFields().size() == 1) {
+                return null;
             }
 
-            // report progress
-            rootName = subkey.getRootName();
-            if (!rootName.equals(oldRootName)) {
-                oldRootName = rootName;
-                // Note, this does not cause progress to be updated
-                // It will show up the next time progress is updated.
-                job.setSectionName(rootName);
+            if (key instanceof Verse) {
+                int ordinal = ((Verse) key).getOrdinal() + 1;
+                doc.add(new Field(FIELD_ORDINAL, Integer.toString(ordinal), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS, Field.TermVector.NO));
             }
+            return doc;
+        }
 
-            subCount++;
-            int oldPercent = percent;
-            percent = WORK_ESTIMATE * subCount / size;
+        private final Versification v11n;
+        private final boolean includeStrongs;
+        private final boolean includeXrefs;
+        private final boolean includeNotes;
+        private final boolean includeHeadings;
+        private final boolean includeMorphology;
+    }
 
-            // Only send out a max of 95 progress updates
-            if (oldPercent != percent) {
-                job.setWork(percent);
+    /**
+     * The first stage of the pipeline. It walks the key tree, queuing the
+     * leaf keys for the workers. When it stops, however it stops, it queues
+     * an end marker for each worker.
+     */
+    private static final class KeyReader implements Runnable {
+        KeyReader(Key key, BlockingQueue<IndexEntry> keys, int workers) {
+            this.key = key;
+            this.keys = keys;
+            this.workers = workers;
+        }
+
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            Throwable problem = null;
+            try {
+                // Bibles and verse based commentaries don't have keys with children.
+                // However, tree keyed Books do. So we only index the leaf keys.
+                LinkedList<Iterator<Key>> stack = new LinkedList<Iterator<Key>>();
+                stack.addFirst(key.iterator());
+                while (!stack.isEmpty()) {
+                    Iterator<Key> iter = stack.getFirst();
+                    if (!iter.hasNext()) {
+                        stack.removeFirst();
+                        continue;
+                    }
+                    Key subkey = iter.next();
+                    if (subkey.canHaveChildren()) {
+                        stack.addFirst(subkey.iterator());
+                    } else {
+                        keys.put(new IndexEntry(subkey));
+                    }
+                }
+            } catch (InterruptedException e) {
+                // The indexing has been stopped.
+                // Keep the interrupt so the end markers are not waited upon.
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                problem = e;
+            } catch (Error e) {
+                problem = e;
+            } finally {
+                // Without the end markers the writer would wait for ever.
+                try {
+                    if (problem != null) {
+                        keys.put(new IndexEntry(problem));
+                    }
+                    for (int i = 0; i < workers; i++) {
+                        keys.put(IndexEntry.END);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
+        }
+
+        private final Key key;
+        private final BlockingQueue<IndexEntry> keys;
+        private final int workers;
+    }
+
+    /**
+     * The middle stage of the pipeline. Any number of these take keys from
+     * the reader, build their Documents and pass them to the writer. Each
+     * passes an end marker to the writer when it stops.
+     */
+    private static final class DocumentWorker implements Runnable {
+        DocumentWorker(DocumentBuilder builder, BlockingQueue<IndexEntry> keys, BlockingQueue<IndexEntry> documents) {
+            this.builder = builder;
+            this.keys = keys;
+            this.documents = documents;
+        }
 
-            // This could take a long time ...
-            Thread.yield();
-            if (Thread.currentThread().isInterrupted()) {
-                break;
+        /* (non-Javadoc)
+         * @see java.lang.Runnable#run()
+         */
+        public void run() {
+            try {
+                IndexEntry entry = keys.take();
+                while (entry != IndexEntry.END) {
+                    if (entry.problem == null) {
+                        try {
+                            entry.doc = builder.build(entry.key);
+                        } catch (BookException e) {
+                            entry.failed = true;
+                        } catch (RuntimeException e) {
+                            entry.problem = e;
+                        } catch (Error e) {
+                            entry.problem = e;
+                        }
+                    }
+                    documents.put(entry);
+                    entry = keys.take();
+                }
+            } catch (InterruptedException e) {
+                // The indexing has been stopped.
+                // Keep the interrupt so the end marker is not waited upon.
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    documents.put(IndexEntry.END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
             }
         }
+
+        private final DocumentBuilder builder;
+        private final BlockingQueue<IndexEntry> keys;
+        private final BlockingQueue<IndexEntry> documents;
+    }
+
+    /**
+     * A key as it passes through the pipeline, picking up its Document or
+     * what went wrong along the way.
+     */
+    private static final class IndexEntry {
+        IndexEntry(Key key) {
+            this.key = key;
+        }
+
+        IndexEntry(Throwable problem) {
+            this.key = null;
+            this.problem = problem;
+        }
+
+        /**
+         * Marks the end of the work of a stage.
+         */
+        static final IndexEntry END = new IndexEntry((Key) null);
+
+        final Key key;
+        Document doc;
+        boolean failed;
+        Throwable problem;
     }
 
     /**
-     * Add the text to the Field and put the Field in the document,
+     * Add a Field with the text to the document,
      * ignoring null and empty text.
      * 
      * @param doc The Document to which the Field should be added
-     * @param field The Field to add
+     * @param name The name of the Field to add
      * @param text The text for the field
+     * @param termVector Whether term vectors are to be stored
      */
-    private void addField(Document doc, Field field, String text) {
+    private static void addField(Document doc, String name, String text, Field.TermVector termVector) {
         if (text != null && text.length() > 0) {
-            field.setValue(text);
-            doc.add(field);
+            doc.add(new Field(name, text, Field.Store.NO, Field.Index.ANALYZED, termVector));
         }
     }
 
@@ -529,7 +958,67 @@ public class LuceneIndex extends AbstractIndex implements Closeable {
     /**
      * The Lucene search engine
      */
-    private Searcher searcher;
+    private IndexSearcher searcher;
+
+    /**
+     * The analyzer for this book. Lucene's analyzers are thread safe.
+     */
+    private Analyzer analyzer;
+
+    /**
+     * The most recently used searches, parsed. A parsed Query is not changed
+     * by searching, so it can be used again.
+     */
+    private final Map<String, Query> queries = new SearchCache<Query>(QUERY_CACHE_SIZE);
+
+    /**
+     * The most recently used scopes of searches, as filters. A filter keeps
+     * the documents in its scope for each segment of the index.
+     */
+    private final Map<String, ScopeFilter> scopes = new SearchCache<ScopeFilter>(SCOPE_CACHE_SIZE);
+
+    /**
+     * A map that forgets the least recently used entry when it becomes full.
+     */
+    private static final class SearchCache<V> extends LinkedHashMap<String, V> {
+        SearchCache(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.LinkedHashMap#removeEldestEntry(java.util.Map.Entry)
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > capacity;
+        }
+
+        /**
+         * The number of entries to remember
+         */
+        private final int capacity;
+
+        /**
+         * Serialization ID
+         */
+        private static final long serialVersionUID = 4425468574131567183L;
+    }
+
+    /**
+     * The number of parsed searches to remember.
+     */
+    private static final int QUERY_CACHE_SIZE = 64;
+
+    /**
+     * The number of search scopes to remember.
+     */
+    private static final int SCOPE_CACHE_SIZE = 16;
+
+    /**
+     * The longest name of a search scope that is remembered.
+     */
+    private static final int MAX_SCOPE_NAME = 256;
 
     /**
      * A synchronization lock point to prevent us from doing 2 index runs at a
@@ -22,10 +22,13 @@ import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
 import org.crosswire.jsword.index.query.Query;
 import org.crosswire.jsword.index.query.QueryBuilderFactory;
+import org.crosswire.jsword.index.query.QueryPlanner;
 import org.crosswire.jsword.index.search.DefaultSearchRequest;
 import org.crosswire.jsword.index.search.SearchRequest;
 import org.crosswire.jsword.index.search.Searcher;
 import org.crosswire.jsword.passage.Key;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * The central interface to all searching.
@@ -78,10 +81,15 @@ public class LuceneSearcher implements Searcher {
      * .index.search.SearchRequest)
      */
     public Key search(SearchRequest request) throws BookException {
-        index.setSearchModifier(request.getSearchModifier());
+        // The modifier goes with the search, so that the shared index is not changed
         Query query = QueryBuilderFactory.getQueryBuilder().parse(request.getRequest());
-        Key results = search(query);
-        index.setSearchModifier(null);
+        // Explaining the search costs more than a little, so only do it when it is shown
+        boolean explaining = log.isDebugEnabled();
+        QueryPlanner planner = new QueryPlanner(index, request.getSearchModifier(), explaining);
+        Key results = planner.find(query);
+        if (explaining) {
+            log.debug("Search for \"{}\":\n{}", request.getRequest(), planner.explain());
+        }
         return results;
     }
 
@@ -109,4 +117,9 @@ public class LuceneSearcher implements Searcher {
      * The index
      */
     private Index index;
+
+    /**
+     * The log stream
+     */
+    private static final Logger log = LoggerFactory.getLogger(LuceneSearcher.class);
 }
@@ -0,0 +1,144 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.FieldCache;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.util.OpenBitSet;
+import org.crosswire.jsword.passage.OrdinalIterator;
+import org.crosswire.jsword.passage.Passage;
+
+/**
+ * A filter that restricts a search to the verses of a passage, so that the
+ * collector never sees the documents of other verses. Documents are matched
+ * by their {@link LuceneIndex#FIELD_ORDINAL}, without loading them.
+ *
+ * <p>
+ * A document without an ordinal, as in an index built before the ordinal was
+ * added, cannot be placed and is let through. Then the filter is not exact
+ * and the results of the search must still be restricted to the passage.
+ * </p>
+ *
+ * <p>
+ * The documents of each segment are worked out once and kept for as long as
+ * the segment is open.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+final class ScopeFilter extends Filter {
+    /**
+     * Create a filter for the verses of a passage.
+     *
+     * @param scope
+     *            the verses to which searches are restricted, in the
+     *            versification of the index
+     */
+    ScopeFilter(Passage scope) {
+        this.ordinals = new BitSet(scope.getVersification().maximumOrdinal() + 1);
+        OrdinalIterator iter = scope.ordinalIterator();
+        while (iter.hasNext()) {
+            ordinals.set(iter.next());
+        }
+        this.exact = true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.apache.lucene.search.Filter#getDocIdSet(org.apache.lucene.index.IndexReader)
+     */
+    @Override
+    public DocIdSet getDocIdSet(IndexReader reader) throws IOException {
+        Object segment = reader.getFieldCacheKey();
+        synchronized (docSets) {
+            DocIdSet docs = docSets.get(segment);
+            if (docs != null) {
+                return docs;
+            }
+        }
+
+        DocIdSet docs = findDocs(reader);
+        synchronized (docSets) {
+            docSets.put(segment, docs);
+        }
+        return docs;
+    }
+
+    /**
+     * Find the documents of a segment that are in the passage.
+     *
+     * @param reader the reader of the segment
+     * @return the documents in the passage
+     * @throws IOException if the index cannot be read
+     */
+    private DocIdSet findDocs(IndexReader reader) throws IOException {
+        // This is cached for the life of the reader.
+        int[] docOrdinals = FieldCache.DEFAULT.getInts(reader, LuceneIndex.FIELD_ORDINAL);
+        OpenBitSet docs = new OpenBitSet(reader.maxDoc());
+        for (int doc = 0; doc < docOrdinals.length; doc++) {
+            // The ordinal is stored one more than it is so that 0 means none.
+            int ordinal = docOrdinals[doc] - 1;
+            if (ordinal < 0) {
+                docs.fastSet(doc);
+                exact = false;
+            } else if (ordinals.get(ordinal)) {
+                docs.fastSet(doc);
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Whether every document let through by this filter is in its passage.
+     * This is known only after the filter has been used.
+     *
+     * @return false if a document without an ordinal has been let through
+     */
+    boolean isExact() {
+        return exact;
+    }
+
+    /**
+     * The ordinals of the verses in the passage
+     */
+    private final BitSet ordinals;
+
+    /**
+     * The documents in the passage, for each segment that is open
+     */
+    private final transient Map<Object, DocIdSet> docSets = new WeakHashMap<Object, DocIdSet>();
+
+    /**
+     * Whether no document without an ordinal has been let through
+     */
+    private volatile boolean exact;
+
+    /**
+     * Serialization ID
+     */
+    private static final long serialVersionUID = -3263047917826425416L;
+}
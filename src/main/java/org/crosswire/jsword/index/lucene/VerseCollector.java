@@ -24,8 +24,10 @@ import java.io.IOException;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.FieldCache;
 import org.apache.lucene.search.Scorer;
 import org.apache.lucene.search.Searcher;
+import org.crosswire.jsword.passage.BitwisePassage;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.NoSuchVerseException;
 import org.crosswire.jsword.passage.VerseFactory;
@@ -34,6 +36,14 @@ import org.crosswire.jsword.versification.Versification;
 /**
  * A simple collector of verses that stores the verses in a Key.
  * 
+ * <p>
+ * When the results are a {@link BitwisePassage} and the index has a
+ * {@link LuceneIndex#FIELD_ORDINAL} for a document, the verse is added by its
+ * ordinal without loading the stored document. Otherwise, as with indexes
+ * built before the ordinal was added, the verse is parsed from the stored
+ * {@link LuceneIndex#FIELD_KEY}.
+ * </p>
+ * 
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
  */
@@ -50,6 +60,9 @@ public class VerseCollector extends Collector {
         this.v11n = v11n;
         this.searcher = searcher;
         this.results = results;
+        if (results instanceof BitwisePassage && v11n.equals(((BitwisePassage) results).getVersification())) {
+            this.passage = (BitwisePassage) results;
+        }
     }
 
     /*
@@ -70,6 +83,12 @@ public class VerseCollector extends Collector {
      */
     @Override
     public void collect(int docId) throws IOException {
+        // The ordinal is stored one more than it is so that 0 means none.
+        if (passage != null && ordinals[docId] > 0) {
+            passage.addVersifiedOrdinal(ordinals[docId] - 1);
+            return;
+        }
+
         Document doc = searcher.doc(docBase + docId);
         try {
             Key key = VerseFactory.fromString(v11n, doc.get(LuceneIndex.FIELD_KEY));
@@ -95,6 +114,10 @@ public class VerseCollector extends Collector {
     @Override
     public void setNextReader(IndexReader reader, int docBase) throws IOException {
         this.docBase = docBase;
+        if (passage != null) {
+            // This is cached for the life of the reader.
+            ordinals = FieldCache.DEFAULT.getInts(reader, LuceneIndex.FIELD_ORDINAL);
+        }
     }
 
     /*
@@ -113,4 +136,6 @@ public class VerseCollector extends Collector {
     private Versification v11n;
     private Searcher searcher;
     private Key results;
+    private BitwisePassage passage;
+    private int[] ordinals;
 }
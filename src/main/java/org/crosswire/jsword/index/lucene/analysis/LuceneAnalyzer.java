@@ -19,6 +19,7 @@
  */
 package org.crosswire.jsword.index.lucene.analysis;
 
+import java.io.IOException;
 import java.io.Reader;
 
 import org.apache.lucene.analysis.Analyzer;
@@ -78,6 +79,15 @@ public class LuceneAnalyzer extends Analyzer {
         return analyzer.tokenStream(fieldName, reader);
     }
 
+    /* (non-Javadoc)
+     * @see org.apache.lucene.analysis.Analyzer#reusableTokenStream(java.lang.String, java.io.Reader)
+     */
+    @Override
+    public TokenStream reusableTokenStream(String fieldName, Reader reader) throws IOException {
+        // Each field's analyzer keeps its own streams for each thread.
+        return analyzer.reusableTokenStream(fieldName, reader);
+    }
+
     private PerFieldAnalyzerWrapper analyzer;
     private static final Logger log = LoggerFactory.getLogger(LuceneAnalyzer.class);
 
@@ -68,6 +68,7 @@ public class StrongsNumberAnalyzer extends AbstractBookAnalyzer {
             setPreviousTokenStream(streams);
         } else {
             streams.getSource().reset(reader);
+            streams.getResult().reset(); // reset the StrongsNumberFilter's state
         }
         return streams.getResult();
     }
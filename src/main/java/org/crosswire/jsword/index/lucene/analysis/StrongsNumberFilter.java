@@ -111,6 +111,18 @@ public class StrongsNumberFilter extends AbstractBookTokenFilter {
         return true;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.apache.lucene.analysis.TokenFilter#reset()
+     */
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        // Forget the Strong's Number of the last string when the stream is reused
+        number = null;
+    }
+
     /* Define to quite FindBugs */
     @Override
     public boolean equals(Object obj) {
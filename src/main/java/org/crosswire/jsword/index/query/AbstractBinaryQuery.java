@@ -18,6 +18,10 @@
  */
 package org.crosswire.jsword.index.query;
 
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.passage.Key;
+
 /**
  * A binary query has a left query and right query.
  * 
@@ -36,6 +40,17 @@ public abstract class AbstractBinaryQuery implements BinaryQuery {
         rightQuery = theRightQuery;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index
+     * .Index)
+     */
+    public Key find(Index index) throws BookException {
+        return find(index, index.getSearchModifier());
+    }
+
     /**
      * @return Returns the leftQuery.
      */
@@ -19,6 +19,10 @@
  */
 package org.crosswire.jsword.index.query;
 
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.passage.Key;
+
 /**
  * A base query is the smallest unit of search that the index can perform.
  * 
@@ -36,6 +40,17 @@ public abstract class AbstractQuery implements Query {
         query = theQuery;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index
+     * .Index)
+     */
+    public Key find(Index index) throws BookException {
+        return find(index, index.getSearchModifier());
+    }
+
     /**
      * @return the query
      */
@@ -20,6 +20,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.PassageTally;
 
@@ -49,14 +50,23 @@ public class AndQuery extends AbstractBinaryQuery {
      * org.crosswire.jsword.index.search.parse.Query#find(org.crosswire.jsword
      * .index.search.Index)
      */
-    public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
+    public Key find(Index index, SearchModifier modifier) throws BookException {
+        // A range is best used to restrict the search of the other query
+        if (getLeftQuery() instanceof RangeQuery && getRightQuery() instanceof BaseQuery) {
+            Key range = getLeftQuery().find(index, modifier);
+            if (range.isEmpty()) {
+                return range;
+            }
+            return index.find(((BaseQuery) getRightQuery()).getQuery(), range, modifier);
+        }
+
+        Key left = getLeftQuery().find(index, modifier);
 
         if (left.isEmpty()) {
             return left;
         }
 
-        Key right = getRightQuery().find(index);
+        Key right = getRightQuery().find(index, modifier);
 
         if (right.isEmpty()) {
             return right;
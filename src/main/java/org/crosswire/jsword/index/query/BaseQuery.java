@@ -20,6 +20,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 
 /**
@@ -46,7 +47,7 @@ public class BaseQuery extends AbstractQuery {
      * org.crosswire.jsword.index.search.parse.Query#find(org.crosswire.jsword
      * .index.search.Index)
      */
-    public Key find(Index index) throws BookException {
-        return index.find(getQuery());
+    public Key find(Index index, SearchModifier modifier) throws BookException {
+        return index.find(getQuery(), null, modifier);
     }
 }
@@ -21,6 +21,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 
 /**
@@ -43,8 +44,19 @@ public class NullQuery implements Query {
      * org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index
      * .search.Index)
      */
+    public Key find(Index index, SearchModifier modifier) throws BookException {
+        return index.find(null, null, modifier);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index
+     * .Index)
+     */
     public Key find(Index index) throws BookException {
-        return index.find(null);
+        return find(index, index.getSearchModifier());
     }
 
 }
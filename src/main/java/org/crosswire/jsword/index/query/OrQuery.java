@@ -20,6 +20,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.PassageTally;
 
@@ -41,11 +42,11 @@ public class OrQuery extends AbstractBinaryQuery {
     }
 
     /* (non-Javadoc)
-     * @see org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index.Index)
+     * @see org.crosswire.jsword.index.query.Query#find(org.crosswire.jsword.index.Index, org.crosswire.jsword.index.search.SearchModifier)
      */
-    public Key find(Index index) throws BookException {
-        Key left = getLeftQuery().find(index);
-        Key right = getRightQuery().find(index);
+    public Key find(Index index, SearchModifier modifier) throws BookException {
+        Key left = getLeftQuery().find(index, modifier);
+        Key right = getRightQuery().find(index, modifier);
 
         if (left.isEmpty()) {
             return right;
@@ -21,6 +21,7 @@ package org.crosswire.jsword.index.query;
 
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 
 /**
@@ -31,7 +32,8 @@ import org.crosswire.jsword.passage.Key;
  */
 public interface Query {
     /**
-     * Find the keys that match the query in the index
+     * Find the keys that match the query in the index, modified by the
+     * modifier of the index.
      * 
      * @param index
      *            the index to search
@@ -39,4 +41,18 @@ public interface Query {
      * @throws BookException
      */
     Key find(Index index) throws BookException;
+
+    /**
+     * Find the keys that match the query in the index, modified as given
+     * rather than by the modifier of the index. The index is not changed, so
+     * searches of one index may be made by many threads at once.
+     * 
+     * @param index
+     *            the index to search
+     * @param modifier
+     *            how to modify the search and its results, or null for none
+     * @return the set of keys that match
+     * @throws BookException
+     */
+    Key find(Index index, SearchModifier modifier) throws BookException;
 }
@@ -0,0 +1,427 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.query;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
+import org.crosswire.jsword.passage.BitwisePassage;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.RestrictionType;
+import org.crosswire.jsword.passage.VerseKey;
+
+/**
+ * Finds the keys that match a query as the query itself would, but with less
+ * work. Where a query combines two others, the one estimated by the index to
+ * find fewer keys is done first. When it finds nothing, the other is not done
+ * at all. Otherwise what it found is the scope to which the index restricts
+ * the search of the other. When one side of an OrQuery already has every
+ * verse, the other is not done.
+ *
+ * <p>
+ * Verses are kept as bitmaps of ordinals, so that they are combined a word at
+ * a time. When asked, the time spent on each part of the query is kept, to be
+ * shown by {@link #explain()}.
+ * </p>
+ *
+ * <p>
+ * A planner is for one search, made by one thread.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class QueryPlanner {
+    /**
+     * Create a planner for a search of an index, which does not explain it.
+     *
+     * @param index
+     *            the index to search
+     * @param modifier
+     *            how to modify the search and its results, or null for none
+     */
+    public QueryPlanner(Index index, SearchModifier modifier) {
+        this(index, modifier, false);
+    }
+
+    /**
+     * Create a planner for a search of an index.
+     *
+     * @param index
+     *            the index to search
+     * @param modifier
+     *            how to modify the search and its results, or null for none
+     * @param explaining
+     *            whether to keep what is needed to explain the search
+     */
+    public QueryPlanner(Index index, SearchModifier modifier, boolean explaining) {
+        this.index = index;
+        this.modifier = modifier;
+        this.explaining = explaining;
+        this.explanation = new ArrayList<String>();
+    }
+
+    /**
+     * Find the keys that match the query in the index.
+     *
+     * @param query
+     *            the query to find
+     * @return the set of keys that match
+     * @throws BookException
+     */
+    public Key find(Query query) throws BookException {
+        explanation.clear();
+        return find(query, null, 0);
+    }
+
+    /**
+     * Describe how the last query was found: each part of it, as a tree, with
+     * the estimated and actual number of keys it found and the time it took.
+     * A part that was not needed is shown as skipped.
+     *
+     * @return the explanation, one line for each part, or nothing when not explaining
+     */
+    public String explain() {
+        StringBuilder buf = new StringBuilder();
+        for (String line : explanation) {
+            buf.append(line).append('\n');
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Find the keys that match a part of the query, only among those in a
+     * scope.
+     *
+     * @param query the part of the query
+     * @param scope the keys to which the search is restricted, or null for none
+     * @param depth how deep the part is in the query
+     * @return the keys that match
+     * @throws BookException
+     */
+    private Key find(Query query, Key scope, int depth) throws BookException {
+        // Reserve the line, so that it comes before those of the parts
+        int line = explanation.size();
+        if (explaining) {
+            explanation.add(null);
+        }
+        long start = System.nanoTime();
+
+        Key result;
+        if (query instanceof BaseQuery) {
+            result = index.find(((BaseQuery) query).getQuery(), scope, modifier);
+        } else if (query instanceof NullQuery) {
+            result = index.find(null, null, modifier);
+        } else if (query instanceof AndQuery) {
+            result = findAnd((AndQuery) query, scope, depth);
+        } else if (query instanceof OrQuery) {
+            result = findOr((OrQuery) query, scope, depth);
+        } else if (query instanceof AndNotQuery) {
+            result = findAndNot((AndNotQuery) query, scope, depth);
+        } else if (query instanceof BlurQuery) {
+            result = findBlur((BlurQuery) query, scope, depth);
+        } else {
+            // A RangeQuery or one that is not known
+            result = restrict(toBitmap(query.find(index, modifier)), scope);
+        }
+
+        if (explaining) {
+            explanation.set(line, describe(query, depth) + " found=" + result.getCardinality() + " time=" + format(System.nanoTime() - start));
+        }
+        return result;
+    }
+
+    /**
+     * @see AndQuery#find(Index, SearchModifier)
+     */
+    private Key findAnd(AndQuery query, Key scope, int depth) throws BookException {
+        boolean leftFirst = isCheaper(query.getLeftQuery(), query.getRightQuery());
+        Query first = leftFirst ? query.getLeftQuery() : query.getRightQuery();
+        Query second = leftFirst ? query.getRightQuery() : query.getLeftQuery();
+
+        Key found = find(first, scope, depth + 1);
+        if (found.isEmpty()) {
+            skip(second, depth + 1);
+            return found;
+        }
+
+        // When the first has everything, the second is not restricted by it
+        boolean dense = !(found instanceof PassageTally) && isDense(found, scope);
+        Key other = find(second, dense ? scope : found, depth + 1);
+        if (dense) {
+            return other;
+        }
+
+        Key left = leftFirst ? found : other;
+        Key right = leftFirst ? other : found;
+        if (left.isEmpty()) {
+            return left;
+        }
+        if (right.isEmpty()) {
+            return right;
+        }
+
+        // If ranking was requested then prioritize it.
+        if (right instanceof PassageTally) {
+            right.retainAll(left);
+            return right;
+        }
+
+        left.retainAll(right);
+        return left;
+    }
+
+    /**
+     * @see OrQuery#find(Index, SearchModifier)
+     */
+    private Key findOr(OrQuery query, Key scope, int depth) throws BookException {
+        Key left = find(query.getLeftQuery(), scope, depth + 1);
+        if (!(left instanceof PassageTally) && isDense(left, scope)) {
+            skip(query.getRightQuery(), depth + 1);
+            return left;
+        }
+
+        Key right = find(query.getRightQuery(), scope, depth + 1);
+
+        if (left.isEmpty()) {
+            return right;
+        }
+
+        if (right.isEmpty()) {
+            return left;
+        }
+
+        // If ranking was requested then prioritize it.
+        if (right instanceof PassageTally) {
+            right.addAll(left);
+            return right;
+        }
+
+        left.addAll(right);
+        return left;
+    }
+
+    /**
+     * @see AndNotQuery#find(Index, SearchModifier)
+     */
+    private Key findAndNot(AndNotQuery query, Key scope, int depth) throws BookException {
+        Key left = find(query.getLeftQuery(), scope, depth + 1);
+        if (left.isEmpty()) {
+            skip(query.getRightQuery(), depth + 1);
+            return left;
+        }
+
+        // Only what would be removed from the left is needed
+        Key right = find(query.getRightQuery(), left, depth + 1);
+        if (!right.isEmpty()) {
+            left.removeAll(right);
+        }
+        return left;
+    }
+
+    /**
+     * @see BlurQuery#find(Index, SearchModifier)
+     */
+    private Key findBlur(BlurQuery query, Key scope, int depth) throws BookException {
+        int factor = query.getFactor();
+        RestrictionType restrict = RestrictionType.getDefaultBlurRestriction();
+
+        // Each side is only needed where it is near the other
+        if (isCheaper(query.getLeftQuery(), query.getRightQuery())) {
+            Key left = find(query.getLeftQuery(), scope, depth + 1);
+            if (left.isEmpty()) {
+                skip(query.getRightQuery(), depth + 1);
+                return left;
+            }
+
+            Key near = left.clone();
+            near.blur(factor, restrict);
+            Key right = find(query.getRightQuery(), restrict(near, scope), depth + 1);
+            if (right.isEmpty()) {
+                return right;
+            }
+
+            right.blur(factor, restrict);
+            left.retainAll(right);
+            return left;
+        }
+
+        Key right = find(query.getRightQuery(), scope, depth + 1);
+        if (right.isEmpty()) {
+            skip(query.getLeftQuery(), depth + 1);
+            return right;
+        }
+
+        right.blur(factor, restrict);
+        Key left = find(query.getLeftQuery(), restrict(right.clone(), scope), depth + 1);
+        if (!left.isEmpty()) {
+            left.retainAll(right);
+        }
+        return left;
+    }
+
+    /**
+     * Whether the first query is estimated to find no more than the second.
+     */
+    private boolean isCheaper(Query first, Query second) {
+        return estimate(first) <= estimate(second);
+    }
+
+    /**
+     * Estimate how many keys a query will find, from what the index knows,
+     * without searching.
+     *
+     * @param query the query
+     * @return the estimate, which is Integer.MAX_VALUE when unknown
+     */
+    private int estimate(Query query) {
+        if (query instanceof BaseQuery) {
+            int estimate = index.estimate(((BaseQuery) query).getQuery());
+            return estimate < 0 ? Integer.MAX_VALUE : estimate;
+        }
+        if (query instanceof NullQuery) {
+            return 0;
+        }
+        if (query instanceof RangeQuery) {
+            // A range is found without searching, so it is best done first
+            return 0;
+        }
+        if (query instanceof AndQuery) {
+            AndQuery and = (AndQuery) query;
+            return Math.min(estimate(and.getLeftQuery()), estimate(and.getRightQuery()));
+        }
+        if (query instanceof OrQuery) {
+            OrQuery or = (OrQuery) query;
+            return (int) Math.min((long) estimate(or.getLeftQuery()) + estimate(or.getRightQuery()), Integer.MAX_VALUE);
+        }
+        if (query instanceof AndNotQuery) {
+            return estimate(((AndNotQuery) query).getLeftQuery());
+        }
+        if (query instanceof BlurQuery) {
+            BlurQuery blur = (BlurQuery) query;
+            return Math.min(estimate(blur.getLeftQuery()), estimate(blur.getRightQuery()));
+        }
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * Whether the keys are every verse of the scope or, without a scope, of
+     * their versification.
+     */
+    private boolean isDense(Key key, Key scope) {
+        if (scope != null) {
+            return key.getCardinality() >= scope.getCardinality();
+        }
+        if (key instanceof VerseKey) {
+            return key.getCardinality() > ((VerseKey) key).getVersification().maximumOrdinal();
+        }
+        return false;
+    }
+
+    /**
+     * Restrict keys to a scope.
+     *
+     * @param key the keys, which are changed
+     * @param scope the scope or null for none
+     * @return the keys
+     */
+    private Key restrict(Key key, Key scope) {
+        if (scope != null && !key.isEmpty()) {
+            key.retainAll(scope);
+        }
+        return key;
+    }
+
+    /**
+     * Hold verses as a bitmap, so that they are combined a word at a time.
+     *
+     * @param key the keys
+     * @return the keys as a bitmap if they are verses
+     */
+    private Key toBitmap(Key key) {
+        if (key instanceof VerseKey && !(key instanceof BitwisePassage) && !(key instanceof PassageTally)) {
+            BitwisePassage bitmap = new BitwisePassage(((VerseKey) key).getVersification());
+            bitmap.addAll(key);
+            return bitmap;
+        }
+        return key;
+    }
+
+    /**
+     * Note a part of the query that was not needed.
+     */
+    private void skip(Query query, int depth) {
+        if (explaining) {
+            explanation.add(describe(query, depth) + " skipped");
+        }
+    }
+
+    /**
+     * Describe a part of the query, indented by its depth.
+     */
+    private String describe(Query query, int depth) {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            buf.append("  ");
+        }
+        buf.append(query.getClass().getSimpleName());
+        if (query instanceof AbstractQuery) {
+            buf.append(" \"").append(((AbstractQuery) query).getQuery()).append('"');
+        } else if (query instanceof BlurQuery) {
+            buf.append(" ~").append(((BlurQuery) query).getFactor());
+        }
+        int estimate = estimate(query);
+        if (estimate != Integer.MAX_VALUE) {
+            buf.append(" estimate=").append(estimate);
+        }
+        return buf.toString();
+    }
+
+    /**
+     * Show a time in milliseconds.
+     */
+    private static String format(long nanos) {
+        return String.format("%.3fms", Double.valueOf(nanos / 1000000.0));
+    }
+
+    /**
+     * The index to search
+     */
+    private Index index;
+
+    /**
+     * How to modify the search and its results
+     */
+    private SearchModifier modifier;
+
+    /**
+     * Whether to explain the search
+     */
+    private boolean explaining;
+
+    /**
+     * The lines of the explanation of the last query
+     */
+    private List<String> explanation;
+}
@@ -21,6 +21,7 @@ package org.crosswire.jsword.index.query;
 import org.crosswire.jsword.JSMsg;
 import org.crosswire.jsword.book.BookException;
 import org.crosswire.jsword.index.Index;
+import org.crosswire.jsword.index.search.SearchModifier;
 import org.crosswire.jsword.passage.Key;
 import org.crosswire.jsword.passage.NoSuchKeyException;
 
@@ -49,7 +50,7 @@ public class RangeQuery extends AbstractQuery {
      * org.crosswire.jsword.index.search.parse.Query#find(org.crosswire.jsword
      * .index.search.Index)
      */
-    public Key find(Index index) throws BookException {
+    public Key find(Index index, SearchModifier modifier) throws BookException {
         String range = getQuery();
         try {
             return index.getKey(range);
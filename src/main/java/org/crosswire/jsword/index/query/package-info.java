@@ -1,24 +1,24 @@
-/*
- * Distribution License:
- * JSword is free software; you can redistribute it and/or modify it under
- * the terms of the GNU Lesser General Public License, version 2.1 or later
- * as published by the Free Software Foundation. This program is distributed
- * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
- * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
- * See the GNU Lesser General Public License for more details.
- *
- * The License is available on the internet at:
- *      http://www.gnu.org/copyleft/lgpl.html
- * or by writing to:
- *      Free Software Foundation, Inc.
- *      59 Temple Place - Suite 330
- *      Boston, MA 02111-1307, USA
- *
- * © CrossWire Bible Society, 2005 - 2016
- *
- */
-/**
-<p>
+/*
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2005 - 2016
+ *
+ */
+/**
+<p>
   The Query package provides JSword with the ability to construct a search request against an Index.
   The specific syntax of a query is an implementation detail.
 </p>
@@ -59,7 +59,13 @@
   The <code>QueryBuilder</code> takes a search request as a string and generates a Query from it.
   The primary characteristic of the Query builder is to determine the atoms of search and construct
   a Query appropriately.
-</p>
+</p>
+<h2>Query Planning</h2>
+<p>
+  The <code>QueryPlanner</code> finds what a Query would, with less work. From the index's estimate
+  of each part, it does the cheaper side of a binary query first and restricts the other side to what
+  that found, or skips it when nothing was found. It can explain the time spent on each part.
+</p>
 <h2>Query Decorations</h2>
 <p>
  Beyond the above queries, most modern query languages allow for specialized
@@ -75,6 +81,6 @@
   <li>Any Words decoration - an OrQuery decorator</li>
   <li>Not Words decoration - an AndNotQuery decorator</li>
   <li>Range decoration - decorates an AND range</li>
-</ul>
-*/
-package org.crosswire.jsword.index.query;
+</ul>
+*/
+package org.crosswire.jsword.index.query;
@@ -408,6 +408,22 @@ public abstract class AbstractPassage implements Passage {
         return new VerseRangeIterator(getVersification(), iterator(), restrict);
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#ordinalIterator()
+     */
+    public OrdinalIterator ordinalIterator() {
+        final Iterator<Key> iter = iterator();
+        return new OrdinalIterator() {
+            public boolean hasNext() {
+                return iter.hasNext();
+            }
+
+            public int next() throws NoSuchElementException {
+                return ((Verse) iter.next()).getOrdinal();
+            }
+        };
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.passage.Passage#containsAll(org.crosswire.jsword.passage.Passage)
      */
@@ -626,8 +642,14 @@ public abstract class AbstractPassage implements Passage {
         Iterator<VerseRange> it = temp.rangeIterator(RestrictionType.NONE);
 
         while (it.hasNext()) {
-            VerseRange range = restrict.blur(getVersification(), it.next(), verses, verses);
-            add(range);
+            VerseRange range = it.next();
+            int down = verses;
+            if (RestrictionType.NONE.equals(restrict)) {
+                // Unrestricted, the blur goes no further back than ordinal 1,
+                // leaving out the introduction to the Bible.
+                down = Math.min(verses, Math.max(0, range.getStart().getOrdinal() - 1));
+            }
+            add(restrict.blur(getVersification(), range, down, verses));
         }
 
         lowerNormalizeProtection();
@@ -1185,10 +1207,9 @@ public abstract class AbstractPassage implements Passage {
             out.writeInt(BITWISE);
 
             BitSet store = new BitSet(bitwiseSize);
-            Iterator<Key> iter = iterator();
+            OrdinalIterator iter = ordinalIterator();
             while (iter.hasNext()) {
-                Verse verse = (Verse) iter.next();
-                store.set(verse.getOrdinal());
+                store.set(iter.next());
             }
 
             out.writeObject(store);
@@ -1199,9 +1220,9 @@ public abstract class AbstractPassage implements Passage {
             out.writeInt(countVerses());
 
             // write the verse ordinals in a loop
-            for (Key aKey : this) {
-                Verse verse = (Verse) aKey;
-                out.writeInt(verse.getOrdinal());
+            OrdinalIterator iter = ordinalIterator();
+            while (iter.hasNext()) {
+                out.writeInt(iter.next());
             }
         } else {
             // otherwise use ranges
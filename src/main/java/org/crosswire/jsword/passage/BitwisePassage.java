@@ -136,6 +136,27 @@ public class BitwisePassage extends AbstractPassage {
         return new VerseIterator();
     }
 
+    @Override
+    public OrdinalIterator ordinalIterator() {
+        return new OrdinalIterator() {
+            public boolean hasNext() {
+                return nextOrdinal >= 0;
+            }
+
+            public int next() throws NoSuchElementException {
+                if (nextOrdinal < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                int ordinal = nextOrdinal;
+                nextOrdinal = store.nextSetBit(ordinal + 1);
+                return ordinal;
+            }
+
+            private int nextOrdinal = store.nextSetBit(0);
+        };
+    }
+
     @Override
     public boolean contains(Key obj) {
         for (Key aKey : obj) {
@@ -309,34 +330,38 @@ public class BitwisePassage extends AbstractPassage {
     @Override
     public void blur(int verses, RestrictionType restrict) {
         assert verses >= 0;
+
         optimizeWrites();
+        raiseEventSuppresion();
         raiseNormalizeProtection();
 
-        if (!restrict.equals(RestrictionType.NONE)) {
-            super.blur(verses, restrict);
-        } else {
-            optimizeWrites();
-            raiseEventSuppresion();
-            raiseNormalizeProtection();
-
-            int maximumOrdinal = getVersification().maximumOrdinal();
-            BitSet newStore = new BitSet(maximumOrdinal + 1);
-
-            for (int i = store.nextSetBit(0); i >= 0; i = store.nextSetBit(i + 1)) {
-                int start = Math.max(1, i - verses);
-                int end = Math.min(maximumOrdinal, i + verses);
+        int[] scopeStarts = restrict.getScopeStarts(getVersification());
+        BitSet newStore = new BitSet(getVersification().maximumOrdinal() + 1);
+
+        // Both the verses and the scopes are visited in order,
+        // so each verse only sets what its predecessor has not.
+        // Without a restriction, blurring stops short of the introduction
+        // to the Bible at ordinal 0, as if it were already covered.
+        int scope = 0;
+        int covered = RestrictionType.NONE.equals(restrict) ? 0 : -1;
+        for (int i = store.nextSetBit(0); i >= 0; i = store.nextSetBit(i + 1)) {
+            while (scopeStarts[scope + 1] <= i) {
+                scope++;
+            }
 
-                for (int j = start; j <= end; j++) {
-                    newStore.set(j);
-                }
+            int start = Math.max(Math.max(scopeStarts[scope], i - verses), covered + 1);
+            int end = Math.min(scopeStarts[scope + 1] - 1, i + verses);
+            if (start <= end) {
+                newStore.set(start, end + 1);
+                covered = end;
             }
+        }
 
-            store = newStore;
+        store = newStore;
 
-            lowerNormalizeProtection();
-            if (lowerEventSuppressionAndTest()) {
-                fireIntervalAdded(this, null, null);
-            }
+        lowerNormalizeProtection();
+        if (lowerEventSuppressionAndTest()) {
+            fireIntervalAdded(this, null, null);
         }
     }
 
@@ -0,0 +1,45 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.util.NoSuchElementException;
+
+/**
+ * An iterator over the ordinals of the verses of a Passage. Unlike iterating
+ * over the Passage itself, no Verse need be made for each, which matters in
+ * loops that only want the ordinal.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @see Passage#ordinalIterator()
+ * @author agent
+ */
+public interface OrdinalIterator {
+    /**
+     * @return true if there are more ordinals
+     */
+    boolean hasNext();
+
+    /**
+     * @return the next ordinal
+     * @throws NoSuchElementException
+     *             if there are no more ordinals
+     */
+    int next() throws NoSuchElementException;
+}
@@ -186,6 +186,15 @@ public interface Passage extends VerseKey<Passage> {
      */
     Iterator<VerseRange> rangeIterator(RestrictionType restrict);
 
+    /**
+     * Like iterator() that gives the ordinal of each Verse instead of the
+     * Verse itself. Exactly the same data will be traversed, in the same
+     * order, but without making a Verse for each.
+     * 
+     * @return an iterator over the ordinals
+     */
+    OrdinalIterator ordinalIterator();
+
     /**
      * Returns true if this collection contains all the specified Verse
      * 
@@ -214,6 +214,7 @@ public final class PassageKeyFactory {
      * <li>PassageType.SIZE
      * <li>PassageType.MIX
      * <li>PassageType.TALLY
+     * <li>PassageType.COMPRESSED
      * </ul>
      * 
      * @param newDefaultType
@@ -288,9 +289,9 @@ public final class PassageKeyFactory {
 
             index += toBinary(buffer, index, AbstractPassage.BITWISE, AbstractPassage.METHOD_COUNT);
 
-            for (Key aKey : ref) {
-                Verse verse = (Verse) aKey;
-                int ord = verse.getOrdinal();
+            OrdinalIterator iter = ref.ordinalIterator();
+            while (iter.hasNext()) {
+                int ord = iter.next();
 
                 // Which byte should we be altering
                 int idx0 = (ord / 8) + index;
@@ -315,10 +316,9 @@ public final class PassageKeyFactory {
             index += toBinary(buffer, index, verses, maxOrdinal);
 
             // write the verse ordinals in a loop
-            for (Key aKey : ref) {
-                Verse verse = (Verse) aKey;
-                int ord = verse.getOrdinal();
-                index += toBinary(buffer, index, ord, maxOrdinal);
+            OrdinalIterator iter = ref.ordinalIterator();
+            while (iter.hasNext()) {
+                index += toBinary(buffer, index, iter.next(), maxOrdinal);
             }
 
             return buffer;
@@ -30,8 +30,6 @@ import java.util.TreeSet;
 
 import org.crosswire.jsword.JSOtherMsg;
 import org.crosswire.jsword.versification.Versification;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Similar to a Passage, but that stores a ranking for each of the Verses that
@@ -230,6 +228,21 @@ public class PassageTally extends AbstractPassage {
 
                 current = range.getStart();
             }
+        } else if (maxCount > 0 && maxCount < size) {
+            // Only rank as many verses as are wanted
+            int[] ordinals = new int[maxCount];
+            int count = getTopRanked(maxCount, ordinals, null);
+            Versification v11n = getVersification();
+            Key current = null;
+            for (int i = 0; i < count; i++) {
+                Key verse = v11n.decodeOrdinal(ordinals[i]);
+                retcode.append(verse.getName(current));
+                current = verse;
+
+                if (i < count - 1) {
+                    retcode.append(AbstractPassage.REF_PREF_DELIM);
+                }
+            }
         } else {
             if (maxCount == 0) {
                 maxCount = Integer.MAX_VALUE;
@@ -276,6 +289,25 @@ public class PassageTally extends AbstractPassage {
     public String getNameAndTally(int cnt) {
         int maxCount = cnt;
         StringBuilder retcode = new StringBuilder();
+        if (maxCount > 0 && maxCount < size) {
+            // Only rank as many verses as are wanted
+            int[] ordinals = new int[maxCount];
+            int[] tallies = new int[maxCount];
+            int count = getTopRanked(maxCount, ordinals, tallies);
+            Versification v11n = getVersification();
+            for (int i = 0; i < count; i++) {
+                retcode.append(v11n.decodeOrdinal(ordinals[i]).getName());
+                retcode.append(" (");
+                retcode.append(100 * tallies[i] / max);
+                retcode.append("%)");
+
+                if (i < count - 1) {
+                    retcode.append(AbstractPassage.REF_PREF_DELIM);
+                }
+            }
+            return retcode.toString();
+        }
+
         if (maxCount == 0) {
             maxCount = Integer.MAX_VALUE;
         }
@@ -394,6 +426,25 @@ public class PassageTally extends AbstractPassage {
         fireIntervalAdded(this, null, null);
     }
 
+    /**
+     * A shortcut to adding a key, by ordinal, with a rank. The ordinal needs to
+     * be taken from the same versification as the tally.
+     * 
+     * @param ordinal
+     *            the ordinal of the verse to add/increment
+     * @param count
+     *            The amount to increment by
+     */
+    public void addVersifiedOrdinal(int ordinal, int count) {
+        optimizeWrites();
+
+        increment(ordinal, count);
+        if (count > 0) {
+            incrementMax(count);
+        }
+        fireIntervalAdded(this, null, null);
+    }
+
     /**
      * Remove/Decrement this verses in the rankings
      * 
@@ -437,6 +488,13 @@ public class PassageTally extends AbstractPassage {
             }
 
             incrementMax(tally.max);
+        } else if (that instanceof Passage) {
+            OrdinalIterator iter = ((Passage) that).ordinalIterator();
+            while (iter.hasNext()) {
+                increment(iter.next(), 1);
+            }
+
+            incrementMax(1);
         } else {
             for (Key aKey : that) {
                 Verse verse = (Verse) aKey;
@@ -466,9 +524,9 @@ public class PassageTally extends AbstractPassage {
                 increment(i, -tally.board[i]);
             }
         } else {
-            for (Key aKey : that) {
-                Verse verse = (Verse) aKey;
-                increment(verse.getOrdinal(), -1);
+            OrdinalIterator iter = that.ordinalIterator();
+            while (iter.hasNext()) {
+                increment(iter.next(), -1);
             }
         }
 
@@ -535,6 +593,10 @@ public class PassageTally extends AbstractPassage {
     public Passage trimVerses(int count) {
         optimizeWrites();
 
+        if (order == Order.TALLY) {
+            return trimRanked(count);
+        }
+
         int i = 0;
         boolean overflow = false;
 
@@ -557,6 +619,129 @@ public class PassageTally extends AbstractPassage {
         return null;
     }
 
+    /**
+     * Trim to the best ranked verses, without sorting the rest.
+     * 
+     * @param count
+     *            The maximum number of Verses to allow in this collection
+     * @return A new Passage containing the remaining verses or null
+     */
+    private Passage trimRanked(int count) {
+        if (size <= count) {
+            return null;
+        }
+
+        int[] ordinals = new int[count];
+        int kept = getTopRanked(count, ordinals, null);
+
+        PassageTally remainder = this.clone();
+        int[] keptBoard = new int[board.length];
+        for (int i = 0; i < kept; i++) {
+            int ord = ordinals[i];
+            keptBoard[ord] = board[ord];
+            remainder.kill(ord);
+        }
+        board = keptBoard;
+        size = kept;
+
+        fireIntervalRemoved(this, null, null);
+        return remainder;
+    }
+
+    /**
+     * Get the best ranked verses, without sorting all the verses in the
+     * tally. They are given best first. Verses of equal rank are given in
+     * Biblical order. This is the order of iteration when ordered by
+     * {@link Order#TALLY}, but it is only as much of it as is wanted and no
+     * Verses are created.
+     * 
+     * @param k
+     *            The most verses wanted
+     * @param ordinals
+     *            Filled with the ordinals of the verses, at least k long
+     * @param tallies
+     *            Filled with the rank of each verse, at least k long, or null
+     *            if the ranks are not wanted
+     * @return the number of verses found, which is less than k only when the
+     *         tally has fewer than k verses
+     */
+    public int getTopRanked(int k, int[] ordinals, int[] tallies) {
+        // Keep the best k seen so far in a heap with the worst of them at the top.
+        // The heap is kept in the ordinals array, looking up the tallies on the board.
+        int n = 0;
+        for (int i = 0; i < board.length; i++) {
+            int tally = board[i];
+            if (tally == 0) {
+                continue;
+            }
+            if (n < k) {
+                ordinals[n] = i;
+                siftUp(ordinals, n++);
+            } else if (n > 0 && tally > board[ordinals[0]]) {
+                // Verses are seen in order, so a verse that only equals the
+                // worst is later in the Bible and is not better than it.
+                ordinals[0] = i;
+                siftDown(ordinals, 0, n);
+            }
+        }
+
+        // Take the worst off the top, putting it at the end, until all are in order.
+        for (int last = n - 1; last > 0; last--) {
+            int worst = ordinals[0];
+            ordinals[0] = ordinals[last];
+            ordinals[last] = worst;
+            siftDown(ordinals, 0, last);
+        }
+
+        if (tallies != null) {
+            for (int i = 0; i < n; i++) {
+                tallies[i] = board[ordinals[i]];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Is the verse at a worse rank than the other?
+     */
+    private boolean isWorse(int ord, int other) {
+        return board[ord] < board[other] || board[ord] == board[other] && ord > other;
+    }
+
+    private void siftUp(int[] heap, int pos) {
+        int i = pos;
+        int ord = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!isWorse(ord, heap[parent])) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = ord;
+    }
+
+    private void siftDown(int[] heap, int pos, int n) {
+        int i = pos;
+        int ord = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= n) {
+                break;
+            }
+            if (child + 1 < n && isWorse(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isWorse(heap[child], ord)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = ord;
+    }
+
     /**
      * Take the verses in the tally and give them all and equal rank of 1. After
      * this method has executed then both sorting methods for a.
@@ -581,61 +766,85 @@ public class PassageTally extends AbstractPassage {
         raiseEventSuppresion();
         raiseNormalizeProtection();
 
-        if (!restrict.equals(RestrictionType.NONE)) {
-            log.warn("Restrict={} is not properly supported.", restrict);
+        int[] blurred = blurBoard(board, verses, restrict.getScopeStarts(getVersification()));
+        if (RestrictionType.NONE.equals(restrict) && board[0] == 0) {
+            // The introduction to the Bible is only kept, never blurred into
+            blurred[0] = 0;
+        }
+        board = blurred;
 
-            // This is a bit of a cheat, but there is no way I'm going
-            // to do the math to speed up the restricted version
-            PassageTally temp = this.clone();
-            Iterator<VerseRange> it = temp.rangeIterator(RestrictionType.NONE);
+        resetMax();
 
-            while (it.hasNext()) {
-                VerseRange range = it.next();
-                for (int i = 0; i <= verses; i++) {
-                    add(restrict.blur(getVersification(), range, i, i));
-                }
-            }
-        } else {
-            int[] newBoard = new int[board.length];
+        lowerNormalizeProtection();
+        if (lowerEventSuppressionAndTest()) {
+            fireIntervalAdded(this, null, null);
+        }
+    }
 
-            for (int i = 0; i < board.length; i++) {
-                if (board[i] != 0) {
-                    // This could be re-written more simply:
-                    // for (int j = -verses; j <= verses; j++) {
-                    //     int k = i + j;
-                    //     if (k >= 0 && k <= BibleInfo.maximumOrdinal()) {
-                    //         new_board[k] += board[i] + verses - mod(j);
-                    //     }
-                    // }
-                    // However splitting the loop in 2 will speed it up quite a bit.
-
-                    for (int j = -verses; j < 0; j++) {
-                        int k = i + j;
-                        if (k >= 0) {
-                            newBoard[k] += board[i] + verses + j;
-                        }
-                    }
+    /**
+     * Spread the tally of each verse to its neighbours. A verse within
+     * <code>verses</code> of a tallied verse gains that verse's tally, plus
+     * <code>verses</code> less its distance from it. So the tallied verse
+     * itself gains the most and the furthest the least.
+     * 
+     * <p>
+     * Rather than visiting the neighbours of each tallied verse, this keeps
+     * running sums of the tallies, of how many verses are tallied and of where
+     * they are. The blurred tally of any verse is then found from the
+     * difference of the sums at either end of its window, so the time taken
+     * does not depend on how far the tallies are blurred.
+     * </p>
+     * 
+     * @param board
+     *            the tallies to blur
+     * @param verses
+     *            the number of verses to blur by
+     * @param scopeStarts
+     *            the ordinals at which each scope starts, ending with the
+     *            length of the board. A tally does not spread out of its scope.
+     * @return the blurred tallies
+     * @see RestrictionType#getScopeStarts(Versification)
+     */
+    private static int[] blurBoard(int[] board, int verses, int[] scopeStarts) {
+        int length = board.length;
+        long[] sums = new long[length + 1];
+        int[] counts = new int[length + 1];
+        long[] places = new long[length + 1];
+        for (int i = 0; i < length; i++) {
+            int tally = board[i];
+            sums[i + 1] = sums[i] + tally;
+            counts[i + 1] = counts[i] + (tally != 0 ? 1 : 0);
+            places[i + 1] = places[i] + (tally != 0 ? i : 0);
+        }
 
-                    newBoard[i] += board[i] + verses;
+        int[] newBoard = new int[length];
+        for (int scope = 0; scope < scopeStarts.length - 1; scope++) {
+            int first = scopeStarts[scope];
+            int last = Math.min(scopeStarts[scope + 1], length) - 1;
+            if (first > last || counts[last + 1] == counts[first]) {
+                // Nothing to spread in this scope
+                continue;
+            }
 
-                    for (int j = 1; j <= verses; j++) {
-                        int k = i + j;
-                        if (k < board.length - 1) {
-                            newBoard[k] += board[i] + verses - j;
-                        }
-                    }
+            for (int k = first; k <= last; k++) {
+                int low = Math.max(first, k - verses);
+                int high = Math.min(last, k + verses);
+                long below = counts[k + 1] - counts[low];
+                long above = counts[high + 1] - counts[k + 1];
+                if (below + above == 0) {
+                    continue;
                 }
-            }
 
-            board = newBoard;
+                // Each tallied verse at i in the window adds board[i] + verses - |k - i|
+                long total = sums[high + 1] - sums[low]
+                        + verses * (below + above)
+                        - (k * below - (places[k + 1] - places[low]))
+                        - ((places[high + 1] - places[k + 1]) - k * above);
+                newBoard[k] = (int) total;
+            }
         }
 
-        resetMax();
-
-        lowerNormalizeProtection();
-        if (lowerEventSuppressionAndTest()) {
-            fireIntervalAdded(this, null, null);
-        }
+        return newBoard;
     }
 
     /**
@@ -813,11 +1022,6 @@ public class PassageTally extends AbstractPassage {
      */
     private Order order = Order.BIBLICAL;
 
-    /**
-     * The log stream
-     */
-    private static final Logger log = LoggerFactory.getLogger(PassageTally.class);
-
     /**
      * Serialization ID
      */
@@ -121,6 +121,25 @@ public enum PassageType {
         public Passage createEmptyPassage(Versification v11n) {
             return new PassageTally(v11n);
         }
+    },
+
+    /**
+     * Optimize the Passage for size and speed together, by using a compressed
+     * bitmap that grows with the Passage.
+     */
+    COMPRESSED {
+        @Override
+        public Passage createPassage(Versification v11n, String passage, Key basis) throws NoSuchVerseException {
+            if (passage == null || passage.length() == 0) {
+                return createEmptyPassage(v11n);
+            }
+            return new RoaringPassage(v11n, passage, basis);
+        }
+
+        @Override
+        public Passage createEmptyPassage(Versification v11n) {
+            return new RoaringPassage(v11n);
+        }
     };
 
     /**
@@ -151,6 +151,35 @@ public class RangedPassage extends AbstractPassage {
         return new VerseRangeIterator(store.iterator(), restrict);
     }
 
+    @Override
+    public OrdinalIterator ordinalIterator() {
+        final Iterator<VerseRange> ranges = store.iterator();
+        return new OrdinalIterator() {
+            public boolean hasNext() {
+                return nextOrdinal <= endOrdinal || ranges.hasNext();
+            }
+
+            public int next() throws NoSuchElementException {
+                if (nextOrdinal > endOrdinal) {
+                    VerseRange range = ranges.next();
+                    nextOrdinal = range.getStart().getOrdinal();
+                    endOrdinal = range.getEnd().getOrdinal();
+                }
+                return nextOrdinal++;
+            }
+
+            /**
+             * The next ordinal in the current range
+             */
+            private int nextOrdinal;
+
+            /**
+             * The last ordinal in the current range
+             */
+            private int endOrdinal = -1;
+        };
+    }
+
     @Override
     public boolean isEmpty() {
         return store.isEmpty();
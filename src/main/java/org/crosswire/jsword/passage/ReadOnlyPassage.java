@@ -280,6 +280,13 @@ final class ReadOnlyPassage implements Passage {
         return ref.rangeIterator(restrict);
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#ordinalIterator()
+     */
+    public OrdinalIterator ordinalIterator() {
+        return ref.ordinalIterator();
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.passage.Passage#add(org.crosswire.jsword.passage.Key)
      */
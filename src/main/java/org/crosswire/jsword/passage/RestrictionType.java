@@ -61,6 +61,13 @@ public enum RestrictionType {
             }
             return new VerseRange(v11n, verse, end);
         }
+
+        @Override
+        public int[] getScopeStarts(Versification v11n) {
+            return new int[] {
+                    0, v11n.maximumOrdinal() + 1
+            };
+        }
     },
 
     /**
@@ -112,6 +119,11 @@ public enum RestrictionType {
             Verse end = v11n.add(verse, count - 1);
             return new VerseRange(v11n, verse, end);
         }
+
+        @Override
+        public int[] getScopeStarts(Versification v11n) {
+            return v11n.getChapterStartOrdinals();
+        }
     };
 
     /**
@@ -164,6 +176,18 @@ public enum RestrictionType {
      */
     public abstract VerseRange toRange(Versification v11n, Verse verse, int count);
 
+    /**
+     * Get the ordinals at which each scope starts, in order. The last entry is
+     * one more than the maximum ordinal, so the verses in scope i are those
+     * from starts[i] up to but not including starts[i + 1]. A blur never
+     * crosses from one scope into another.
+     * 
+     * @param v11n
+     *            the versification to which this reference pertains
+     * @return the ordinals at which each scope starts
+     */
+    public abstract int[] getScopeStarts(Versification v11n);
+
     /**
      * Get an integer representation for this RestrictionType
      * 
@@ -0,0 +1,733 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.passage;
+
+/**
+ * A compressed set of non-negative ints, such as verse ordinals, in the style
+ * of a Roaring bitmap.
+ *
+ * <p>
+ * The ints are split into chunks of 256 by their high bits. Only the chunks
+ * that have members are stored, in order. A chunk with only a few members,
+ * such as a chapter with a verse or two, stores them as a sorted array. A
+ * chunk with more stores them as a bitmap of 4 longs. So a single verse costs
+ * a few bytes rather than the 4K of a BitSet over the whole Bible, while a
+ * large passage costs little more than that BitSet.
+ * </p>
+ *
+ * <p>
+ * Union, intersection and difference work chunk by chunk, skipping chunks
+ * that cannot contribute. This class is not thread safe.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class RoaringBitmap implements Cloneable {
+    /**
+     * Create an empty bitmap.
+     */
+    public RoaringBitmap() {
+        keys = new int[INITIAL_CAPACITY];
+        chunks = new Chunk[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return the number of members
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return whether there are no members
+     */
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * @param value the int to look for
+     * @return whether the int is a member
+     */
+    public boolean contains(int value) {
+        int i = find(value >>> CHUNK_BITS);
+        return i >= 0 && chunks[i].contains(value & LOW_MASK);
+    }
+
+    /**
+     * Add a member.
+     *
+     * @param value the int to add
+     */
+    public void add(int value) {
+        int key = value >>> CHUNK_BITS;
+        int i = find(key);
+        if (i >= 0) {
+            Chunk chunk = chunks[i];
+            int before = chunk.cardinality();
+            chunks[i] = chunk.add(value & LOW_MASK);
+            cardinality += chunks[i].cardinality() - before;
+        } else {
+            insert(-(i + 1), key, new ArrayChunk(value & LOW_MASK));
+            cardinality++;
+        }
+    }
+
+    /**
+     * Add all the ints from start to end inclusive. Nothing is added when
+     * start is after end.
+     *
+     * @param start the first int to add
+     * @param end the last int to add
+     */
+    public void add(int start, int end) {
+        if (start > end) {
+            return;
+        }
+        for (int key = start >>> CHUNK_BITS; key <= end >>> CHUNK_BITS; key++) {
+            int low = key == start >>> CHUNK_BITS ? start & LOW_MASK : 0;
+            int high = key == end >>> CHUNK_BITS ? end & LOW_MASK : LOW_MASK;
+            long[] bits = new long[WORDS];
+            int i = find(key);
+            if (i >= 0) {
+                cardinality -= chunks[i].cardinality();
+                chunks[i].toBits(bits);
+            }
+            setBits(bits, low, high);
+            Chunk chunk = Chunk.fromBits(bits);
+            cardinality += chunk.cardinality();
+            if (i >= 0) {
+                chunks[i] = chunk;
+            } else {
+                insert(-(i + 1), key, chunk);
+            }
+        }
+    }
+
+    /**
+     * Remove a member.
+     *
+     * @param value the int to remove
+     */
+    public void remove(int value) {
+        int i = find(value >>> CHUNK_BITS);
+        if (i >= 0) {
+            Chunk chunk = chunks[i];
+            int before = chunk.cardinality();
+            chunk = chunk.remove(value & LOW_MASK);
+            cardinality += chunk.cardinality() - before;
+            if (chunk.cardinality() == 0) {
+                delete(i);
+            } else {
+                chunks[i] = chunk;
+            }
+        }
+    }
+
+    /**
+     * Remove all the members.
+     */
+    public void clear() {
+        keys = new int[INITIAL_CAPACITY];
+        chunks = new Chunk[INITIAL_CAPACITY];
+        size = 0;
+        cardinality = 0;
+    }
+
+    /**
+     * Find the first member that is at least as big as the given int.
+     *
+     * @param from the int to start looking from
+     * @return the member or -1 if there are none
+     */
+    public int nextSetBit(int from) {
+        int key = from >>> CHUNK_BITS;
+        int i = find(key);
+        if (i >= 0) {
+            int low = chunks[i].next(from & LOW_MASK);
+            if (low >= 0) {
+                return key << CHUNK_BITS | low;
+            }
+            i++;
+        } else {
+            i = -(i + 1);
+        }
+        // Every stored chunk has a member
+        return i < size ? keys[i] << CHUNK_BITS | chunks[i].next(0) : -1;
+    }
+
+    /**
+     * Add all the members of another bitmap to this one.
+     *
+     * @param that the bitmap to add
+     */
+    public void or(RoaringBitmap that) {
+        int[] newKeys = new int[size + that.size];
+        Chunk[] newChunks = new Chunk[size + that.size];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        cardinality = 0;
+        while (i < size || j < that.size) {
+            Chunk chunk;
+            int key;
+            if (j == that.size || i < size && keys[i] < that.keys[j]) {
+                key = keys[i];
+                chunk = chunks[i++];
+            } else if (i == size || that.keys[j] < keys[i]) {
+                key = that.keys[j];
+                chunk = that.chunks[j++].copy();
+            } else {
+                key = keys[i];
+                chunk = chunks[i++].or(that.chunks[j++]);
+            }
+            newKeys[count] = key;
+            newChunks[count++] = chunk;
+            cardinality += chunk.cardinality();
+        }
+        keys = newKeys;
+        chunks = newChunks;
+        size = count;
+    }
+
+    /**
+     * Keep only the members that are also in another bitmap.
+     *
+     * @param that the bitmap to intersect with
+     */
+    public void and(RoaringBitmap that) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        cardinality = 0;
+        while (i < size && j < that.size) {
+            if (keys[i] < that.keys[j]) {
+                i++;
+            } else if (that.keys[j] < keys[i]) {
+                j++;
+            } else {
+                Chunk chunk = chunks[i].and(that.chunks[j]);
+                if (chunk.cardinality() > 0) {
+                    keys[count] = keys[i];
+                    chunks[count++] = chunk;
+                    cardinality += chunk.cardinality();
+                }
+                i++;
+                j++;
+            }
+        }
+        truncate(count);
+    }
+
+    /**
+     * Remove all the members that are in another bitmap.
+     *
+     * @param that the bitmap to remove
+     */
+    public void andNot(RoaringBitmap that) {
+        int count = 0;
+        int j = 0;
+        cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < that.size && that.keys[j] < keys[i]) {
+                j++;
+            }
+            Chunk chunk = chunks[i];
+            if (j < that.size && that.keys[j] == keys[i]) {
+                chunk = chunk.andNot(that.chunks[j]);
+            }
+            if (chunk.cardinality() > 0) {
+                keys[count] = keys[i];
+                chunks[count++] = chunk;
+                cardinality += chunk.cardinality();
+            }
+        }
+        truncate(count);
+    }
+
+    @Override
+    public RoaringBitmap clone() {
+        try {
+            RoaringBitmap copy = (RoaringBitmap) super.clone();
+            copy.keys = keys.clone();
+            copy.chunks = new Chunk[chunks.length];
+            for (int i = 0; i < size; i++) {
+                copy.chunks[i] = chunks[i].copy();
+            }
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            assert false : e;
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof RoaringBitmap)) {
+            return false;
+        }
+        RoaringBitmap that = (RoaringBitmap) obj;
+        if (cardinality != that.cardinality || size != that.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != that.keys[i] || !chunks[i].sameAs(that.chunks[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = cardinality;
+        for (int i = 0; i < size; i++) {
+            hash = 31 * hash + keys[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Find the chunk for the key.
+     *
+     * @param key the high bits of a member
+     * @return the index of the chunk or (-(insertion point) - 1)
+     */
+    private int find(int key) {
+        // Members are usually added in order, so check the end first.
+        if (size == 0 || keys[size - 1] < key) {
+            return -(size + 1);
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) {
+                low = mid + 1;
+            } else if (keys[mid] > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void insert(int i, int key, Chunk chunk) {
+        if (size == keys.length) {
+            int capacity = Math.max(INITIAL_CAPACITY, size * 2);
+            int[] newKeys = new int[capacity];
+            Chunk[] newChunks = new Chunk[capacity];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(chunks, 0, newChunks, 0, size);
+            keys = newKeys;
+            chunks = newChunks;
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        size++;
+    }
+
+    private void delete(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        chunks[--size] = null;
+    }
+
+    private void truncate(int count) {
+        for (int i = count; i < size; i++) {
+            chunks[i] = null;
+        }
+        size = count;
+    }
+
+    private static void setBits(long[] bits, int low, int high) {
+        for (int i = low; i <= high; i++) {
+            bits[i >>> 6] |= 1L << i;
+        }
+    }
+
+    /**
+     * The members of a chunk, by their low bits.
+     */
+    private abstract static class Chunk {
+        abstract int cardinality();
+
+        abstract boolean contains(int low);
+
+        /**
+         * @return this or a replacement if the representation had to change
+         */
+        abstract Chunk add(int low);
+
+        /**
+         * @return this or a replacement if the representation had to change
+         */
+        abstract Chunk remove(int low);
+
+        /**
+         * @return the smallest member that is at least low, or -1
+         */
+        abstract int next(int low);
+
+        /**
+         * Or the members into a bitmap.
+         */
+        abstract void toBits(long[] bits);
+
+        abstract Chunk copy();
+
+        Chunk or(Chunk that) {
+            long[] bits = new long[WORDS];
+            toBits(bits);
+            that.toBits(bits);
+            return fromBits(bits);
+        }
+
+        Chunk and(Chunk that) {
+            long[] bits = new long[WORDS];
+            long[] thatBits = new long[WORDS];
+            toBits(bits);
+            that.toBits(thatBits);
+            for (int i = 0; i < WORDS; i++) {
+                bits[i] &= thatBits[i];
+            }
+            return fromBits(bits);
+        }
+
+        Chunk andNot(Chunk that) {
+            long[] bits = new long[WORDS];
+            long[] thatBits = new long[WORDS];
+            toBits(bits);
+            that.toBits(thatBits);
+            for (int i = 0; i < WORDS; i++) {
+                bits[i] &= ~thatBits[i];
+            }
+            return fromBits(bits);
+        }
+
+        boolean sameAs(Chunk that) {
+            if (cardinality() != that.cardinality()) {
+                return false;
+            }
+            long[] bits = new long[WORDS];
+            long[] thatBits = new long[WORDS];
+            toBits(bits);
+            that.toBits(thatBits);
+            for (int i = 0; i < WORDS; i++) {
+                if (bits[i] != thatBits[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Choose the smaller representation of the bitmap.
+         */
+        static Chunk fromBits(long[] bits) {
+            int count = 0;
+            for (long word : bits) {
+                count += Long.bitCount(word);
+            }
+            if (count > ARRAY_MAX) {
+                return new BitmapChunk(bits, count);
+            }
+            char[] values = new char[Math.max(count, 1)];
+            int n = 0;
+            for (int i = 0; i < WORDS; i++) {
+                long word = bits[i];
+                while (word != 0) {
+                    values[n++] = (char) (i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayChunk(values, count);
+        }
+    }
+
+    /**
+     * A sparse chunk, as a sorted array of members.
+     */
+    private static final class ArrayChunk extends Chunk {
+        ArrayChunk(int low) {
+            values = new char[] { (char) low };
+            count = 1;
+        }
+
+        ArrayChunk(char[] values, int count) {
+            this.values = values;
+            this.count = count;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return search(low) >= 0;
+        }
+
+        @Override
+        Chunk add(int low) {
+            int i = search(low);
+            if (i >= 0) {
+                return this;
+            }
+            if (count == ARRAY_MAX) {
+                long[] bits = new long[WORDS];
+                toBits(bits);
+                bits[low >>> 6] |= 1L << low;
+                return new BitmapChunk(bits, count + 1);
+            }
+            i = -(i + 1);
+            if (count == values.length) {
+                char[] newValues = new char[Math.min(ARRAY_MAX, count * 2)];
+                System.arraycopy(values, 0, newValues, 0, count);
+                values = newValues;
+            }
+            System.arraycopy(values, i, values, i + 1, count - i);
+            values[i] = (char) low;
+            count++;
+            return this;
+        }
+
+        @Override
+        Chunk remove(int low) {
+            int i = search(low);
+            if (i >= 0) {
+                System.arraycopy(values, i + 1, values, i, count - i - 1);
+                count--;
+            }
+            return this;
+        }
+
+        @Override
+        int next(int low) {
+            int i = search(low);
+            if (i < 0) {
+                i = -(i + 1);
+            }
+            return i < count ? values[i] : -1;
+        }
+
+        @Override
+        void toBits(long[] bits) {
+            for (int i = 0; i < count; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        Chunk copy() {
+            return new ArrayChunk(values.clone(), count);
+        }
+
+        @Override
+        Chunk or(Chunk that) {
+            if (!(that instanceof ArrayChunk)) {
+                return super.or(that);
+            }
+            // Merge the sorted arrays
+            ArrayChunk other = (ArrayChunk) that;
+            char[] merged = new char[count + other.count];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < count || j < other.count) {
+                if (j == other.count || i < count && values[i] < other.values[j]) {
+                    merged[n++] = values[i++];
+                } else if (i == count || other.values[j] < values[i]) {
+                    merged[n++] = other.values[j++];
+                } else {
+                    merged[n++] = values[i++];
+                    j++;
+                }
+            }
+            if (n > ARRAY_MAX) {
+                return super.or(that);
+            }
+            return new ArrayChunk(merged, n);
+        }
+
+        @Override
+        Chunk and(Chunk that) {
+            // The result can be no bigger than this.
+            char[] kept = new char[Math.max(count, 1)];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (that.contains(values[i])) {
+                    kept[n++] = values[i];
+                }
+            }
+            return new ArrayChunk(kept, n);
+        }
+
+        @Override
+        Chunk andNot(Chunk that) {
+            char[] kept = new char[Math.max(count, 1)];
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (!that.contains(values[i])) {
+                    kept[n++] = values[i];
+                }
+            }
+            return new ArrayChunk(kept, n);
+        }
+
+        private int search(int low) {
+            int from = 0;
+            int to = count - 1;
+            while (from <= to) {
+                int mid = (from + to) >>> 1;
+                if (values[mid] < low) {
+                    from = mid + 1;
+                } else if (values[mid] > low) {
+                    to = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(from + 1);
+        }
+
+        private char[] values;
+        private int count;
+    }
+
+    /**
+     * A dense chunk, as a bitmap.
+     */
+    private static final class BitmapChunk extends Chunk {
+        BitmapChunk(long[] bits, int count) {
+            this.bits = bits;
+            this.count = count;
+        }
+
+        @Override
+        int cardinality() {
+            return count;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (bits[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        Chunk add(int low) {
+            if (!contains(low)) {
+                bits[low >>> 6] |= 1L << low;
+                count++;
+            }
+            return this;
+        }
+
+        @Override
+        Chunk remove(int low) {
+            if (contains(low)) {
+                bits[low >>> 6] &= ~(1L << low);
+                count--;
+                if (count <= ARRAY_MAX) {
+                    return fromBits(bits);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        int next(int low) {
+            int i = low >>> 6;
+            long word = bits[i] & -1L << low;
+            while (word == 0) {
+                if (++i == WORDS) {
+                    return -1;
+                }
+                word = bits[i];
+            }
+            return i << 6 | Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        void toBits(long[] target) {
+            for (int i = 0; i < WORDS; i++) {
+                target[i] |= bits[i];
+            }
+        }
+
+        @Override
+        Chunk copy() {
+            return new BitmapChunk(bits.clone(), count);
+        }
+
+        private final long[] bits;
+        private int count;
+    }
+
+    /**
+     * The number of bits of a member that select its chunk.
+     */
+    private static final int CHUNK_BITS = 8;
+
+    /**
+     * Selects the bits of a member within its chunk.
+     */
+    private static final int LOW_MASK = (1 << CHUNK_BITS) - 1;
+
+    /**
+     * The number of longs in a bitmap chunk.
+     */
+    private static final int WORDS = (1 << CHUNK_BITS) / 64;
+
+    /**
+     * The most members an array chunk holds. Beyond this a bitmap is smaller.
+     */
+    private static final int ARRAY_MAX = WORDS * 4;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    /**
+     * The high bits of the members of each chunk, in order.
+     */
+    private int[] keys;
+
+    /**
+     * The chunks, in the same order as the keys.
+     */
+    private Chunk[] chunks;
+
+    /**
+     * The number of chunks.
+     */
+    private int size;
+
+    /**
+     * The number of members.
+     */
+    private int cardinality;
+}
@@ -0,0 +1,456 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * A Passage that is implemented using a compressed bitmap of verse ordinals.
+ * The attributes of the style are:
+ * <ul>
+ * <li>Fairly fast manipulation
+ * <li>Fast union, intersection and difference with other RoaringPassages
+ * <li>Size that grows with the Passage, good for small and large Passages
+ * </ul>
+ *
+ * <p>
+ * The bitmap adapts to the verses it holds. Where there are only a few verses
+ * in a stretch of the Bible, it keeps a short list of them. Where there are
+ * many, it keeps a bit for each verse, as a BitwisePassage does throughout.
+ * </p>
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @see RoaringBitmap
+ * @author agent
+ */
+public class RoaringPassage extends AbstractPassage {
+    /**
+     * Create an empty RoaringPassage.
+     *
+     * @param v11n
+     *            The Versification to which this Passage belongs.
+     */
+    public RoaringPassage(Versification v11n) {
+        super(v11n);
+        store = new RoaringBitmap();
+    }
+
+    /**
+     * Create a RoaringPassage from a human readable string. The opposite of
+     * getName(). We don't need to worry about thread safety in a ctor since
+     * we don't exist yet.
+     *
+     * @param v11n
+     *            The Versification to which this Passage belongs.
+     * @param refs
+     *            A String containing the text of the RoaringPassage
+     * @param basis
+     *           The basis by which to interpret refs
+     * @throws NoSuchVerseException
+     *             If the string is not parsable
+     */
+    protected RoaringPassage(Versification v11n, String refs, Key basis) throws NoSuchVerseException {
+        super(v11n, refs);
+        store = new RoaringBitmap();
+        addVerses(refs, basis);
+    }
+
+    /**
+     * Create a RoaringPassage from a human readable string.
+     *
+     * @param v11n
+     *            The Versification to which this Passage belongs.
+     * @param refs
+     *            A String containing the text of the RoaringPassage
+     * @throws NoSuchVerseException
+     *             If the string is not parsable
+     */
+    protected RoaringPassage(Versification v11n, String refs) throws NoSuchVerseException {
+        this(v11n, refs, null);
+    }
+
+    @Override
+    public RoaringPassage clone() {
+        // This gets us a shallow copy
+        RoaringPassage copy = (RoaringPassage) super.clone();
+
+        copy.store = store.clone();
+
+        return copy;
+    }
+
+    @Override
+    public int countVerses() {
+        return store.cardinality();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+
+    /* (non-Javadoc)
+     * @see java.lang.Iterable#iterator()
+     */
+    public Iterator<Key> iterator() {
+        return new VerseIterator();
+    }
+
+    @Override
+    public OrdinalIterator ordinalIterator() {
+        return new OrdinalIterator() {
+            public boolean hasNext() {
+                return nextOrdinal >= 0;
+            }
+
+            public int next() throws NoSuchElementException {
+                if (nextOrdinal < 0) {
+                    throw new NoSuchElementException();
+                }
+
+                int ordinal = nextOrdinal;
+                nextOrdinal = store.nextSetBit(ordinal + 1);
+                return ordinal;
+            }
+
+            private int nextOrdinal = store.nextSetBit(0);
+        };
+    }
+
+    @Override
+    public boolean contains(Key obj) {
+        for (Key aKey : obj) {
+            Verse verse = (Verse) aKey;
+            if (!store.contains(verse.getOrdinal())) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#add(org.crosswire.jsword.passage.Key)
+     */
+    public void add(Key obj) {
+        optimizeWrites();
+
+        Verse firstVerse = null;
+        Verse lastVerse = null;
+        if (obj instanceof VerseRange) {
+            VerseRange range = (VerseRange) obj;
+            firstVerse = range.getStart();
+            lastVerse = range.getEnd();
+            store.add(firstVerse.getOrdinal(), lastVerse.getOrdinal());
+        } else {
+            for (Key aKey : obj) {
+                lastVerse = (Verse) aKey;
+                if (firstVerse == null) {
+                    firstVerse = lastVerse;
+                }
+                store.add(lastVerse.getOrdinal());
+            }
+        }
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalAdded(this, firstVerse, lastVerse);
+        }
+    }
+
+    /**
+     * A shortcut to adding a key, by ordinal. The ordinal needs to be taken
+     * from the same versification as the passage being created.
+     *
+     * @param ordinal
+     *            the ordinal
+     */
+    public void addVersifiedOrdinal(int ordinal) {
+        optimizeWrites();
+        store.add(ordinal);
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            Verse verse = getVersification().decodeOrdinal(ordinal);
+            fireIntervalAdded(this, verse, verse);
+        }
+    }
+
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#remove(org.crosswire.jsword.passage.Key)
+     */
+    public void remove(Key obj) {
+        optimizeWrites();
+
+        Verse firstVerse = null;
+        Verse lastVerse = null;
+        for (Key aKey : obj) {
+            lastVerse = (Verse) aKey;
+            if (firstVerse == null) {
+                firstVerse = lastVerse;
+            }
+            store.remove(lastVerse.getOrdinal());
+        }
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            fireIntervalRemoved(this, firstVerse, lastVerse);
+        }
+    }
+
+    @Override
+    public void addAll(Key key) {
+        //check for key empty. This avoids the AIOBounds with that.getVerseAt, during event firing
+        if (key.isEmpty()) {
+            //nothing to add
+            return;
+        }
+
+        optimizeWrites();
+
+        if (key instanceof RoaringPassage) {
+            store.or(((RoaringPassage) key).store);
+        } else {
+            super.addAll(key);
+        }
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0) {
+            if (key instanceof Passage) {
+                Passage that = (Passage) key;
+                fireIntervalAdded(this, that.getVerseAt(0), that.getVerseAt(that.countVerses() - 1));
+            } else if (key instanceof VerseRange) {
+                VerseRange that = (VerseRange) key;
+                fireIntervalAdded(this, that.getStart(), that.getEnd());
+            } else if (key instanceof Verse) {
+                Verse that = (Verse) key;
+                fireIntervalAdded(this, that, that);
+            }
+        }
+    }
+
+    @Override
+    public void removeAll(Key key) {
+        optimizeWrites();
+
+        if (key instanceof RoaringPassage) {
+            store.andNot(((RoaringPassage) key).store);
+        } else {
+            super.removeAll(key);
+        }
+
+        // we do an extra check here because the cost of calculating the
+        // params is non-zero and may be wasted
+        if (suppressEvents == 0 && !key.isEmpty()) {
+            if (key instanceof Passage) {
+                Passage that = (Passage) key;
+                fireIntervalRemoved(this, that.getVerseAt(0), that.getVerseAt(that.countVerses() - 1));
+            } else if (key instanceof VerseRange) {
+                VerseRange that = (VerseRange) key;
+                fireIntervalRemoved(this, that.getStart(), that.getEnd());
+            } else if (key instanceof Verse) {
+                Verse that = (Verse) key;
+                fireIntervalRemoved(this, that, that);
+            }
+        }
+    }
+
+    @Override
+    public void retainAll(Key key) {
+        optimizeWrites();
+
+        RoaringBitmap thatStore = null;
+        if (key instanceof RoaringPassage) {
+            thatStore = ((RoaringPassage) key).store;
+        } else {
+            thatStore = new RoaringBitmap();
+
+            for (Key aKey : key) {
+                int ord = ((Verse) aKey).getOrdinal();
+                if (store.contains(ord)) {
+                    thatStore.add(ord);
+                }
+            }
+        }
+        store.and(thatStore);
+
+        fireIntervalRemoved(this, null, null);
+    }
+
+    @Override
+    public void clear() {
+        optimizeWrites();
+
+        store.clear();
+
+        fireIntervalRemoved(this, null, null);
+    }
+
+    @Override
+    public void blur(int verses, RestrictionType restrict) {
+        assert verses >= 0;
+
+        optimizeWrites();
+        raiseEventSuppresion();
+        raiseNormalizeProtection();
+
+        int[] scopeStarts = restrict.getScopeStarts(getVersification());
+        RoaringBitmap newStore = new RoaringBitmap();
+
+        // Both the verses and the scopes are visited in order,
+        // so each verse only adds what its predecessor has not.
+        // Without a restriction, blurring stops short of the introduction
+        // to the Bible at ordinal 0, as if it were already covered.
+        int scope = 0;
+        int covered = RestrictionType.NONE.equals(restrict) ? 0 : -1;
+        for (int i = store.nextSetBit(0); i >= 0; i = store.nextSetBit(i + 1)) {
+            while (scopeStarts[scope + 1] <= i) {
+                scope++;
+            }
+
+            int start = Math.max(Math.max(scopeStarts[scope], i - verses), covered + 1);
+            int end = Math.min(scopeStarts[scope + 1] - 1, i + verses);
+            if (start <= end) {
+                newStore.add(start, end);
+                covered = end;
+            }
+        }
+
+        store = newStore;
+
+        lowerNormalizeProtection();
+        if (lowerEventSuppressionAndTest()) {
+            fireIntervalAdded(this, null, null);
+        }
+    }
+
+    /**
+     * Iterate over the Verses
+     */
+    private final class VerseIterator implements Iterator<Key> {
+        /**
+         * Find the first unused verse
+         */
+        VerseIterator() {
+            next = store.nextSetBit(0);
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#hasNext()
+         */
+        public boolean hasNext() {
+            return next >= 0;
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#next()
+         */
+        public Key next() throws NoSuchElementException {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            last = next;
+            next = store.nextSetBit(next + 1);
+            return getVersification().decodeOrdinal(last);
+        }
+
+        /* (non-Javadoc)
+         * @see java.util.Iterator#remove()
+         */
+        public void remove() throws UnsupportedOperationException {
+            store.remove(last);
+        }
+
+        /**
+         * What is the next Verse to be considered
+         */
+        private int next;
+
+        /**
+         * The ordinal of the Verse most recently returned
+         */
+        private int last;
+    }
+
+    /**
+     * Call the support mechanism in AbstractPassage
+     *
+     * @param out
+     *            The stream to write our state to
+     * @serialData Write the ordinal number of this verse
+     * @see AbstractPassage#writeObjectSupport(ObjectOutputStream)
+     * @throws IOException
+     *             if the read fails
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+
+        // Save off the versification by name
+        out.writeUTF(getVersification().getName());
+
+        writeObjectSupport(out);
+    }
+
+    /**
+     * Call the support mechanism in AbstractPassage
+     *
+     * @param in
+     *            The stream to read our state from
+     * @throws IOException
+     *             if the read fails
+     * @throws ClassNotFoundException
+     *             If the read data is incorrect
+     * @serialData Write the ordinal number of this verse
+     * @see AbstractPassage#readObjectSupport(ObjectInputStream)
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        optimizeWrites();
+
+        in.defaultReadObject();
+
+        // The versification is saved by name, but the store does not need it
+        in.readUTF();
+
+        store = new RoaringBitmap();
+
+        readObjectSupport(in);
+    }
+
+    /**
+     * To make serialization work across new versions
+     */
+    private static final long serialVersionUID = 3418960185473526473L;
+
+    /**
+     * The place the real data is stored
+     */
+    protected transient RoaringBitmap store;
+}
@@ -262,6 +262,13 @@ final class SynchronizedPassage implements Passage {
         return ref.rangeIterator(restrict);
     }
 
+    /* (non-Javadoc)
+     * @see org.crosswire.jsword.passage.Passage#ordinalIterator()
+     */
+    public synchronized OrdinalIterator ordinalIterator() {
+        return ref.ordinalIterator();
+    }
+
     /* (non-Javadoc)
      * @see org.crosswire.jsword.passage.Passage#add(org.crosswire.jsword.passage.Key)
      */
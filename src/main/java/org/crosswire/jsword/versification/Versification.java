@@ -401,6 +401,35 @@ public class Versification implements ReferenceSystem, Serializable {
         }
     }
 
+    /**
+     * Get the ordinal of the start of each chapter, in order. Each book's
+     * introduction counts as a chapter, as do the introductions to the Bible
+     * and to each Testament. There is one more entry than there are chapters,
+     * the last being one more than the maximum ordinal, so the verses of
+     * chapter i are those from starts[i] up to but not including starts[i + 1].
+     *
+     * @return the ordinals at which each chapter starts
+     */
+    public int[] getChapterStartOrdinals() {
+        int[] starts = chapterStartOrdinals;
+        if (starts == null) {
+            int count = 0;
+            for (int[] chapters : chapterStarts) {
+                count += chapters.length;
+            }
+            starts = new int[count + 1];
+            int i = 0;
+            for (int[] chapters : chapterStarts) {
+                for (int start : chapters) {
+                    starts[i++] = start;
+                }
+            }
+            starts[i] = ntMaxOrdinal + 1;
+            chapterStartOrdinals = starts;
+        }
+        return starts.clone();
+    }
+
     /**
      * Get a VerseRange encompassing this Versification.
      * 
@@ -899,6 +928,36 @@ public class Versification implements ReferenceSystem, Serializable {
             ord = ntMaxOrdinal;
         }
 
+        return getVerses()[ord];
+    }
+
+    /**
+     * Get the verses of this Versification, in order, making them on first
+     * use. Verses cannot be changed, so each can be shared by all that ask
+     * for it, rather than one being made on every call to decodeOrdinal.
+     *
+     * @return the verse for each ordinal
+     */
+    private Verse[] getVerses() {
+        Verse[] result = verses;
+        if (result == null) {
+            result = new Verse[ntMaxOrdinal + 1];
+            for (int ord = 0; ord <= ntMaxOrdinal; ord++) {
+                result[ord] = makeVerse(ord);
+            }
+            verses = result;
+        }
+        return result;
+    }
+
+    /**
+     * Make the verse for an ordinal.
+     *
+     * @param ord
+     *            The ordinal number of the verse, which must be in range
+     * @return A Verse
+     */
+    private Verse makeVerse(int ord) {
         // Handle three special cases
         // Book/Module introduction
         if (ord == 0) {
@@ -1256,6 +1315,16 @@ public class Versification implements ReferenceSystem, Serializable {
      */
     private int[][] chapterStarts;
 
+    /**
+     * The ordinal number of the start of each chapter, in order, computed on first use.
+     */
+    private transient volatile int[] chapterStartOrdinals;
+
+    /**
+     * The verse for each ordinal, made on first use.
+     */
+    private transient volatile Verse[] verses;
+
     /**
      * Serialization ID
      */
@@ -0,0 +1,77 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.versification;
+
+/**
+ * The mapping of every verse of one Versification to another, compiled into
+ * tables of ordinals. For each verse of the source there is a run of verses
+ * in the target, held as the start of the run in one array and the ordinals
+ * of the target verses in another. Most runs are a single verse; some are
+ * empty and a few, for split verses, are longer.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @see VersificationsMapper
+ * @author agent
+ */
+final class VersificationMappingTable {
+    /**
+     * Build a table from its runs.
+     *
+     * @param starts
+     *            where the run of each source ordinal starts in ordinals,
+     *            with one more for the end of the last
+     * @param ordinals
+     *            the target ordinals of all the runs
+     */
+    VersificationMappingTable(int[] starts, int[] ordinals) {
+        this.starts = starts;
+        this.ordinals = ordinals;
+    }
+
+    /**
+     * @param ordinal
+     *            the ordinal of a verse in the source
+     * @return the number of verses it maps to in the target
+     */
+    int getCount(int ordinal) {
+        return starts[ordinal + 1] - starts[ordinal];
+    }
+
+    /**
+     * @param ordinal
+     *            the ordinal of a verse in the source
+     * @param i
+     *            which of the verses it maps to
+     * @return the ordinal of that verse in the target
+     */
+    int get(int ordinal, int i) {
+        return ordinals[starts[ordinal] + i];
+    }
+
+    /**
+     * Where the run of each source ordinal starts in ordinals
+     */
+    private final int[] starts;
+
+    /**
+     * The target ordinals of all the runs
+     */
+    private final int[] ordinals;
+}
@@ -21,18 +21,23 @@ package org.crosswire.jsword.versification;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.crosswire.common.config.ConfigException;
 import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.OrdinalIterator;
 import org.crosswire.jsword.passage.Passage;
 import org.crosswire.jsword.passage.RangedPassage;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.passage.VerseKey;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.system.Versifications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,7 +72,7 @@ public final class VersificationsMapper {
     private VersificationsMapper() {
         // we have no mapper for the KJV, since everything maps map to the KJV, so we'll simply add an entry
         // in there to avoid ever trying to load it
-        MAPPERS.put(KJV, null);
+        UNMAPPED.add(KJV);
     }
 
     /**
@@ -99,11 +104,22 @@ public final class VersificationsMapper {
             return key;
         }
 
-        Passage newPassage = new RangedPassage(target);
-        Iterator<Key> verses = key.iterator();
+        // Gather the ordinals of the target, so that they can be added as ranges
+        VersificationMappingTable table = getTable(key.getVersification(), target);
+        BitSet mapped = new BitSet(target.maximumOrdinal() + 1);
+        OrdinalIterator verses = key.ordinalIterator();
         while (verses.hasNext()) {
-            Verse verse = (Verse) verses.next();
-            newPassage.addAll(this.mapVerse(verse, target));
+            int ordinal = verses.next();
+            for (int i = 0; i < table.getCount(ordinal); i++) {
+                mapped.set(table.get(ordinal, i));
+            }
+        }
+
+        Passage newPassage = new RangedPassage(target);
+        for (int start = mapped.nextSetBit(0); start >= 0; start = mapped.nextSetBit(start)) {
+            int end = mapped.nextClearBit(start);
+            newPassage.addAll(new VerseRange(target, target.decodeOrdinal(start), target.decodeOrdinal(end - 1)));
+            start = end;
         }
 
         return newPassage;
@@ -119,6 +135,77 @@ public final class VersificationsMapper {
             return v;
         }
 
+        VersificationMappingTable table = getTable(v.getVersification(), targetVersification);
+        int ordinal = v.getOrdinal();
+        int count = table.getCount(ordinal);
+        if (count == 1) {
+            return targetVersification.decodeOrdinal(table.get(ordinal, 0));
+        }
+
+        Passage finalKeys = new RangedPassage(targetVersification);
+        for (int i = 0; i < count; i++) {
+            finalKeys.addAll(targetVersification.decodeOrdinal(table.get(ordinal, i)));
+        }
+        return finalKeys;
+    }
+
+    /**
+     * Get the table mapping every verse of one versification to another,
+     * compiling it on first use.
+     *
+     * @param source the versification to map from
+     * @param target the versification to map to
+     * @return the table
+     */
+    private VersificationMappingTable getTable(Versification source, Versification target) {
+        String pair = source.getName() + '>' + target.getName();
+        VersificationMappingTable table = TABLES.get(pair);
+        if (table == null) {
+            table = compileTable(source, target);
+            VersificationMappingTable other = TABLES.putIfAbsent(pair, table);
+            if (other != null) {
+                table = other;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Compile a table by mapping each verse of one versification to another,
+     * in turn.
+     *
+     * @param source the versification to map from
+     * @param target the versification to map to
+     * @return the table
+     */
+    private VersificationMappingTable compileTable(Versification source, Versification target) {
+        int maximum = source.maximumOrdinal();
+        int[] starts = new int[maximum + 2];
+        int[] ordinals = new int[maximum + 1];
+        int size = 0;
+        for (int ordinal = 0; ordinal <= maximum; ordinal++) {
+            starts[ordinal] = size;
+            Key mapped = mapVerseByQualifiedKeys(source.decodeOrdinal(ordinal), target);
+            for (Key key : mapped) {
+                if (size == ordinals.length) {
+                    ordinals = Arrays.copyOf(ordinals, size + size / 4 + 1);
+                }
+                ordinals[size++] = ((Verse) key).getOrdinal();
+            }
+        }
+        starts[maximum + 1] = size;
+        return new VersificationMappingTable(starts, Arrays.copyOf(ordinals, size));
+    }
+
+    /**
+     * Map a verse through the KJV, by way of the qualified keys of the
+     * mappings of the source and target.
+     *
+     * @param v                   the verse
+     * @param targetVersification the final versification that we want
+     * @return the key for the verse
+     */
+    private VerseKey<?> mapVerseByQualifiedKeys(Verse v, Versification targetVersification) {
         ensure(v.getVersification());
         ensure(targetVersification);
 
@@ -229,29 +316,50 @@ public final class VersificationsMapper {
      * @param versification the versification we want to load
      */
     private void ensure(final Versification versification) {
-        if (MAPPERS.containsKey(versification)) {
+        if (isLoaded(versification)) {
             return;
         }
 
-        try {
-            MAPPERS.put(versification, new VersificationToKJVMapper(versification, new FileVersificationMapping(versification)));
-        } catch (IOException e) {
-            // we've attempted to load it once, and that's all we'll do.
-            LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
-            MAPPERS.put(versification, null);
-        } catch (ConfigException e) {
-            // we've attempted to load it once, and that's all we'll do.
-            LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
-            MAPPERS.put(versification, null);
-        } catch (MissingResourceException e) {
-            // we've attempted to load it once, and that's all we'll do.
-            LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
-            MAPPERS.put(versification, null);
+        // Each mapping is loaded once, however many threads want it at the same time.
+        synchronized (VersificationsMapper.class) {
+            if (isLoaded(versification)) {
+                return;
+            }
+
+            try {
+                MAPPERS.put(versification, new VersificationToKJVMapper(versification, new FileVersificationMapping(versification)));
+            } catch (IOException e) {
+                // we've attempted to load it once, and that's all we'll do.
+                LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
+                UNMAPPED.add(versification);
+            } catch (ConfigException e) {
+                // we've attempted to load it once, and that's all we'll do.
+                LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
+                UNMAPPED.add(versification);
+            } catch (MissingResourceException e) {
+                // we've attempted to load it once, and that's all we'll do.
+                LOGGER.error("Failed to load versification mappings for versification [{}]", versification, e);
+                UNMAPPED.add(versification);
+            }
         }
     }
 
+    /**
+     * @param versification the versification
+     * @return whether an attempt has been made to load its mapping
+     */
+    private boolean isLoaded(final Versification versification) {
+        return MAPPERS.containsKey(versification) || UNMAPPED.contains(versification);
+    }
+
     private static volatile VersificationsMapper instance;
     private static final Versification KJV = Versifications.instance().getVersification(Versifications.DEFAULT_V11N);
-    private static final Map<Versification, VersificationToKJVMapper> MAPPERS = new HashMap<Versification, VersificationToKJVMapper>();
+    private static final ConcurrentMap<String, VersificationMappingTable> TABLES = new ConcurrentHashMap<String, VersificationMappingTable>();
+    private static final ConcurrentMap<Versification, VersificationToKJVMapper> MAPPERS = new ConcurrentHashMap<Versification, VersificationToKJVMapper>();
+
+    /**
+     * The versifications that have no mapper, either because they need none or because it failed to load.
+     */
+    private static final Set<Versification> UNMAPPED = Collections.newSetFromMap(new ConcurrentHashMap<Versification, Boolean>());
     private static final Logger LOGGER = LoggerFactory.getLogger(VersificationsMapper.class);
 }
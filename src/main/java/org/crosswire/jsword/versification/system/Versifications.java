@@ -19,17 +19,18 @@
  */
 package org.crosswire.jsword.versification.system;
 
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.crosswire.jsword.versification.Versification;
 
 /**
  * The Versifications class manages the creation of Versifications as needed.
  * It delays the construction of the Versification until getVersification(String name) is called.
+ * Versifications are looked up without locking, as they are looked up often and from many threads.
  *
  * @see gnu.lgpl.License The GNU Lesser General Public License for details.
  * @author DM Smith
@@ -58,7 +59,7 @@ public final class Versifications {
      * @deprecated Use {@link #getVersification(String)} instead.
      */
     @Deprecated
-    public synchronized Versification getDefaultVersification() {
+    public Versification getDefaultVersification() {
         return getVersification(DEFAULT_V11N);
     }
 
@@ -68,7 +69,7 @@ public final class Versifications {
      * @param name the name of the Versification
      * @return the Versification or null if it is not known.
      */
-    public synchronized Versification getVersification(String name) {
+    public Versification getVersification(String name) {
         String actual = name;
         if (actual == null) {
             actual = DEFAULT_V11N;
@@ -80,7 +81,11 @@ public final class Versifications {
         if (rs == null) {
             rs = fluff(actual);
             if (rs != null) {
-                fluffed.put(actual, rs);
+                // Should another thread have built it first, use that one.
+                Versification other = fluffed.putIfAbsent(actual, rs);
+                if (other != null) {
+                    rs = other;
+                }
             }
         }
 
@@ -93,7 +98,7 @@ public final class Versifications {
      * @param name the name of the Versification
      * @return true when the Versification is available for use
      */
-    public synchronized boolean isDefined(String name) {
+    public boolean isDefined(String name) {
         return name == null || known.contains(name);
     }
 
@@ -164,7 +169,7 @@ public final class Versifications {
      *
      * @param rs the Versification to register
      */
-    public synchronized void register(Versification rs) {
+    public void register(Versification rs) {
         fluffed.put(rs.getName(), rs);
         known.add(rs.getName());
     }
@@ -189,7 +194,7 @@ public final class Versifications {
      * This class is a singleton, enforced by a private constructor.
      */
     private Versifications() {
-        known = new HashSet<String>();
+        known = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
         known.add(SystemCalvin.V11N_NAME);
         known.add(SystemCatholic.V11N_NAME);
         known.add(SystemCatholic2.V11N_NAME);
@@ -208,7 +213,7 @@ public final class Versifications {
         known.add(SystemSynodal.V11N_NAME);
         known.add(SystemSynodalProt.V11N_NAME);
         known.add(SystemVulg.V11N_NAME);
-        fluffed = new HashMap<String, Versification>();
+        fluffed = new ConcurrentHashMap<String, Versification>();
     }
 
     /**
@@ -219,7 +224,7 @@ public final class Versifications {
     /**
      * The map of instantiated Versifications, given by their names.
      */
-    private Map<String, Versification> fluffed;
+    private ConcurrentMap<String, Versification> fluffed;
 
     private static final Versifications instance = new Versifications();
 }
@@ -32,6 +32,7 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     org.crosswire.common.compress.AllTests.class,
+    org.crosswire.common.crypt.AllTests.class,
     org.crosswire.common.diff.AllTests.class,
     org.crosswire.common.history.AllTests.class,
     org.crosswire.common.icu.AllTests.class,
@@ -0,0 +1,79 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.common.crypt;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class SapphireTest {
+
+    @Test
+    public void testBulk() {
+        byte[] expected = PLAIN.clone();
+        Sapphire single = new Sapphire(KEY);
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = single.cipher(expected[i]);
+        }
+
+        byte[] actual = PLAIN.clone();
+        new Sapphire(KEY).cipher(actual, 0, actual.length);
+        Assert.assertTrue(Arrays.equals(expected, actual));
+    }
+
+    @Test
+    public void testPart() {
+        byte[] data = PLAIN.clone();
+        new Sapphire(KEY).cipher(data, 4, data.length - 4);
+        for (int i = 0; i < 4; i++) {
+            Assert.assertEquals(PLAIN[i], data[i]);
+        }
+        byte[] tail = Arrays.copyOfRange(PLAIN, 4, PLAIN.length);
+        new Sapphire(KEY).cipher(tail, 0, tail.length);
+        Assert.assertTrue(Arrays.equals(tail, Arrays.copyOfRange(data, 4, data.length)));
+    }
+
+    @Test
+    public void testClone() {
+        Sapphire keyed = new Sapphire(KEY);
+        Sapphire copy = keyed.clone();
+
+        byte[] expected = PLAIN.clone();
+        new Sapphire(KEY).cipher(expected, 0, expected.length);
+        byte[] actual = PLAIN.clone();
+        copy.cipher(actual, 0, actual.length);
+        Assert.assertTrue(Arrays.equals(expected, actual));
+
+        // Using the copy does not change the original
+        actual = PLAIN.clone();
+        keyed.clone().cipher(actual, 0, actual.length);
+        Assert.assertTrue(Arrays.equals(expected, actual));
+    }
+
+    private static final byte[] KEY = "0123456789abcdef".getBytes();
+    private static final byte[] PLAIN = "In the beginning God created the heaven and the earth.".getBytes();
+}
@@ -23,9 +23,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
+import org.junit.After;
 import org.junit.Assert;
+import org.junit.Before;
 import org.junit.Test;
 
 /**
@@ -38,6 +41,16 @@ import org.junit.Test;
  * @author DM Smith
  */
 public class DifferenceEngineTest {
+    @Before
+    public void setUp() {
+        oldTimeout = DifferenceEngine.getTimeout();
+    }
+
+    @After
+    public void tearDown() {
+        DifferenceEngine.setTimeout(oldTimeout);
+    }
+
     @Test
     public void testDiffPath() {
         // Single letters
@@ -159,14 +172,61 @@ public class DifferenceEngineTest {
         Assert.assertEquals("diff_path2: Double letters.", diffs, generator.path2(vMap, "CD34", "34YZ"));
     }
 
+    @Test
+    public void testGenerate() {
+        DifferenceEngine.setTimeout(0);
+        List<Difference> diffs = diffList(
+                new Difference(EditType.INSERT, "W"), new Difference(EditType.DELETE, "A"), new Difference(EditType.EQUAL, "1"), new Difference(EditType.DELETE, "B"), new Difference(EditType.EQUAL, "2"), new Difference(EditType.DELETE, "C"), new Difference(EditType.INSERT, "X"), new Difference(EditType.EQUAL, "3"), new Difference(EditType.DELETE, "D"));
+        Assert.assertEquals("diff_map: Single letters.", diffs, new DifferenceEngine("A1B2C3D", "W12X3").generate());
+
+        // The paths may step beyond the ends of the texts.
+        // Diff strips any common prefix and suffix before generating.
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; i++) {
+            String source = 'x' + randomText(random) + 'y';
+            String target = 'y' + randomText(random) + 'x';
+            List<Difference> generated = new DifferenceEngine(source, target).generate();
+            if (generated == null) {
+                continue;
+            }
+            StringBuilder rebuiltSource = new StringBuilder();
+            StringBuilder rebuiltTarget = new StringBuilder();
+            for (Difference diff : generated) {
+                if (!EditType.INSERT.equals(diff.getEditType())) {
+                    rebuiltSource.append(diff.getText());
+                }
+                if (!EditType.DELETE.equals(diff.getEditType())) {
+                    rebuiltTarget.append(diff.getText());
+                }
+            }
+            Assert.assertEquals("diff_map: Rebuilt source.", source, rebuiltSource.toString());
+            Assert.assertEquals("diff_map: Rebuilt target.", target, rebuiltTarget.toString());
+        }
+    }
+
     @Test
     public void testTimeout() {
         DifferenceEngine.setTimeout(0.001f); // 1ms
         // This test may fail on extremely fast computers. If so, just increase
         // the text lengths.
-        Assert.assertNull(
-                "diff_main: Timeout.", new DifferenceEngine("`Twas brillig, and the slithy toves\nDid gyre and gimble in the wabe:\nAll mimsy were the borogoves,\nAnd the mome raths outgrabe.", "I am the very model of a modern major general,\nI've information vegetable, animal, and mineral,\nI know the kings of England, and I quote the fights historical,\nFrom Marathon to Waterloo, in order categorical.").generate());
-        DifferenceEngine.setTimeout(0);
+        String a = "`Twas brillig, and the slithy toves\nDid gyre and gimble in the wabe:\nAll mimsy were the borogoves,\nAnd the mome raths outgrabe.";
+        String b = "I am the very model of a modern major general,\nI've information vegetable, animal, and mineral,\nI know the kings of England, and I quote the fights historical,\nFrom Marathon to Waterloo, in order categorical.";
+        // Increase the text lengths by 1024 times to ensure a timeout.
+        for (int i = 0; i < 10; i++) {
+            a = a + a;
+            b = b + b;
+        }
+        Assert.assertNull("diff_main: Timeout.", new DifferenceEngine(a, b).generate());
+    }
+
+    // Private function for making up short texts with a few letters.
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder();
+        int length = random.nextInt(30);
+        for (int i = 0; i < length; i++) {
+            text.append((char) ('a' + random.nextInt(4)));
+        }
+        return text.toString();
     }
 
     // Private function for quickly building lists of diffs.
@@ -175,4 +235,6 @@ public class DifferenceEngineTest {
         list.addAll(Arrays.asList(items));
         return list;
     }
+
+    private float oldTimeout;
 }
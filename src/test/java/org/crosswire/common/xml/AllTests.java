@@ -30,8 +30,9 @@ import org.junit.runners.Suite.SuiteClasses;
  * @author DM Smith
  */
 @RunWith(Suite.class)
-@SuiteClasses(
-    XMLUtilTest.class
-)
+@SuiteClasses({
+    XMLUtilTest.class,
+    TransformingSAXEventProviderTest.class
+})
 public class AllTests {
 }
@@ -0,0 +1,148 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.common.xml;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.net.URI;
+
+import org.crosswire.common.util.IOUtil;
+import org.jdom2.Document;
+import org.jdom2.Element;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that transforms reuse compiled style sheets and transformers
+ * without one transform affecting another.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class TransformingSAXEventProviderTest {
+
+    @Before
+    public void setUp() throws Exception {
+        xsl = File.createTempFile("jsword", ".xsl");
+        OutputStream out = new FileOutputStream(xsl);
+        try {
+            out.write(XSL.getBytes("UTF-8"));
+        } finally {
+            IOUtil.close(out);
+        }
+        xsluri = xsl.toURI();
+    }
+
+    @After
+    public void tearDown() {
+        xsl.delete();
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        long compiles = TransformingSAXEventProvider.getCompileCount();
+        long transforms = TransformingSAXEventProvider.getTransformCount();
+
+        TransformingSAXEventProvider tsep = new TransformingSAXEventProvider(xsluri, input("first"));
+        tsep.setParameter("p", "one");
+        Assert.assertEquals("first:one", transform(tsep));
+
+        // The parameter of the first is not kept by its transformer
+        Assert.assertEquals("second:default", transform(new TransformingSAXEventProvider(xsluri, input("second"))));
+
+        Assert.assertEquals(compiles + 1, TransformingSAXEventProvider.getCompileCount());
+        Assert.assertEquals(transforms + 2, TransformingSAXEventProvider.getTransformCount());
+    }
+
+    @Test
+    public void testNested() throws Exception {
+        // The input of the outer transform is the output of an inner one
+        TransformingSAXEventProvider inner = new TransformingSAXEventProvider(xsluri, input("inner"));
+        inner.setParameter("p", "in");
+        SAXEventProvider outer = new TransformingSAXEventProvider(xsluri, inner);
+        SerializingContentHandler handler = new SerializingContentHandler();
+        outer.provideSAXEvents(handler);
+        Assert.assertTrue(handler.toString(), handler.toString().indexOf("inner:in:default") >= 0);
+        Assert.assertEquals("inner:in", transform(inner));
+    }
+
+    @Test
+    public void testThreads() throws Exception {
+        final String[] results = new String[4];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        StringBuilder buf = new StringBuilder();
+                        for (int j = 0; j < 20; j++) {
+                            TransformingSAXEventProvider tsep = new TransformingSAXEventProvider(xsluri, input("t" + n));
+                            tsep.setParameter("p", Integer.toString(j));
+                            buf.append(transform(tsep)).append(' ');
+                        }
+                        results[n] = buf.toString();
+                    } catch (Exception e) {
+                        results[n] = e.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            StringBuilder expected = new StringBuilder();
+            for (int j = 0; j < 20; j++) {
+                expected.append('t').append(i).append(':').append(j).append(' ');
+            }
+            Assert.assertEquals(expected.toString(), results[i]);
+        }
+    }
+
+    private static SAXEventProvider input(String text) {
+        Element root = new Element("out");
+        root.addContent(text);
+        return new JDOMSAXEventProvider(new Document(root));
+    }
+
+    private static String transform(SAXEventProvider provider) throws Exception {
+        String output = serialize(provider);
+        return output.substring(output.indexOf("<out>") + 5, output.indexOf("</out>"));
+    }
+
+    private static String serialize(SAXEventProvider provider) throws Exception {
+        SerializingContentHandler handler = new SerializingContentHandler();
+        provider.provideSAXEvents(handler);
+        return handler.toString();
+    }
+
+    private static final String XSL = "<?xml version=\"1.0\"?>"
+            + "<xsl:stylesheet version=\"1.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+            + "<xsl:param name=\"p\" select=\"'default'\"/>"
+            + "<xsl:template match=\"/\"><out><xsl:value-of select=\"out\"/>:<xsl:value-of select=\"$p\"/></out></xsl:template>"
+            + "</xsl:stylesheet>";
+
+    private File xsl;
+    private URI xsluri;
+}
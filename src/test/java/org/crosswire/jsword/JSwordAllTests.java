@@ -33,6 +33,7 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
     org.crosswire.jsword.prerequisites.AllTests.class,
     org.crosswire.jsword.book.AllTests.class,
+    org.crosswire.jsword.book.filter.osis.AllTests.class,
     org.crosswire.jsword.book.filter.thml.AllTests.class,
     org.crosswire.jsword.book.sword.AllTests.class,
     org.crosswire.jsword.bridge.AllTests.class,
@@ -34,7 +34,9 @@ import org.junit.runners.Suite.SuiteClasses;
     BooksTest.class,
     BookMetaDataTest.class,
     SentenceUtilTest.class,
-    OsisTest.class
+    OsisTest.class,
+    StreamingSAXEventProviderTest.class,
+    BookDataTest.class
 })
 public class AllTests {
 }
@@ -0,0 +1,186 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.crosswire.common.util.IniSection;
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.common.xml.SerializingContentHandler;
+import org.crosswire.jsword.book.sword.RawBackend;
+import org.crosswire.jsword.book.sword.SwordBook;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.book.sword.TestModules;
+import org.crosswire.jsword.book.sword.state.RawBackendState;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.jdom2.Content;
+import org.jdom2.Element;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the parallel view of two small RawText modules, written by the
+ * test, read a chapter at a time.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BookDataTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+        library = TestModules.createLibrary("bookdata");
+        reads = new AtomicInteger();
+        books = new Book[] {
+                createBook("first", new String[] {
+                        "The book of the generation", "And Judas begat Phares", "Now when Jesus was born", "Saying, Where is he"
+                }),
+                createBook("second", new String[] {
+                        "The book of the generations", "And Judah begat Perez", "When Jesus was born", "Saying, Where is the child"
+                }),
+        };
+    }
+
+    @After
+    public void tearDown() {
+        BookData.setParallel(true);
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testRows() throws Exception {
+        Key key = PassageKeyFactory.instance().getKey(v11n, "Matt 1:1-3");
+        Element div = new BookData(books, key, true).getOsisFragment();
+        Element table = div.getChild(OSISUtil.OSIS_ELEMENT_TABLE);
+        List<Element> rows = table.getChildren(OSISUtil.OSIS_ELEMENT_ROW);
+        // The header and a row for each verse with text
+        Assert.assertEquals(3, rows.size());
+        // Each book and the differences between them
+        Assert.assertEquals(3, rows.get(1).getChildren(OSISUtil.OSIS_ELEMENT_CELL).size());
+        String row = OSISUtil.getCanonicalText(rows.get(2));
+        Assert.assertTrue(row, row.indexOf("Judas") >= 0);
+        Assert.assertTrue(row, row.indexOf("Judah") >= 0);
+
+        // Each chapter has a row for its title
+        key = PassageKeyFactory.instance().getKey(v11n, "Matt 1:1-2:2");
+        table = new BookData(books, key, true).getOsisFragment().getChild(OSISUtil.OSIS_ELEMENT_TABLE);
+        rows = table.getChildren(OSISUtil.OSIS_ELEMENT_ROW);
+        Assert.assertEquals(7, rows.size());
+        Assert.assertNotNull(rows.get(4).getChild(OSISUtil.OSIS_ELEMENT_CELL).getChild(OSISUtil.OSIS_ELEMENT_TITLE));
+        Assert.assertNull(rows.get(3).getChild(OSISUtil.OSIS_ELEMENT_CELL).getChild(OSISUtil.OSIS_ELEMENT_TITLE));
+    }
+
+    @Test
+    public void testStreamingSameAsTree() throws Exception {
+        check("Matt 1:1-3", true);
+        check("Matt 1:1-2:2", true);
+        check("Matt 1:1, Matt 2:2", false);
+    }
+
+    @Test
+    public void testParallelSameAsSerial() throws Exception {
+        Key key = PassageKeyFactory.instance().getKey(v11n, "Matt 1:1-2:2");
+        BookData.setParallel(false);
+        String expected = serialize(new BookData(books, key, true).getSAXEventProvider());
+        BookData.setParallel(true);
+        String actual = serialize(new BookData(books, key, true).getSAXEventProvider());
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testScatteredVerses() throws Exception {
+        // Every other verse of two chapters
+        StringBuilder ref = new StringBuilder();
+        for (int chapter = 1; chapter <= 2; chapter++) {
+            int lastVerse = v11n.getLastVerse(BibleBook.MATT, chapter);
+            for (int verse = 1; verse <= lastVerse; verse += 2) {
+                ref.append(new Verse(v11n, BibleBook.MATT, chapter, verse).getOsisRef()).append(' ');
+            }
+        }
+        Key key = PassageKeyFactory.instance().getKey(v11n, ref.toString());
+        String text = OSISUtil.getCanonicalText(new BookData(books, key, true).getOsisFragment());
+
+        // Each book is read once for each chapter, not once for each verse
+        Assert.assertEquals(4, reads.get());
+        Assert.assertTrue(text, text.indexOf("The book of the generation") >= 0);
+        Assert.assertTrue(text, text.indexOf("And Judas begat Phares") >= 0);
+        Assert.assertTrue(text, text.indexOf("Now when Jesus was born") >= 0);
+        Assert.assertTrue(text, text.indexOf("Saying") < 0);
+    }
+
+    private void check(String ref, boolean compare) throws Exception {
+        Key key = PassageKeyFactory.instance().getKey(v11n, ref);
+        String expected = serialize(new BookData(books, key, compare).getSAXEventProvider());
+        String actual = serialize(new BookData(books, key, compare).getStreamingSAXEventProvider());
+        Assert.assertTrue(actual.indexOf("Phares") >= 0 || actual.indexOf("Where") >= 0);
+        Assert.assertEquals(ref, expected, actual);
+    }
+
+    private static String serialize(SAXEventProvider provider) throws Exception {
+        SerializingContentHandler handler = new SerializingContentHandler();
+        provider.provideSAXEvents(handler);
+        return handler.toString();
+    }
+
+    private Book createBook(String name, String[] verses) throws IOException, BookException {
+        File dataPath = TestModules.createDataPath(library, name);
+
+        Verse[] refs = {
+                new Verse(v11n, BibleBook.MATT, 1, 1), new Verse(v11n, BibleBook.MATT, 1, 3),
+                new Verse(v11n, BibleBook.MATT, 2, 1), new Verse(v11n, BibleBook.MATT, 2, 2),
+        };
+        byte[] idx = new byte[v11n.getCount(Testament.NEW) * 6];
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < refs.length; i++) {
+            TestModules.addVerse(v11n, idx, text, refs[i], verses[i]);
+        }
+        TestModules.write(new File(dataPath, "nt.vss"), idx);
+        TestModules.write(new File(dataPath, "nt"), text.toString().getBytes("UTF-8"));
+
+        IniSection conf = TestModules.createConf(library, name, "RawText", "./" + name + "/");
+        conf.add(SwordBookMetaData.KEY_LANG, "en");
+        SwordBookMetaData sbmd = TestModules.createMetaData(library, name, conf);
+        return new SwordBook(sbmd, new RawBackend<RawBackendState>(sbmd, 2)) {
+            @Override
+            public Iterator<Content> getOsisIterator(Key key, boolean allowEmpty, boolean allowGenTitles) throws BookException {
+                reads.incrementAndGet();
+                return super.getOsisIterator(key, allowEmpty, allowGenTitles);
+            }
+        };
+    }
+
+    private Versification v11n;
+    private File library;
+    private Book[] books;
+    private AtomicInteger reads;
+}
@@ -0,0 +1,111 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book;
+
+import java.io.File;
+
+import org.crosswire.common.xml.SAXEventProvider;
+import org.crosswire.common.xml.SerializingContentHandler;
+import org.crosswire.jsword.book.sword.RawBackend;
+import org.crosswire.jsword.book.sword.SwordBook;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.book.sword.TestModules;
+import org.crosswire.jsword.book.sword.state.RawBackendState;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that streaming the OSIS of a small RawText module, written by the
+ * test, gives the same events as building it first.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StreamingSAXEventProviderTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+
+        library = TestModules.createLibrary("streaming");
+        File dataPath = TestModules.createDataPath(library, "test");
+
+        byte[] idx = new byte[v11n.getCount(Testament.NEW) * 6];
+        StringBuilder text = new StringBuilder();
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 1), "The book of the generation");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 3), "And Judas begat Phares");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 2, 1), "Now when Jesus was born");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 2, 2), "Saying, Where is he");
+        TestModules.write(new File(dataPath, "nt.vss"), idx);
+        TestModules.write(new File(dataPath, "nt"), text.toString().getBytes("UTF-8"));
+
+        SwordBookMetaData sbmd = TestModules.createMetaData(library, "test", TestModules.createConf(library, "test", "RawText", "./test/"));
+        book = new SwordBook(sbmd, new RawBackend<RawBackendState>(sbmd, 2));
+    }
+
+    @After
+    public void tearDown() {
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testSameAsTree() throws Exception {
+        check("Matt 1:1-3");
+        check("Matt 1:1-2:2");
+        check("Matt 1:1, Matt 2:2");
+    }
+
+    @Test
+    public void testWithoutTitles() throws Exception {
+        Key key = PassageKeyFactory.instance().getKey(v11n, "Matt 1:1-3");
+        String expected = serialize(new StreamingSAXEventProvider(book, key, true));
+        String actual = serialize(new StreamingSAXEventProvider(book, key, false));
+        Assert.assertTrue(actual.length() > 0);
+        Assert.assertTrue(actual.length() < expected.length());
+        Assert.assertTrue(actual.indexOf("Judas") >= 0);
+    }
+
+    private void check(String ref) throws Exception {
+        Key key = PassageKeyFactory.instance().getKey(v11n, ref);
+        String expected = serialize(new BookData(book, key).getSAXEventProvider());
+        String actual = serialize(new BookData(book, key).getStreamingSAXEventProvider());
+        Assert.assertTrue(actual.indexOf("Phares") >= 0 || actual.indexOf("Where") >= 0);
+        Assert.assertEquals(ref, expected, actual);
+    }
+
+    private static String serialize(SAXEventProvider provider) throws Exception {
+        SerializingContentHandler handler = new SerializingContentHandler();
+        provider.provideSAXEvents(handler);
+        return handler.toString();
+    }
+
+    private Versification v11n;
+    private File library;
+    private Book book;
+}
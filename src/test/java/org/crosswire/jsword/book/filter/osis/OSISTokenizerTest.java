@@ -0,0 +1,117 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.filter.osis;
+
+import java.io.StringReader;
+
+import org.jdom2.Element;
+import org.jdom2.input.SAXBuilder;
+import org.jdom2.output.XMLOutputter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xml.sax.InputSource;
+
+/**
+ * Checks that verses built without a parser are the same as those parsed.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class OSISTokenizerTest {
+
+    @Test
+    public void testSameAsParser() throws Exception {
+        for (String verse : SIMPLE) {
+            Element built = OSISTokenizer.parse(verse);
+            Assert.assertNotNull(verse, built);
+            Assert.assertEquals(verse, output(parse(verse)), output(built));
+        }
+    }
+
+    @Test
+    public void testLeftToParser() {
+        for (String verse : PARSED) {
+            Assert.assertNull(verse, OSISTokenizer.parse(verse));
+        }
+    }
+
+    @Test
+    public void testMilestones() {
+        String verse = "<div><speech>In the beginning</speech></div></chapter>";
+        Assert.assertEquals("<div sID=\"xyz\"/><speech sID=\"xyz\"/>In the beginning<speech eID=\"xyz\"/><div eID=\"xyz\"/><chapter eID=\"xyz\"/>",
+                OSISFilter.toMilestones(verse));
+        // Nothing to do gives the same text
+        verse = "<div type=\"x\">In the <w>beginning</w></div";
+        Assert.assertSame(verse, OSISFilter.toMilestones(verse));
+    }
+
+    private static Element parse(String verse) throws Exception {
+        return new SAXBuilder().build(new InputSource(new StringReader("<xxx>" + verse + "</xxx>"))).getRootElement();
+    }
+
+    private static String output(Element element) {
+        StringBuilder buf = new StringBuilder();
+        for (Object content : element.getContent()) {
+            // Show the boundaries of text
+            buf.append(content.getClass().getSimpleName()).append(':');
+        }
+        return buf.append(new XMLOutputter().outputString(element)).toString();
+    }
+
+    private static final String[] SIMPLE = {
+        "",
+        "In the beginning God created the heaven and the earth.",
+        "  ",
+        "<w lemma=\"strong:H07225\" morph=\"strongMorph:TH8804\">In the beginning</w> <w lemma='strong:H0430'>God</w>",
+        "<title type=\"x-gen\">Genesis 1</title><div sID=\"xyz\"/><lb/>",
+        "<q who=\"Jesus\" marker=\"\">Follow me</q >.",
+        "Fish &amp; chips &lt;&gt; &quot;&apos; &#65;&#x42;&#x1D11E;",
+        "<note n=\"a\" osisRef=\"Gen.1.1&amp;Gen.1.2\">see\tthe <reference osisRef=\"Gen.1.2\">next</reference></note>",
+        "<hi type=\"bold\" a=\"x\ty\nz\">a &gt; b ]] c</hi>",
+        "line\none",
+        "<a\n  b = \"1\"\n  c='2' />",
+    };
+
+    private static final String[] PARSED = {
+        "<w>unclosed",
+        "closed</w>",
+        "<w></q>",
+        "<!-- a comment -->",
+        "<![CDATA[x]]>",
+        "<?pi x?>",
+        "&nbsp;",
+        "&amp",
+        "&#X41;",
+        "&#-1;",
+        "a ]]> b",
+        "<a b=\"1\"c=\"2\"/>",
+        "<a b=\"1\" b=\"2\"/>",
+        "<a b=1/>",
+        "<a b=\"<\"/>",
+        "<a xml:lang=\"en\"/>",
+        "<a xmlns=\"urn:x\"/>",
+        "<x:a/>",
+        "line\r\none",
+        "<1a/>",
+        "<",
+        "<a",
+        "\u0001",
+    };
+}
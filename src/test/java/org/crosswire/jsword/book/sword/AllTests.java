@@ -33,10 +33,14 @@ import org.junit.runners.Suite.SuiteClasses;
 @SuiteClasses({
     BackendTest.class,
     ConfigEntryTableTest.class,
+    GenBookBackendTest.class,
+    RawBackendTest.class,
     RawFileBackendTest.class,
+    RawLDBackendTest.class,
     SwordBookDriverTest.class,
     SwordBookMetaDataTest.class,
-    SwordBookTest.class
+    SwordBookTest.class,
+    ZVerseBackendTest.class
 })
 public class AllTests {
 }
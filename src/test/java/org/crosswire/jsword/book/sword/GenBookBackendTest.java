@@ -0,0 +1,147 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.TreeKey;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads a small General Book, written by the test, through the tree held in
+ * memory.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class GenBookBackendTest {
+
+    @Before
+    public void setUp() throws Exception {
+        library = TestModules.createLibrary("genbook");
+        File dataPath = TestModules.createDataPath(library, "test");
+
+        // The root has two children, A and B, and A has a child, A1.
+        // B has a name too long to be read at once.
+        // B wrongly links back to A, which must not send the tree round in circles.
+        ByteArrayOutputStream dat = new ByteArrayOutputStream();
+        byte[] idx = new byte[16];
+        SwordUtil.encodeLittleEndian32(writeNode(dat, -1, -1, 4, "", -1, 0), idx, 0);
+        SwordUtil.encodeLittleEndian32(writeNode(dat, 0, 12, 8, "A", 0, 5), idx, 4);
+        SwordUtil.encodeLittleEndian32(writeNode(dat, 4, -1, -1, " A1 ", 5, 3), idx, 8);
+        SwordUtil.encodeLittleEndian32(writeNode(dat, 0, 4, -1, LONG_NAME, -1, 0), idx, 12);
+        TestModules.write(new File(dataPath, "book.idx"), idx);
+        TestModules.write(new File(dataPath, "book.dat"), dat.toByteArray());
+        TestModules.write(new File(dataPath, "book.bdt"), "AlphaOne".getBytes("UTF-8"));
+
+        backend = new GenBookBackend(TestModules.createMetaData(library, "test", TestModules.createConf(library, "test", "RawGenBook", "./test/book")));
+    }
+
+    @After
+    public void tearDown() {
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testReadIndex() {
+        Key root = backend.readIndex();
+        Assert.assertEquals(2, root.getChildCount());
+        Assert.assertEquals(4, root.getCardinality());
+    }
+
+    @Test
+    public void testGetRawText() throws BookException {
+        Key root = new TreeKey("", null);
+        Key a = new TreeKey("A", root);
+        Assert.assertEquals("Alpha", backend.getRawText(a));
+        Assert.assertEquals("One", backend.getRawText(new TreeKey("A1", a)));
+        Assert.assertEquals("", backend.getRawText(new TreeKey(LONG_NAME, root)));
+        Assert.assertEquals(3, backend.getRawTextLength(new TreeKey("A1", a)));
+        Assert.assertTrue(backend.contains(a));
+        Assert.assertFalse(backend.contains(new TreeKey(LONG_NAME, root)));
+    }
+
+    @Test
+    public void testMissing() {
+        Key root = new TreeKey("", null);
+        Assert.assertFalse(backend.contains(new TreeKey("A1", root)));
+        try {
+            backend.getRawText(new TreeKey("C", root));
+            Assert.fail();
+        } catch (BookException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTreeKeyIndex() throws IOException {
+        TreeKeyIndex index = new TreeKeyIndex((SwordBookMetaData) backend.getBookMetaData());
+        TreeNode root = index.getRoot();
+        Assert.assertEquals("", root.getName());
+        TreeNode a = index.getFirstChild(root);
+        Assert.assertEquals("A", a.getName());
+        Assert.assertEquals(8, a.getUserData().length);
+        TreeNode a1 = index.getFirstChild(a);
+        Assert.assertEquals("A1", a1.getName());
+        Assert.assertFalse(a1.hasNextSibling());
+        TreeNode b = index.getNextSibling(a);
+        Assert.assertEquals(LONG_NAME, b.getName());
+        Assert.assertEquals(0, b.getUserData().length);
+        Assert.assertFalse(b.hasChildren());
+    }
+
+    private static int writeNode(ByteArrayOutputStream dat, int parent, int nextSibling, int firstChild, String name, int start, int size) throws IOException {
+        int offset = dat.size();
+        byte[] links = new byte[12];
+        SwordUtil.encodeLittleEndian32(parent, links, 0);
+        SwordUtil.encodeLittleEndian32(nextSibling, links, 4);
+        SwordUtil.encodeLittleEndian32(firstChild, links, 8);
+        dat.write(links);
+        dat.write(name.getBytes("UTF-8"));
+        dat.write(0);
+        byte[] userData = new byte[start == -1 ? 2 : 10];
+        if (start != -1) {
+            SwordUtil.encodeLittleEndian16(8, userData, 0);
+            SwordUtil.encodeLittleEndian32(start, userData, 2);
+            SwordUtil.encodeLittleEndian32(size, userData, 6);
+        }
+        dat.write(userData);
+        return offset;
+    }
+
+    private static final String LONG_NAME;
+    static {
+        StringBuilder buf = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            buf.append("B").append(i);
+        }
+        LONG_NAME = buf.toString();
+    }
+
+    private File library;
+    private GenBookBackend backend;
+}
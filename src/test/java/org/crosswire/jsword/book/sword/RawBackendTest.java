@@ -0,0 +1,103 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.state.RawBackendState;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads a small RawText module, written by the test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class RawBackendTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+
+        library = TestModules.createLibrary("rawtext");
+        File dataPath = TestModules.createDataPath(library, "test");
+
+        // Matt 1:2 is empty and Matt 1:4 is stored far away from the rest
+        byte[] idx = new byte[v11n.getCount(Testament.NEW) * 6];
+        StringBuilder text = new StringBuilder();
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 1), "The book of the generation");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 3), "And Judas begat Phares");
+        for (int i = 0; i < 200; i++) {
+            text.append("          ");
+        }
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 4), "And Aram begat Aminadab");
+        TestModules.write(new File(dataPath, "nt.vss"), idx);
+        TestModules.write(new File(dataPath, "nt"), text.toString().getBytes("UTF-8"));
+
+        SwordBookMetaData sbmd = TestModules.createMetaData(library, "test", TestModules.createConf(library, "test", "RawText", "./test/"));
+        backend = new RawBackend<RawBackendState>(sbmd, 2);
+    }
+
+    @After
+    public void tearDown() {
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testReadRawRange() throws BookException, IOException {
+        RawBackendState state = null;
+        try {
+            state = backend.initState();
+
+            VerseRange range = new VerseRange(v11n, new Verse(v11n, BibleBook.MATT, 1, 1), new Verse(v11n, BibleBook.MATT, 1, 5));
+            String[] rawTexts = backend.readRawRange(state, range);
+            Assert.assertEquals(5, rawTexts.length);
+            Assert.assertEquals("The book of the generation", rawTexts[0]);
+            Assert.assertEquals("", rawTexts[1]);
+            Assert.assertEquals("And Judas begat Phares", rawTexts[2]);
+            Assert.assertEquals("And Aram begat Aminadab", rawTexts[3]);
+            Assert.assertEquals("", rawTexts[4]);
+
+            int i = 0;
+            for (Key verse : range) {
+                Assert.assertEquals(backend.getRawText(verse), rawTexts[i++]);
+            }
+        } finally {
+            IOUtil.close(state);
+        }
+    }
+
+    private Versification v11n;
+    private File library;
+    private RawBackend<RawBackendState> backend;
+}
@@ -31,9 +31,11 @@ import org.crosswire.jsword.book.sword.state.RawFileBackendState;
 import org.crosswire.jsword.passage.NoSuchVerseException;
 import org.crosswire.jsword.passage.Verse;
 import org.crosswire.jsword.passage.VerseFactory;
+import org.crosswire.jsword.passage.VerseRange;
 import org.crosswire.jsword.versification.BibleBook;
 import org.crosswire.jsword.versification.Versification;
 import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -84,6 +86,11 @@ public class RawFileBackendTest {
         backend.create();
     }
 
+    @After
+    public void tearDown() throws Exception {
+        configFile.delete();
+    }
+
     @Test
     public void testSetRawText() throws IOException, BookException {
         Verse otVerse = new Verse(v11n, BibleBook.GEN, 3, 1);
@@ -127,6 +134,32 @@ public class RawFileBackendTest {
 
     }
 
+    @Test
+    public void testReadRawRange() throws NoSuchVerseException, IOException, BookException {
+        Verse first = VerseFactory.fromString(v11n, "Ruth 1:1");
+        Verse last = VerseFactory.fromString(v11n, "Ruth 1:3");
+
+        File dataPath = new File(SwordUtil.getExpandedDataPath(backend.getBookMetaData()));
+        if (!dataPath.exists()) {
+            backend.create();
+        }
+
+        RawFileBackendState state = null;
+        try {
+            state = backend.initState();
+            backend.setRawText(state, first, "Hello Ruth");
+            backend.setRawText(state, last, "Hello Ruth3");
+
+            String[] rawTexts = backend.readRawRange(state, new VerseRange(v11n, first, last));
+            Assert.assertEquals(3, rawTexts.length);
+            Assert.assertEquals("Hello Ruth", rawTexts[0]);
+            Assert.assertEquals("", rawTexts[1]);
+            Assert.assertEquals("Hello Ruth3", rawTexts[2]);
+        } finally {
+            IOUtil.close(state);
+        }
+    }
+
     @Test
     public void testSetAliasKey() throws NoSuchVerseException, IOException, BookException {
         Verse source = VerseFactory.fromString(v11n, "Gen 1:1");
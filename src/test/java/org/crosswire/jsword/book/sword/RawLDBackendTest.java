@@ -0,0 +1,129 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.state.RawLDBackendState;
+import org.crosswire.jsword.passage.DefaultLeafKeyList;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Reads a small RawLD4 dictionary, written by the test, both by searching the
+ * files and by using a key directory.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class RawLDBackendTest {
+
+    @After
+    public void tearDown() {
+        RawLDBackend.setKeyDirectory(false);
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testSearchFiles() throws Exception {
+        RawLDBackend.setKeyDirectory(false);
+        checkBackend(createBackend(false));
+    }
+
+    @Test
+    public void testSearchDirectory() throws Exception {
+        RawLDBackend.setKeyDirectory(true);
+        checkBackend(createBackend(false));
+    }
+
+    @Test
+    public void testCaseSensitive() throws Exception {
+        RawLDBackend.setKeyDirectory(false);
+        RawLDBackend<?> backend = createBackend(true);
+        int[] expected = new int[QUERIES.length];
+        for (int i = 0; i < QUERIES.length; i++) {
+            expected[i] = backend.indexOf(new DefaultLeafKeyList(QUERIES[i]));
+        }
+        // Out of order, so only found by a linear search
+        Assert.assertEquals(1, backend.indexOf(new DefaultLeafKeyList("Aaron")));
+
+        RawLDBackend.setKeyDirectory(true);
+        backend = createBackend(true);
+        for (int i = 0; i < QUERIES.length; i++) {
+            Assert.assertEquals(QUERIES[i], expected[i], backend.indexOf(new DefaultLeafKeyList(QUERIES[i])));
+        }
+        Assert.assertEquals(1, backend.indexOf(new DefaultLeafKeyList("Aaron")));
+    }
+
+    private void checkBackend(RawLDBackend<?> backend) throws BookException {
+        Assert.assertEquals(KEYS.length, backend.getCardinality());
+        Assert.assertEquals("Entry 0", backend.getRawText(new DefaultLeafKeyList("Introduction")));
+        Assert.assertEquals("Entry 2", backend.getRawText(new DefaultLeafKeyList("abel")));
+        Assert.assertEquals("Entry 6", backend.getRawText(new DefaultLeafKeyList("Eve")));
+        Assert.assertEquals(4, backend.indexOf(new DefaultLeafKeyList("ADAM")));
+
+        // Missing keys give where they would be
+        Assert.assertEquals(-6, backend.indexOf(new DefaultLeafKeyList("Bob")));
+        Assert.assertEquals(-8, backend.indexOf(new DefaultLeafKeyList("Zebedee")));
+    }
+
+    private RawLDBackend<?> createBackend(boolean caseSensitive) throws IOException, BookException {
+        TestModules.delete(library);
+        library = TestModules.createLibrary("rawld");
+        File dataPath = TestModules.createDataPath(library, "test");
+
+        // Ignoring case the keys are in order, after an introduction
+        ByteArrayOutputStream dat = new ByteArrayOutputStream();
+        byte[] idx = new byte[KEYS.length * 8];
+        for (int i = 0; i < KEYS.length; i++) {
+            if (KEYS[i] == null) {
+                // A bogus entry, without a key
+                continue;
+            }
+            byte[] entry = (KEYS[i] + "\r\nEntry " + i).getBytes("UTF-8");
+            SwordUtil.encodeLittleEndian32(dat.size(), idx, i * 8);
+            SwordUtil.encodeLittleEndian32(entry.length, idx, i * 8 + 4);
+            dat.write(entry);
+        }
+        TestModules.write(new File(dataPath, "dict.idx"), idx);
+        TestModules.write(new File(dataPath, "dict.dat"), dat.toByteArray());
+
+        IniSection conf = TestModules.createConf(library, "test", "RawLD4", "./test/dict");
+        if (caseSensitive) {
+            conf.add(SwordBookMetaData.KEY_CASE_SENSITIVE_KEYS, "true");
+        }
+        return new RawLDBackend<RawLDBackendState>(TestModules.createMetaData(library, "test", conf), 4);
+    }
+
+    private static final String[] KEYS = {
+            "Introduction", "Aaron", "ABEL", null, "ADAM", "CAIN", "EVE",
+    };
+
+    private static final String[] QUERIES = {
+            "Introduction", "ABEL", "abel", "ADAM", "CAIN", "EVE", "Bob", "ZEBEDEE", "A",
+    };
+
+    private File library;
+}
@@ -0,0 +1,161 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.Versification;
+
+/**
+ * Writes small Sword modules for tests, in a library of their own in the
+ * temporary directory. A test only describes the content of its modules.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public final class TestModules {
+    /**
+     * Prevent instantiation
+     */
+    private TestModules() {
+    }
+
+    /**
+     * Create an empty library, to be deleted by the test.
+     *
+     * @param kind what the library is for, part of its name
+     * @return the library
+     * @throws IOException if the library could not be created
+     */
+    public static File createLibrary(String kind) throws IOException {
+        File library = File.createTempFile("jsword", kind);
+        library.delete();
+        library.mkdirs();
+        return library;
+    }
+
+    /**
+     * Create the directory for the files of a module.
+     *
+     * @param library the library of the module
+     * @param name the name of the module in the library
+     * @return the directory
+     */
+    public static File createDataPath(File library, String name) {
+        File dataPath = new File(library, name);
+        dataPath.mkdirs();
+        return dataPath;
+    }
+
+    /**
+     * Describe a module with UTF-8 text. Its initials are those of the
+     * library and the name, so that nothing cached for the modules of
+     * earlier tests is reused.
+     *
+     * @param library the library of the module
+     * @param name the name of the module in the library
+     * @param driver the ModDrv of the module
+     * @param dataPath the DataPath of the module, relative to the library
+     * @return the configuration, to which more may be added
+     */
+    public static IniSection createConf(File library, String name, String driver, String dataPath) {
+        IniSection conf = new IniSection(library.getName() + name);
+        conf.add(SwordBookMetaData.KEY_DESCRIPTION, "Test " + name);
+        conf.add(SwordBookMetaData.KEY_MOD_DRV, driver);
+        conf.add(SwordBookMetaData.KEY_DATA_PATH, dataPath);
+        conf.add(SwordBookMetaData.KEY_ENCODING, "UTF-8");
+        return conf;
+    }
+
+    /**
+     * Save the configuration of a module to the library and read it back.
+     *
+     * @param library the library of the module
+     * @param name the name of the module in the library
+     * @param conf the configuration of the module
+     * @return the module's metadata
+     * @throws IOException if the configuration could not be written
+     * @throws BookException if the configuration could not be read
+     */
+    public static SwordBookMetaData createMetaData(File library, String name, IniSection conf) throws IOException, BookException {
+        File configFile = new File(library, name + ".conf");
+        conf.save(configFile, "UTF-8");
+        return new SwordBookMetaData(configFile, library.toURI());
+    }
+
+    /**
+     * Add a verse of a RawText module to the end of the text and point its
+     * index entry, a 32 bit start and a 16 bit size, at it.
+     *
+     * @param v11n the versification of the module
+     * @param idx the index of the testament of the verse
+     * @param text the text of the testament of the verse
+     * @param verse the verse
+     * @param verseText the text of the verse
+     * @throws IOException if the text cannot be encoded
+     */
+    public static void addVerse(Versification v11n, byte[] idx, StringBuilder text, Verse verse, String verseText) throws IOException {
+        int entry = v11n.getTestamentOrdinal(verse.getOrdinal()) * 6;
+        SwordUtil.encodeLittleEndian32(text.toString().getBytes("UTF-8").length, idx, entry);
+        SwordUtil.encodeLittleEndian16(verseText.getBytes("UTF-8").length, idx, entry + 4);
+        text.append(verseText);
+    }
+
+    /**
+     * Write a file of a module.
+     *
+     * @param file the file to write
+     * @param data the content of the file
+     * @throws IOException if the file could not be written
+     */
+    public static void write(File file, byte[] data) throws IOException {
+        OutputStream out = new FileOutputStream(file);
+        try {
+            out.write(data);
+        } finally {
+            IOUtil.close(out);
+        }
+    }
+
+    /**
+     * Delete a library, or a file or directory in it, and all that it holds.
+     *
+     * @param file the file or directory to delete, may be null
+     */
+    public static void delete(File file) {
+        if (file == null) {
+            return;
+        }
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,248 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.crosswire.common.compress.Zip;
+import org.crosswire.common.util.IOUtil;
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.sword.state.BlockCache;
+import org.crosswire.jsword.book.sword.state.OpenFileStateManager;
+import org.crosswire.jsword.book.sword.state.ZVerseBackendState;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.passage.VerseRange;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads a small zText module, written by the test, both through open files and
+ * through memory maps.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class ZVerseBackendTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+        verses = new Verse[] {
+                new Verse(v11n, BibleBook.MATT, 1, 1),
+                new Verse(v11n, BibleBook.MATT, 1, 2),
+                new Verse(v11n, BibleBook.MATT, 1, 3),
+                new Verse(v11n, BibleBook.MATT, 2, 1),
+                new Verse(v11n, BibleBook.MATT, 2, 2),
+        };
+        texts = new String[] {
+                "The book of the generation of Jesus Christ",
+                "Abraham begat Isaac",
+                "And Judas begat Phares",
+                "Now when Jesus was born in Bethlehem",
+                "Saying, Where is he that is born King of the Jews?",
+        };
+
+        backend = createBackend("UTF-8");
+    }
+
+    @After
+    public void tearDown() {
+        ZVerseBackend.setMemoryMapped(false);
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testReadFromFiles() throws BookException {
+        ZVerseBackend.setMemoryMapped(false);
+        checkBackend();
+    }
+
+    @Test
+    public void testReadFromMaps() throws BookException {
+        ZVerseBackend.setMemoryMapped(true);
+        checkBackend();
+    }
+
+    @Test
+    public void testReadRangeFromFiles() throws BookException, IOException {
+        ZVerseBackend.setMemoryMapped(false);
+        checkRange();
+    }
+
+    @Test
+    public void testReadRangeFromMaps() throws BookException, IOException {
+        ZVerseBackend.setMemoryMapped(true);
+        checkRange();
+    }
+
+    @Test
+    public void testSharedBlockUnchanged() throws Exception {
+        // A character that is not valid in WINDOWS-1252 is cleaned up when read
+        texts[1] = "Abraham\u0001begat Isaac";
+        TestModules.delete(library);
+        backend = createBackend("Latin-1");
+        Assert.assertEquals("Abraham begat Isaac", backend.getRawText(verses[1]));
+
+        // but not in the block that is shared with other readers
+        byte[] block = BlockCache.instance().get(backend.getBookMetaData(), Testament.NEW, 0);
+        Assert.assertNotNull(block);
+        Assert.assertTrue(new String(block, "UTF-8").indexOf(texts[1]) >= 0);
+        Assert.assertEquals("Abraham begat Isaac", backend.getRawText(verses[1]));
+    }
+
+    @Test
+    public void testMapsAndFilesNotShared() throws BookException {
+        // A released state is only lent out again to a reader of the same kind
+        ZVerseBackend.setMemoryMapped(false);
+        checkState(false);
+        ZVerseBackend.setMemoryMapped(true);
+        checkState(true);
+        ZVerseBackend.setMemoryMapped(false);
+        checkState(false);
+    }
+
+    private void checkState(boolean mapped) throws BookException {
+        ZVerseBackendState state = backend.initState();
+        try {
+            Assert.assertEquals(mapped, state.getMappedFiles() != null);
+        } finally {
+            OpenFileStateManager.instance().release(state);
+        }
+    }
+
+    private ZVerseBackend createBackend(String encoding) throws IOException, BookException {
+        library = TestModules.createLibrary("ztext");
+        writeModule(TestModules.createDataPath(library, "test"));
+
+        IniSection conf = TestModules.createConf(library, "test", "zText", "./test/");
+        conf.add(SwordBookMetaData.KEY_COMPRESS_TYPE, "ZIP");
+        conf.add(SwordBookMetaData.KEY_BLOCK_TYPE, "CHAPTER");
+        conf.replace(SwordBookMetaData.KEY_ENCODING, encoding);
+        SwordBookMetaData bmd = TestModules.createMetaData(library, "test", conf);
+        Assert.assertEquals("KJV", bmd.getProperty(BookMetaData.KEY_VERSIFICATION));
+        return new ZVerseBackend(bmd, BlockType.BLOCK_CHAPTER, 2);
+    }
+
+    private void checkRange() throws BookException, IOException {
+        ZVerseBackendState state = null;
+        try {
+            state = backend.initState();
+
+            // Matt 1:1 to Matt 2:2 spans both blocks
+            VerseRange range = new VerseRange(v11n, verses[0], verses[4]);
+            String[] rawTexts = backend.readRawRange(state, range);
+            Assert.assertEquals(range.getCardinality(), rawTexts.length);
+            int i = 0;
+            for (Key verse : range) {
+                Assert.assertEquals(backend.getRawText(verse), rawTexts[i++]);
+            }
+            Assert.assertEquals(texts[0], rawTexts[0]);
+            Assert.assertEquals(texts[4], rawTexts[rawTexts.length - 1]);
+
+            // Mal 4:5 to Matt 1:2 spans both testaments, but the OT is not in the module
+            range = new VerseRange(v11n, new Verse(v11n, BibleBook.MAL, 4, 5), verses[1]);
+            rawTexts = backend.readRawRange(state, range);
+            Assert.assertEquals(range.getCardinality(), rawTexts.length);
+            Assert.assertEquals("", rawTexts[0]);
+            Assert.assertEquals(texts[0], rawTexts[rawTexts.length - 2]);
+            Assert.assertEquals(texts[1], rawTexts[rawTexts.length - 1]);
+        } finally {
+            IOUtil.close(state);
+        }
+    }
+
+    private void checkBackend() throws BookException {
+        for (int i = 0; i < verses.length; i++) {
+            Assert.assertEquals(texts[i], backend.getRawText(verses[i]));
+            Assert.assertEquals(texts[i].length(), backend.getRawTextLength(verses[i]));
+            Assert.assertTrue(backend.contains(verses[i]));
+        }
+
+        Verse missing = new Verse(v11n, BibleBook.MATT, 1, 4);
+        Assert.assertEquals("", backend.getRawText(missing));
+        Assert.assertFalse(backend.contains(missing));
+
+        // The OT is not in the module
+        Assert.assertEquals("", backend.getRawText(new Verse(v11n, BibleBook.GEN, 1, 1)));
+
+        Key global = backend.getGlobalKeyList();
+        Assert.assertEquals(verses.length, global.getCardinality());
+        for (Verse verse : verses) {
+            Assert.assertTrue(global.contains(verse));
+        }
+    }
+
+    /**
+     * Write the NT files of a zText module with a block per chapter.
+     */
+    private void writeModule(File dataPath) throws IOException {
+        int count = v11n.getCount(Testament.NEW);
+        byte[] idx = new byte[count * 10];
+        byte[] comp = new byte[2 * 12];
+        OutputStream text = new FileOutputStream(new File(dataPath, "nt.czz"));
+        try {
+            int blockStart = 0;
+            for (int block = 0; block < 2; block++) {
+                StringBuilder buf = new StringBuilder();
+                for (int i = 0; i < verses.length; i++) {
+                    if (verses[i].getChapter() != block + 1) {
+                        continue;
+                    }
+                    int entry = v11n.getTestamentOrdinal(verses[i].getOrdinal()) * 10;
+                    int size = texts[i].getBytes("UTF-8").length;
+                    SwordUtil.encodeLittleEndian32(block, idx, entry);
+                    SwordUtil.encodeLittleEndian32(buf.toString().getBytes("UTF-8").length, idx, entry + 4);
+                    SwordUtil.encodeLittleEndian16(size, idx, entry + 8);
+                    buf.append(texts[i]);
+                }
+                byte[] uncompressed = buf.toString().getBytes("UTF-8");
+                byte[] compressed = new Zip(new ByteArrayInputStream(uncompressed)).compress().toByteArray();
+                text.write(compressed);
+                SwordUtil.encodeLittleEndian32(blockStart, comp, block * 12);
+                SwordUtil.encodeLittleEndian32(compressed.length, comp, block * 12 + 4);
+                SwordUtil.encodeLittleEndian32(uncompressed.length, comp, block * 12 + 8);
+                blockStart += compressed.length;
+            }
+        } finally {
+            IOUtil.close(text);
+        }
+        TestModules.write(new File(dataPath, "nt.czv"), idx);
+        TestModules.write(new File(dataPath, "nt.czs"), comp);
+    }
+
+    private Versification v11n;
+    private Verse[] verses;
+    private String[] texts;
+    private File library;
+    private ZVerseBackend backend;
+}
@@ -0,0 +1,107 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword.state;
+
+import java.io.File;
+import java.net.URI;
+
+import org.crosswire.common.util.IniSection;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.versification.Testament;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class BlockCacheTest {
+
+    @Before
+    public void setUp() throws Exception {
+        cache = BlockCache.instance();
+        oldMaxSize = cache.getMaxSize();
+        cache.clear();
+
+        IniSection table = new IniSection("BlockCacheTest");
+        table.add(SwordBookMetaData.KEY_DESCRIPTION, "Block Cache Test");
+        table.add(SwordBookMetaData.KEY_MOD_DRV, "zText");
+        table.add(SwordBookMetaData.KEY_DATA_PATH, "./test/");
+        configFile = File.createTempFile("blockcache", ".conf");
+        table.save(configFile, "UTF-8");
+        bmd = new SwordBookMetaData(configFile, new URI("file:///tmp"));
+    }
+
+    @After
+    public void tearDown() {
+        cache.setMaxSize(oldMaxSize);
+        cache.clear();
+        configFile.delete();
+    }
+
+    @Test
+    public void testHitAndMiss() {
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+        byte[] block = new byte[10];
+
+        Assert.assertNull(cache.get(bmd, Testament.OLD, 1));
+        cache.put(bmd, Testament.OLD, 1, block);
+        Assert.assertSame(block, cache.get(bmd, Testament.OLD, 1));
+        Assert.assertNull(cache.get(bmd, Testament.NEW, 1));
+        Assert.assertNull(cache.get(bmd, null, 1));
+
+        Assert.assertEquals(hits + 1, cache.getHitCount());
+        Assert.assertEquals(misses + 3, cache.getMissCount());
+        Assert.assertEquals(10, cache.getSize());
+    }
+
+    @Test
+    public void testEviction() {
+        // Each segment may hold 100 bytes
+        cache.setMaxSize(1600);
+        long evictions = cache.getEvictionCount();
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put(bmd, Testament.NEW, i, new byte[50]);
+            Assert.assertTrue(cache.getSize() <= 1600);
+        }
+        Assert.assertTrue(cache.getEvictionCount() > evictions);
+
+        // The most recent block is always kept
+        Assert.assertNotNull(cache.get(bmd, Testament.NEW, 999));
+
+        // A block bigger than a segment is not cached
+        cache.put(bmd, Testament.OLD, 0, new byte[101]);
+        Assert.assertNull(cache.get(bmd, Testament.OLD, 0));
+
+        cache.setMaxSize(0);
+        Assert.assertEquals(0, cache.getSize());
+    }
+
+    private BlockCache cache;
+    private long oldMaxSize;
+    private File configFile;
+    private SwordBookMetaData bmd;
+}
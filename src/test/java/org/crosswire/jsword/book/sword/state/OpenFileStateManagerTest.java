@@ -0,0 +1,165 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.book.sword.state;
+
+import java.io.File;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.BookMetaData;
+import org.crosswire.jsword.book.sword.TestModules;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class OpenFileStateManagerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        manager = OpenFileStateManager.instance();
+        oldMaxStates = manager.getMaxStatesPerBook();
+        oldAcquireTimeout = manager.getAcquireTimeout();
+
+        // Each test has a book of its own, with a pool of its own
+        library = TestModules.createLibrary("state");
+        File dataPath = TestModules.createDataPath(library, "test");
+        new File(dataPath, "nt").createNewFile();
+        new File(dataPath, "nt.vss").createNewFile();
+        bmd = TestModules.createMetaData(library, "test", TestModules.createConf(library, "test", "RawText", "./test/"));
+    }
+
+    @After
+    public void tearDown() {
+        manager.setMaxStatesPerBook(oldMaxStates);
+        manager.setAcquireTimeout(oldAcquireTimeout);
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testReuse() throws Exception {
+        int open = manager.getOpenCount();
+        RawBackendState state = manager.getRawBackendState(bmd);
+        Assert.assertEquals(open + 1, manager.getOpenCount());
+        manager.release(state);
+        // Releasing twice does no harm
+        manager.release(state);
+
+        RawBackendState again = manager.getRawBackendState(bmd);
+        Assert.assertSame(state, again);
+        Assert.assertEquals(open + 1, manager.getOpenCount());
+        manager.release(again);
+    }
+
+    @Test
+    public void testFailFast() throws Exception {
+        manager.setMaxStatesPerBook(1);
+        manager.setAcquireTimeout(0);
+        final RawBackendState[] other = new RawBackendState[1];
+        final Exception[] problem = new Exception[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    other[0] = manager.getRawBackendState(bmd);
+                } catch (BookException e) {
+                    problem[0] = e;
+                }
+            }
+        };
+
+        RawBackendState state = manager.getRawBackendState(bmd);
+        try {
+            // This thread may go beyond the bound, as it already holds a state
+            RawBackendState nested = manager.getRawBackendState(bmd);
+            Assert.assertNotSame(state, nested);
+            manager.release(nested);
+
+            // But another thread may not
+            long timeouts = manager.getTimeoutCount();
+            thread.start();
+            thread.join();
+            Assert.assertNull(other[0]);
+            Assert.assertNotNull(problem[0]);
+            Assert.assertEquals(timeouts + 1, manager.getTimeoutCount());
+        } finally {
+            manager.release(state);
+        }
+    }
+
+    @Test
+    public void testWait() throws Exception {
+        manager.setMaxStatesPerBook(1);
+        manager.setAcquireTimeout(-1);
+        final RawBackendState[] other = new RawBackendState[1];
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    other[0] = manager.getRawBackendState(bmd);
+                    manager.release(other[0]);
+                } catch (BookException e) {
+                    other[0] = null;
+                }
+            }
+        };
+
+        long waits = manager.getWaitCount();
+        RawBackendState state = manager.getRawBackendState(bmd);
+        thread.start();
+        // Give the other thread time to start waiting
+        while (manager.getWaitCount() == waits && thread.isAlive()) {
+            Thread.sleep(10);
+        }
+        manager.release(state);
+        thread.join();
+        Assert.assertSame(state, other[0]);
+        Assert.assertEquals(waits + 1, manager.getWaitCount());
+    }
+
+    @Test
+    public void testEvictOverLimit() throws Exception {
+        manager.setMaxStatesPerBook(1);
+        long evictions = manager.getEvictionCount();
+        int open = manager.getOpenCount();
+        RawBackendState state = manager.getRawBackendState(bmd);
+        RawBackendState nested = manager.getRawBackendState(bmd);
+        Assert.assertEquals(open + 2, manager.getOpenCount());
+        manager.release(nested);
+        manager.release(state);
+        // Only one may be kept, the most recently used
+        Assert.assertEquals(open + 1, manager.getOpenCount());
+        Assert.assertEquals(evictions + 1, manager.getEvictionCount());
+        RawBackendState again = manager.getRawBackendState(bmd);
+        Assert.assertSame(state, again);
+        manager.release(again);
+    }
+
+    private OpenFileStateManager manager;
+    private int oldMaxStates;
+    private long oldAcquireTimeout;
+    private File library;
+    private BookMetaData bmd;
+}
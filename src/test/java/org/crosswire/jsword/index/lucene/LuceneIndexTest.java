@@ -0,0 +1,253 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import java.io.File;
+import java.util.Iterator;
+
+import org.crosswire.jsword.book.Book;
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.book.sword.BookType;
+import org.crosswire.jsword.book.sword.RawBackend;
+import org.crosswire.jsword.book.sword.SwordBook;
+import org.crosswire.jsword.book.sword.SwordBookMetaData;
+import org.crosswire.jsword.book.sword.TestModules;
+import org.crosswire.jsword.book.sword.state.RawBackendState;
+import org.crosswire.jsword.index.IndexPolicyAdapter;
+import org.crosswire.jsword.index.IndexStatus;
+import org.crosswire.jsword.index.search.DefaultSearchModifier;
+import org.crosswire.jsword.index.search.DefaultSearchRequest;
+import org.crosswire.jsword.passage.DefaultKeyList;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.PassageTally;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Testament;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Indexes a small RawText module, written by the test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class LuceneIndexTest {
+
+    @Before
+    public void setUp() throws Exception {
+        // A job cancelled by an earlier test interrupts this thread, which would stop the indexing.
+        Thread.interrupted();
+
+        v11n = Versifications.instance().getVersification("KJV");
+
+        library = TestModules.createLibrary("index");
+        File dataPath = TestModules.createDataPath(library, "test");
+
+        byte[] idx = new byte[v11n.getCount(Testament.NEW) * 6];
+        StringBuilder text = new StringBuilder();
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 1), "The book of the generation of Jesus Christ");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 2), "Abraham begat Isaac");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MATT, 1, 3), "And Judas begat Phares");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.MARK, 1, 1), "The beginning of the gospel of Jesus Christ");
+        TestModules.addVerse(v11n, idx, text, new Verse(v11n, BibleBook.JOHN, 1, 1), "In the beginning was the Word");
+        TestModules.write(new File(dataPath, "nt.vss"), idx);
+        TestModules.write(new File(dataPath, "nt"), text.toString().getBytes("UTF-8"));
+
+        SwordBookMetaData sbmd = TestModules.createMetaData(library, "test", TestModules.createConf(library, "test", "RawText", "./test/"));
+        book = BookType.RAW_TEXT.createBook(sbmd);
+    }
+
+    @After
+    public void tearDown() {
+        if (index != null) {
+            index.close();
+        }
+        TestModules.delete(library);
+    }
+
+    @Test
+    public void testSerialIndex() throws Exception {
+        createIndex(1);
+        checkIndex();
+    }
+
+    @Test
+    public void testParallelIndex() throws Exception {
+        createIndex(4);
+        checkIndex();
+    }
+
+    @Test(timeout = 60000)
+    public void testErrorReadingKeys() throws Exception {
+        // An error while walking the keys fails the indexing instead of hanging it
+        SwordBookMetaData sbmd = (SwordBookMetaData) book.getBookMetaData();
+        book = new SwordBook(sbmd, new RawBackend<RawBackendState>(sbmd, 2) {
+            @Override
+            public Key getGlobalKeyList() {
+                return new DefaultKeyList() {
+                    @Override
+                    public Iterator<Key> iterator() {
+                        throw new StackOverflowError();
+                    }
+                };
+            }
+        });
+        try {
+            createIndex(4);
+            Assert.fail();
+        } catch (StackOverflowError e) {
+            // expected
+        }
+        Assert.assertEquals(IndexStatus.UNDONE, book.getIndexStatus());
+    }
+
+    @Test
+    public void testRepeatedSearch() throws Exception {
+        createIndex(1);
+        // The second time the parsed search is reused
+        Key found = index.find("begat");
+        Assert.assertEquals(found, index.find("begat"));
+    }
+
+    @Test
+    public void testRankedSearch() throws Exception {
+        createIndex(1);
+        // A ranked search gives a tally of the best verses
+        index.setSearchModifier(createRankedModifier());
+        Key ranked = index.find("beginning OR generation");
+        Assert.assertTrue(ranked instanceof PassageTally);
+        Assert.assertEquals(2, ranked.getCardinality());
+        // The rarer word ranks highest
+        Assert.assertTrue(ranked.contains(new Verse(v11n, BibleBook.MATT, 1, 1)));
+    }
+
+    @Test
+    public void testScopedSearch() throws Exception {
+        createIndex(1);
+        // A search may be restricted to a scope
+        Key scope = PassageKeyFactory.instance().getKey(v11n, "Mark-John");
+        Assert.assertEquals(2, index.find("beginning", scope).getCardinality());
+        Assert.assertEquals(0, index.find("begat", scope).getCardinality());
+    }
+
+    @Test
+    public void testSearchWithOwnModifier() throws Exception {
+        createIndex(1);
+        // A search may carry its own modifier, leaving that of the index alone
+        Key ranked = index.find("beginning OR generation", null, createRankedModifier());
+        Assert.assertTrue(ranked instanceof PassageTally);
+        Assert.assertEquals(2, ranked.getCardinality());
+        Assert.assertNull(index.getSearchModifier());
+    }
+
+    @Test
+    public void testSearcher() throws Exception {
+        createIndex(1);
+        LuceneSearcher searcher = new LuceneSearcher();
+        searcher.init(index);
+        Key ranked = searcher.search(new DefaultSearchRequest("+[John] beginning", createRankedModifier()));
+        Assert.assertTrue(ranked instanceof PassageTally);
+        Assert.assertEquals(1, ranked.getCardinality());
+        Assert.assertTrue(ranked.contains(new Verse(v11n, BibleBook.JOHN, 1, 1)));
+        Assert.assertNull(index.getSearchModifier());
+    }
+
+    @Test
+    public void testConcurrentSearches() throws Exception {
+        createIndex(1);
+        LuceneSearcher searcher = new LuceneSearcher();
+        searcher.init(index);
+        checkConcurrentSearches(searcher, createRankedModifier());
+    }
+
+    private void createIndex(final int parallelism) throws Exception {
+        File storage = new File(library, "index" + parallelism);
+        index = new LuceneIndex(book, storage.toURI(), new IndexPolicyAdapter() {
+            @Override
+            public int getParallelism() {
+                return parallelism;
+            }
+        });
+    }
+
+    private void checkIndex() throws Exception {
+        Assert.assertEquals(IndexStatus.DONE, book.getIndexStatus());
+
+        Key found = index.find("begat");
+        Assert.assertEquals(2, found.getCardinality());
+        Assert.assertTrue(found.contains(new Verse(v11n, BibleBook.MATT, 1, 2)));
+        Assert.assertTrue(found.contains(new Verse(v11n, BibleBook.MATT, 1, 3)));
+
+        Assert.assertEquals(3, index.find("beginning OR generation").getCardinality());
+        Assert.assertEquals(0, index.find("Aminadab").getCardinality());
+    }
+
+    /**
+     * @return a modifier for the best two verses
+     */
+    private static DefaultSearchModifier createRankedModifier() {
+        DefaultSearchModifier modifier = new DefaultSearchModifier();
+        modifier.setRanked(true);
+        modifier.setMaxResults(2);
+        return modifier;
+    }
+
+    private void checkConcurrentSearches(final LuceneSearcher searcher, final DefaultSearchModifier modifier) throws Exception {
+        // Ranked and unranked searches at once do not see each other's modifier
+        final boolean[] ranked = new boolean[4];
+        final String[] problems = new String[ranked.length];
+        Thread[] threads = new Thread[ranked.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            ranked[n] = i % 2 == 0;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 50 && problems[n] == null; j++) {
+                            Key found = searcher.search(new DefaultSearchRequest("beginning OR generation", ranked[n] ? modifier : null));
+                            if (ranked[n] != found instanceof PassageTally || found.getCardinality() != (ranked[n] ? 2 : 3)) {
+                                problems[n] = "wrong results: " + found;
+                            }
+                        }
+                    } catch (BookException e) {
+                        problems[n] = e.toString();
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; i++) {
+            threads[i].join();
+            Assert.assertNull(problems[i], problems[i]);
+        }
+    }
+
+    private Versification v11n;
+    private File library;
+    private Book book;
+    private LuceneIndex index;
+}
@@ -0,0 +1,124 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.passage.RocketPassage;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class ScopeFilterTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+        gen11 = new Verse(v11n, BibleBook.GEN, 1, 1);
+        john11 = new Verse(v11n, BibleBook.JOHN, 1, 1);
+        rom11 = new Verse(v11n, BibleBook.ROM, 1, 1);
+        directory = new RAMDirectory();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (searcher != null) {
+            searcher.close();
+        }
+        directory.close();
+    }
+
+    @Test
+    public void testScope() throws Exception {
+        createIndex(true);
+        ScopeFilter filter = new ScopeFilter(PassageKeyFactory.instance().getKey(v11n, "Rom"));
+        Key results = search(filter);
+        Assert.assertEquals(1, results.getCardinality());
+        Assert.assertTrue(results.contains(rom11));
+        Assert.assertTrue(filter.isExact());
+
+        // The documents of the segment are kept
+        Assert.assertSame(filter.getDocIdSet(searcher.getIndexReader()), filter.getDocIdSet(searcher.getIndexReader()));
+    }
+
+    @Test
+    public void testOldDocument() throws Exception {
+        createIndex(false);
+        ScopeFilter filter = new ScopeFilter(PassageKeyFactory.instance().getKey(v11n, "John-Rom"));
+        Key results = search(filter);
+        // Genesis has no ordinal, so it cannot be filtered
+        Assert.assertEquals(3, results.getCardinality());
+        Assert.assertTrue(results.contains(gen11));
+        Assert.assertFalse(filter.isExact());
+    }
+
+    private Key search(ScopeFilter filter) throws Exception {
+        Key results = new RocketPassage(v11n);
+        searcher.search(new TermQuery(new Term(LuceneIndex.FIELD_BODY, "beginning")), filter, new VerseCollector(v11n, searcher, results));
+        return results;
+    }
+
+    private void createIndex(boolean ordinals) throws Exception {
+        IndexWriter writer = new IndexWriter(directory, new WhitespaceAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+        writer.addDocument(createDocument(gen11, ordinals, "in the beginning"));
+        writer.addDocument(createDocument(john11, true, "in the beginning"));
+        writer.addDocument(createDocument(rom11, true, "the beginning of the gospel"));
+        writer.close();
+
+        searcher = new IndexSearcher(directory, true);
+    }
+
+    private static Document createDocument(Verse verse, boolean ordinal, String text) {
+        Document doc = new Document();
+        if (ordinal) {
+            doc.add(new Field(LuceneIndex.FIELD_ORDINAL, Integer.toString(verse.getOrdinal() + 1), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+        }
+        doc.add(new Field(LuceneIndex.FIELD_KEY, verse.getOsisRef(), Field.Store.YES, Field.Index.NOT_ANALYZED));
+        doc.add(new Field(LuceneIndex.FIELD_BODY, text, Field.Store.NO, Field.Index.ANALYZED));
+        return doc;
+    }
+
+    private Versification v11n;
+    private Verse gen11;
+    private Verse john11;
+    private Verse rom11;
+    private Directory directory;
+    private IndexSearcher searcher;
+}
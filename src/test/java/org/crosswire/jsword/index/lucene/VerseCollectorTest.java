@@ -0,0 +1,106 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.lucene;
+
+import org.apache.lucene.analysis.WhitespaceAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.RocketPassage;
+import org.crosswire.jsword.passage.Verse;
+import org.crosswire.jsword.versification.BibleBook;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * JUnit Test.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class VerseCollectorTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+        gen11 = new Verse(v11n, BibleBook.GEN, 1, 1);
+        john11 = new Verse(v11n, BibleBook.JOHN, 1, 1);
+        rev2221 = new Verse(v11n, BibleBook.REV, 22, 21);
+
+        directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new WhitespaceAnalyzer(), true, IndexWriter.MaxFieldLength.UNLIMITED);
+        // An old document, without an ordinal
+        writer.addDocument(createDocument(gen11, false, "in the beginning"));
+        // New documents, with no stored key to fall back on
+        writer.addDocument(createDocument(john11, true, "in the beginning"));
+        writer.addDocument(createDocument(rev2221, true, "amen"));
+        writer.close();
+
+        searcher = new IndexSearcher(directory, true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        searcher.close();
+        directory.close();
+    }
+
+    @Test
+    public void testCollect() throws Exception {
+        Key results = new RocketPassage(v11n);
+        searcher.search(new TermQuery(new Term(LuceneIndex.FIELD_BODY, "beginning")), new VerseCollector(v11n, searcher, results));
+        Assert.assertEquals(2, results.getCardinality());
+        Assert.assertTrue(results.contains(gen11));
+        Assert.assertTrue(results.contains(john11));
+
+        results.clear();
+        searcher.search(new TermQuery(new Term(LuceneIndex.FIELD_BODY, "amen")), new VerseCollector(v11n, searcher, results));
+        Assert.assertEquals(1, results.getCardinality());
+        Assert.assertTrue(results.contains(rev2221));
+    }
+
+    private static Document createDocument(Verse verse, boolean ordinal, String text) {
+        Document doc = new Document();
+        if (ordinal) {
+            doc.add(new Field(LuceneIndex.FIELD_ORDINAL, Integer.toString(verse.getOrdinal() + 1), Field.Store.NO, Field.Index.NOT_ANALYZED_NO_NORMS));
+        } else {
+            doc.add(new Field(LuceneIndex.FIELD_KEY, verse.getOsisRef(), Field.Store.YES, Field.Index.NOT_ANALYZED));
+        }
+        doc.add(new Field(LuceneIndex.FIELD_BODY, text, Field.Store.NO, Field.Index.ANALYZED));
+        return doc;
+    }
+
+    private Versification v11n;
+    private Verse gen11;
+    private Verse john11;
+    private Verse rev2221;
+    private Directory directory;
+    private IndexSearcher searcher;
+}
@@ -36,6 +36,7 @@ import org.junit.runners.Suite.SuiteClasses;
     ConfigurableSnowballAnalyzerTest.class,
     EnglishLuceneAnalyzerTest.class,
     GreekLuceneAnalyzerTest.class,
+    StrongsNumberAnalyzerTest.class,
     ThaiLuceneAnalyzerTest.class
 })
 public class AllTests {
@@ -0,0 +1,75 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.lucene.analysis;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.TermAttribute;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test the Strong's Number Analyzer
+ * 
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class StrongsNumberAnalyzerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        myAnalyzer = new StrongsNumberAnalyzer();
+    }
+
+    @Test
+    public void testNormalize() throws IOException {
+        Assert.assertEquals(Arrays.asList("G1234"), tokens("G1234"));
+        Assert.assertEquals(Arrays.asList("H1234"), tokens("H1234 bogus"));
+    }
+
+    @Test
+    public void testReuse() throws IOException {
+        // Nothing is left over from one string to the next
+        Assert.assertEquals(Arrays.asList("H1234"), tokens("H1234 bogus"));
+        Assert.assertEquals(Arrays.asList("G1234"), tokens("G1234"));
+        Assert.assertEquals(Arrays.asList("H1234"), tokens("H1234 bogus"));
+        Assert.assertEquals(Arrays.asList("G1234"), tokens("G1234"));
+    }
+
+    private List<String> tokens(String text) throws IOException {
+        TokenStream stream = myAnalyzer.reusableTokenStream(FIELD, new StringReader(text));
+        TermAttribute termAtt = stream.addAttribute(TermAttribute.class);
+        List<String> tokens = new ArrayList<String>();
+        while (stream.incrementToken()) {
+            tokens.add(termAtt.term());
+        }
+        stream.end();
+        return tokens;
+    }
+
+    protected static final String FIELD = "strong";
+    private AbstractBookAnalyzer myAnalyzer;
+}
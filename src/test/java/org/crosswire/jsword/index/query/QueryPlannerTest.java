@@ -0,0 +1,196 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.index.query;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.crosswire.jsword.book.BookException;
+import org.crosswire.jsword.index.AbstractIndex;
+import org.crosswire.jsword.index.search.SearchModifier;
+import org.crosswire.jsword.passage.Key;
+import org.crosswire.jsword.passage.NoSuchKeyException;
+import org.crosswire.jsword.passage.PassageKeyFactory;
+import org.crosswire.jsword.versification.Versification;
+import org.crosswire.jsword.versification.system.Versifications;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that planned queries find what the queries themselves do, with
+ * less searching.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class QueryPlannerTest {
+
+    @Before
+    public void setUp() throws Exception {
+        v11n = Versifications.instance().getVersification("KJV");
+        index = new WordIndex();
+        index.add("faith", "Gen 15:6, Rom 1:17, Rom 3:28, Gal 2:16, Heb 11:1, Jas 2:14, Jas 2:17, Jas 2:26");
+        index.add("works", "Rom 3:27, Rom 4:2, Gal 2:16, Jas 2:14, Jas 2:18, Jas 2:26, Rev 2:2");
+        index.add("amen", "Rom 1:25, Rev 22:21");
+        index.add("selah", "");
+    }
+
+    @Test
+    public void testSameAsQuery() throws Exception {
+        String[] searches = {
+            "faith",
+            "faith ~3 works",
+            "-[Jas] faith ~3 works",
+            "+[Rom-Gal] faith",
+            "[Rom] works",
+            "-[Jas] works",
+            "+[Rom] selah",
+            "amen ~1 faith",
+        };
+        for (String search : searches) {
+            Query query = new LuceneQueryBuilderStub().parse(search);
+            Key expected = query.find(index, null);
+            Key actual = new QueryPlanner(index, null).find(query);
+            Assert.assertEquals(search, expected, actual);
+        }
+
+        // And those that the query builder does not make
+        Query or = new OrQuery(new BaseQuery("amen"), new BaseQuery("works"));
+        Assert.assertEquals(or.find(index, null), new QueryPlanner(index, null).find(or));
+        Query and = new AndQuery(new BaseQuery("faith"), new BaseQuery("works"));
+        Assert.assertEquals(and.find(index, null), new QueryPlanner(index, null).find(and));
+    }
+
+    @Test
+    public void testCheapestFirst() throws Exception {
+        QueryPlanner planner = new QueryPlanner(index, null, true);
+        Query query = new AndQuery(new BaseQuery("faith"), new BaseQuery("selah"));
+        Assert.assertTrue(planner.find(query).isEmpty());
+        // Nothing has selah, so faith is not searched for
+        Assert.assertEquals(1, index.searches.size());
+        Assert.assertEquals("selah", index.searches.get(0));
+        Assert.assertTrue(planner.explain(), planner.explain().indexOf("BaseQuery \"faith\" estimate=8 skipped") >= 0);
+    }
+
+    @Test
+    public void testScoped() throws Exception {
+        QueryPlanner planner = new QueryPlanner(index, null, true);
+        Query query = new AndQuery(new BaseQuery("amen"), new BaseQuery("works"));
+        Assert.assertEquals(PassageKeyFactory.instance().getKey(v11n, "Rom 1:25, Rev 22:21"), planner.find(new OrQuery(new BaseQuery("amen"), new BaseQuery("selah"))));
+        index.searches.clear();
+        Assert.assertTrue(planner.find(query).isEmpty());
+        // The commoner word is only sought where the rarer was found
+        Assert.assertEquals("works in Rom.1.25 Rev.22.21", index.searches.get(1));
+        Assert.assertTrue(planner.explain(), planner.explain().startsWith("AndQuery estimate=2 found=0 time="));
+    }
+
+    @Test
+    public void testNotExplained() throws Exception {
+        QueryPlanner planner = new QueryPlanner(index, null);
+        Query query = new AndQuery(new BaseQuery("faith"), new BaseQuery("selah"));
+        Assert.assertTrue(planner.find(query).isEmpty());
+        // Only the estimates needed to choose which is searched first
+        Assert.assertEquals(2, index.estimates);
+        Assert.assertEquals("", planner.explain());
+    }
+
+    /**
+     * Parses searches as LuceneQueryBuilder does, which this package cannot see.
+     */
+    private static final class LuceneQueryBuilderStub {
+        Query parse(String search) {
+            String sought = search;
+            Query range = null;
+            boolean exclude = false;
+            if (sought.indexOf('[') >= 0) {
+                exclude = sought.charAt(0) == '-';
+                range = new RangeQuery(sought.substring(sought.indexOf('[') + 1, sought.indexOf(']')));
+                sought = sought.substring(sought.indexOf(']') + 1).trim();
+            }
+
+            Query query;
+            int blur = sought.indexOf(" ~");
+            if (blur >= 0) {
+                int end = sought.indexOf(' ', blur + 1);
+                query = new BlurQuery(new BaseQuery(sought.substring(0, blur)), new BaseQuery(sought.substring(end + 1)),
+                        Integer.parseInt(sought.substring(blur + 2, end)));
+            } else {
+                query = new BaseQuery(sought);
+            }
+
+            if (range == null) {
+                return query;
+            }
+            return exclude ? new AndNotQuery(query, range) : new AndQuery(range, query);
+        }
+    }
+
+    /**
+     * An index of a few words, noting each search.
+     */
+    private final class WordIndex extends AbstractIndex {
+        void add(String word, String refs) throws NoSuchKeyException {
+            words.put(word, PassageKeyFactory.instance().getKey(v11n, refs));
+        }
+
+        public Key find(String query) throws BookException {
+            return find(query, null, getSearchModifier());
+        }
+
+        public Key find(String query, Key scope) throws BookException {
+            return find(query, scope, getSearchModifier());
+        }
+
+        public Key find(String query, Key scope, SearchModifier modifier) throws BookException {
+            Key found = PassageKeyFactory.instance().createEmptyKeyList(v11n);
+            if (query == null) {
+                return found;
+            }
+            searches.add(scope == null ? query : query + " in " + scope.getOsisRef());
+            found.addAll(words.get(query));
+            if (scope != null) {
+                found.retainAll(scope);
+            }
+            return found;
+        }
+
+        public int estimate(String query) {
+            estimates++;
+            return query == null ? 0 : words.get(query).getCardinality();
+        }
+
+        public Key getKey(String name) throws NoSuchKeyException {
+            return PassageKeyFactory.instance().getKey(v11n, name);
+        }
+
+        public void close() {
+        }
+
+        private Map<String, Key> words = new HashMap<String, Key>();
+        private List<String> searches = new ArrayList<String>();
+        private int estimates;
+    }
+
+    private Versification v11n;
+    private WordIndex index;
+}
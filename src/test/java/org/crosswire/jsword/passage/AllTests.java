@@ -32,6 +32,7 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(Suite.class)
 @SuiteClasses({
     AccuracyTypeTest.class,
+    PassageCompressedTest.class,
     PassageConstantsTest.class,
     PassageMixTest.class,
     PassageSizeTest.class,
@@ -41,6 +42,7 @@ import org.junit.runners.Suite.SuiteClasses;
     PassageTally2Test.class,
     PassageUtilTest.class,
     PassageWriteSpeedTest.class,
+    RoaringBitmapTest.class,
     OsisParserTest.class,
     VerseTest.class,
     VerseRangeTest.class,
@@ -252,6 +252,21 @@ public class PassageParentTst {
         Assert.assertTrue(!it.hasNext());
     }
 
+    @Test
+    public void testReadOrdinalIterator() {
+        Passage[] passages = {
+                genC1V135r, exoC2V1To10C2V1To11r, grace, empty
+        };
+        for (Passage passage : passages) {
+            OrdinalIterator ordinals = passage.ordinalIterator();
+            for (Key key : passage) {
+                Assert.assertTrue(ordinals.hasNext());
+                Assert.assertEquals(((Verse) key).getOrdinal(), ordinals.next());
+            }
+            Assert.assertTrue(!ordinals.hasNext());
+        }
+    }
+
     @Test
     public void testReadIsEmpty() {
         Assert.assertTrue(!genC1V135r.isEmpty());
@@ -471,6 +486,15 @@ public class PassageParentTst {
         Assert.assertEquals(temp, keyf.getKey(v11n, "Intro.OT-Rev 22:21"));
     }
 
+    @Test
+    public void testBlurAtStart() throws Exception {
+        // Blurring without a restriction does not reach the introduction to the Bible
+        temp = (Passage) keyf.getKey(v11n, "Gen 1:1");
+        temp.blur(5, RestrictionType.NONE);
+        Assert.assertEquals(keyf.getKey(v11n, "Intro.OT-Gen 1:6"), temp);
+        Assert.assertEquals(1, temp.getVerseAt(0).getOrdinal());
+    }
+
     @Test
     public void testWriteAddPassageListener() throws Exception {
         FixturePassageListener li1 = new FixturePassageListener();
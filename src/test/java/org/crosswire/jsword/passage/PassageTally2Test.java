@@ -134,6 +134,50 @@ public class PassageTally2Test {
         Assert.assertEquals("", empty.getName(10));
     }
 
+    @Test
+    public void testGetTopRanked() {
+        int[] ordinals = new int[10];
+        int[] tallies = new int[10];
+        Assert.assertEquals(3, tally.getTopRanked(3, ordinals, tallies));
+        Assert.assertEquals(genC1V1.getOrdinal(), ordinals[0]);
+        Assert.assertEquals(genC1V5.getOrdinal(), ordinals[1]);
+        Assert.assertEquals(genC1V3.getOrdinal(), ordinals[2]);
+        Assert.assertEquals(3, tallies[0]);
+        Assert.assertEquals(2, tallies[1]);
+        Assert.assertEquals(1, tallies[2]);
+
+        // Asking for more than there are gives them all, equal ranks in Biblical order
+        Assert.assertEquals(6, tally.getTopRanked(10, ordinals, null));
+        Assert.assertEquals(new Verse(v11n, BibleBook.GEN, 1, 7).getOrdinal(), ordinals[3]);
+        Assert.assertEquals(new Verse(v11n, BibleBook.GEN, 3, 1).getOrdinal(), ordinals[5]);
+
+        Assert.assertEquals(0, tally.getTopRanked(0, ordinals, null));
+        Assert.assertEquals(0, empty.getTopRanked(3, ordinals, null));
+    }
+
+    @Test
+    public void testTrimRanked() {
+        temp = tally.clone();
+        Passage remainder = temp.trimVerses(2);
+        Assert.assertEquals("Gen 1:1, 5", temp.getName());
+        Assert.assertEquals(4, remainder.countVerses());
+        Assert.assertFalse(remainder.contains(genC1V1));
+        Assert.assertTrue(remainder.contains(genC1V3));
+        Assert.assertNull(temp.trimVerses(2));
+    }
+
+    @Test
+    public void testAddVersifiedOrdinal() {
+        temp = new PassageTally(v11n);
+        temp.setOrdering(PassageTally.Order.TALLY);
+        temp.addVersifiedOrdinal(genC1V2.getOrdinal(), 5);
+        temp.addVersifiedOrdinal(genC1V1.getOrdinal(), 2);
+        temp.addVersifiedOrdinal(genC1V2.getOrdinal(), 1);
+        Assert.assertEquals(2, temp.countVerses());
+        Assert.assertEquals(6, temp.getTallyOf(genC1V2));
+        Assert.assertEquals("Gen 1:2, 1", temp.getName());
+    }
+
     @Test
     public void testToString() {
         Assert.assertEquals("Gen 1:1, 5, 3, 7, 2:1, 3:1", tally.toString());
@@ -301,6 +345,28 @@ public class PassageTally2Test {
                 temp.getNameAndTally());
     }
 
+    @Test
+    public void testBlurChapter() throws Exception {
+        temp = new PassageTally(v11n);
+        temp.setOrdering(PassageTally.Order.TALLY);
+        temp.add(new Verse(v11n, BibleBook.GEN, 1, 31));
+        temp.add(new Verse(v11n, BibleBook.GEN, 2, 2));
+        temp.blur(2, RestrictionType.CHAPTER);
+        Assert.assertEquals("Gen 1:31 (100%), Gen 2:2 (100%), Gen 1:30 (66%), Gen 2:1 (66%), Gen 2:3 (66%), Gen 1:29 (33%), Gen 2:0 (33%), Gen 2:4 (33%)",
+                temp.getNameAndTally());
+
+        // Unrestricted, the verses either side of the chapter break gain from both
+        temp = new PassageTally(v11n);
+        temp.setOrdering(PassageTally.Order.TALLY);
+        temp.add(new Verse(v11n, BibleBook.GEN, 1, 31));
+        temp.add(new Verse(v11n, BibleBook.GEN, 2, 2));
+        temp.blur(2, RestrictionType.NONE);
+        Assert.assertEquals(3, temp.getTallyOf(new Verse(v11n, BibleBook.GEN, 2, 0)));
+        Assert.assertEquals(3, temp.getTallyOf(new Verse(v11n, BibleBook.GEN, 2, 1)));
+        Assert.assertEquals(3, temp.getTallyOf(new Verse(v11n, BibleBook.GEN, 1, 31)));
+        Assert.assertEquals(2, temp.getTallyOf(new Verse(v11n, BibleBook.GEN, 1, 30)));
+    }
+
     @Test
     public void testFlatten() {
         temp = tally.clone();
@@ -0,0 +1,159 @@
+/**
+ * Distribution License:
+ * JSword is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License, version 2.1 or later
+ * as published by the Free Software Foundation. This program is distributed
+ * in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Lesser General Public License for more details.
+ *
+ * The License is available on the internet at:
+ *      http://www.gnu.org/copyleft/lgpl.html
+ * or by writing to:
+ *      Free Software Foundation, Inc.
+ *      59 Temple Place - Suite 330
+ *      Boston, MA 02111-1307, USA
+ *
+ * © CrossWire Bible Society, 2016
+ *
+ */
+package org.crosswire.jsword.passage;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Checks a RoaringBitmap against a BitSet.
+ *
+ * @see gnu.lgpl.License The GNU Lesser General Public License for details.
+ * @author agent
+ */
+public class RoaringBitmapTest {
+
+    @Test
+    public void testAddRemove() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        Assert.assertTrue(bitmap.isEmpty());
+        Assert.assertEquals(-1, bitmap.nextSetBit(0));
+
+        bitmap.add(1000);
+        bitmap.add(3);
+        bitmap.add(3);
+        Assert.assertEquals(2, bitmap.cardinality());
+        Assert.assertTrue(bitmap.contains(3));
+        Assert.assertFalse(bitmap.contains(4));
+        Assert.assertEquals(3, bitmap.nextSetBit(0));
+        Assert.assertEquals(1000, bitmap.nextSetBit(4));
+        Assert.assertEquals(-1, bitmap.nextSetBit(1001));
+
+        // Enough to turn the chunk into a bitmap and back
+        for (int i = 0; i < 100; i++) {
+            bitmap.add(i);
+        }
+        Assert.assertEquals(101, bitmap.cardinality());
+        for (int i = 0; i < 100; i++) {
+            bitmap.remove(i);
+        }
+        Assert.assertEquals(1, bitmap.cardinality());
+        Assert.assertEquals(1000, bitmap.nextSetBit(0));
+
+        bitmap.remove(1000);
+        Assert.assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void testRange() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        bitmap.add(250, 600);
+        Assert.assertEquals(351, bitmap.cardinality());
+        Assert.assertFalse(bitmap.contains(249));
+        Assert.assertTrue(bitmap.contains(250));
+        Assert.assertTrue(bitmap.contains(600));
+        Assert.assertFalse(bitmap.contains(601));
+    }
+
+    @Test
+    public void testEmptyRange() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        // Within a chunk and across chunks
+        bitmap.add(5, 3);
+        bitmap.add(600, 250);
+        Assert.assertTrue(bitmap.isEmpty());
+        Assert.assertEquals(new RoaringBitmap(), bitmap);
+    }
+
+    @Test
+    public void testAgainstBitSet() {
+        Random random = new Random(31102);
+        for (int round = 0; round < 50; round++) {
+            // Alternate sparse and dense sets
+            int density = round % 2 == 0 ? 20 : 2;
+            BitSet expected1 = new BitSet();
+            BitSet expected2 = new BitSet();
+            RoaringBitmap bitmap1 = new RoaringBitmap();
+            RoaringBitmap bitmap2 = new RoaringBitmap();
+            fill(random, density, expected1, bitmap1);
+            fill(random, density, expected2, bitmap2);
+
+            BitSet expected = (BitSet) expected1.clone();
+            RoaringBitmap bitmap = bitmap1.clone();
+            expected.or(expected2);
+            bitmap.or(bitmap2);
+            check(expected, bitmap);
+
+            expected = (BitSet) expected1.clone();
+            bitmap = bitmap1.clone();
+            expected.and(expected2);
+            bitmap.and(bitmap2);
+            check(expected, bitmap);
+
+            expected = (BitSet) expected1.clone();
+            bitmap = bitmap1.clone();
+            expected.andNot(expected2);
+            bitmap.andNot(bitmap2);
+            check(expected, bitmap);
+
+            // The originals are untouched
+            check(expected1, bitmap1);
+            check(expected2, bitmap2);
+        }
+    }
+
+    @Test
+    public void testEquals() {
+        RoaringBitmap bitmap1 = new RoaringBitmap();
+        RoaringBitmap bitmap2 = new RoaringBitmap();
+        bitmap1.add(10, 100);
+        for (int i = 100; i >= 10; i--) {
+            bitmap2.add(i);
+        }
+        Assert.assertEquals(bitmap1, bitmap2);
+        Assert.assertEquals(bitmap1.hashCode(), bitmap2.hashCode());
+        bitmap2.remove(50);
+        Assert.assertFalse(bitmap1.equals(bitmap2));
+    }
+
+    private static void fill(Random random, int density, BitSet expected, RoaringBitmap bitmap) {
+        for (int i = 0; i < 32000; i++) {
+            if (random.nextInt(density) == 0) {
+                expected.set(i);
+                bitmap.add(i);
+            }
+        }
+    }
+
+    private static void check(BitSet expected, RoaringBitmap bitmap) {
+        Assert.assertEquals(expected.cardinality(), bitmap.cardinality());
+        int i = expected.nextSetBit(0);
+        int j = bitmap.nextSetBit(0);
+        while (i >= 0) {
+            Assert.assertEquals(i, j);
+            i = expected.nextSetBit(i + 1);
+            j = bitmap.nextSetBit(j + 1);
+        }
+        Assert.assertEquals(-1, j);
+    }
+}
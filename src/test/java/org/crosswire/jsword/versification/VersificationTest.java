@@ -148,6 +148,26 @@ public class VersificationTest {
                 }
             }
         }
+
+        // Out of range ordinals are constrained, and each verse is shared
+        Assert.assertSame(v11n.decodeOrdinal(0), v11n.decodeOrdinal(-1));
+        Assert.assertSame(v11n.decodeOrdinal(v11n.maximumOrdinal()), v11n.decodeOrdinal(v11n.maximumOrdinal() + 1));
+        Assert.assertSame(v11n.decodeOrdinal(100), v11n.decodeOrdinal(100));
+    }
+
+    @Test
+    public void testChapterStartOrdinals() throws Exception {
+        int[] starts = v11n.getChapterStartOrdinals();
+        int chapter = 0;
+        for (BibleBook b = v11n.getFirstBook(); b != null; b = v11n.getNextBook(b)) {
+            int cib = v11n.getLastChapter(b);
+            for (int c = 0; c <= cib; c++) {
+                Verse verse = new Verse(v11n, b, c, 0);
+                Assert.assertEquals(verse.getOsisID(), v11n.getOrdinal(verse), starts[chapter++]);
+            }
+        }
+        Assert.assertEquals(starts.length - 1, chapter);
+        Assert.assertEquals(v11n.maximumOrdinal() + 1, starts[chapter]);
     }
 
     @Test
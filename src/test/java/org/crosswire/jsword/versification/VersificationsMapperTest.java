@@ -106,6 +106,42 @@ public class VersificationsMapperTest {
         assertVersification(CATHOLIC2, k);
     }
 
+    /**
+     * Tests that mapping an entire passage splits and joins verses as mapping
+     * each of its verses does.
+     * 
+     * @throws NoSuchKeyException 
+     */
+    @Test
+    public void testPassageSplitsAndMerges() throws NoSuchKeyException {
+        // Verses joined and split
+        doPassageTest(CATHOLIC, "Gen.1.1-Gen.1.3", KJV, "Exod.1.2-Exod.1.3");
+        doPassageTest(KJV, "Exod.1.2-Exod.1.3", CATHOLIC, "Gen.1.1-Gen.1.3");
+        doPassageTest(SYNODAL, "Ps.50.1-Ps.50.3", KJV, "Ps.51.0-Ps.51.1");
+        doPassageTest(KJV, "Ps.51.0-Ps.51.2", SYNODAL, "Ps.50.1-Ps.50.4");
+        // Psalms 9 and 10 of the KJV are one in the Synodal
+        doPassageTest(SYNODAL, "Ps.9.20-Ps.9.22", KJV, "Ps.9.19-Ps.9.20 Ps.10.1");
+        doPassageTest(KJV, "Ps.10.1-Ps.10.2", SYNODAL, "Ps.9.22-Ps.9.23");
+        doPassageTest(SYNODAL, "Ps.9-Ps.11", KJV, "Ps.9-Ps.12");
+    }
+
+    /**
+     * Executes a test of mapping a passage
+     *
+     * @param source    the source versification
+     * @param sourceKey the source passage
+     * @param target    the target versification
+     * @param targetKey the target passage
+     * @throws NoSuchKeyException an exception if we can't create the source passage.
+     */
+    private void doPassageTest(Versification source, String sourceKey, Versification target, String targetKey) throws NoSuchKeyException {
+        final VersificationsMapper mapper = VersificationsMapper.instance();
+        Passage k = mapper.map(KeyUtil.getPassage(PassageKeyFactory.instance().getKey(source, sourceKey)), target);
+
+        Assert.assertEquals(targetKey, k.getOsisRef());
+        assertVersification(target, k);
+    }
+
     /**
      * Executes a test
      *
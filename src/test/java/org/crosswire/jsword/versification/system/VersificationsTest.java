@@ -46,4 +46,27 @@ public class VersificationsTest extends TestCase {
             Assert.assertTrue("v11n is not empty", v11n.maximumOrdinal() > 0);
         }
     }
+
+    @Test
+    public void testSameInstance() throws InterruptedException {
+        // Several threads asking at once for a v11n all get the same one
+        final Versification[] found = new Versification[8];
+        Thread[] threads = new Thread[found.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int which = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    found[which] = Versifications.instance().getVersification(SystemLXX.V11N_NAME);
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Versification v11n : found) {
+            Assert.assertSame(Versifications.instance().getVersification(SystemLXX.V11N_NAME), v11n);
+        }
+    }
 }